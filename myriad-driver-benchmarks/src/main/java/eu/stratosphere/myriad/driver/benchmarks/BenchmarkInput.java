@@ -0,0 +1,67 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.myriad.driver.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.util.Random;
+
+/**
+ * Deterministic synthetic generator output: '|' delimited records of varying length, one per line.
+ * 
+ * @author Alexander Alexandrov (alexander.alexandrov@tu-berlin.de)
+ */
+public final class BenchmarkInput {
+
+	private BenchmarkInput() {
+	}
+
+	/**
+	 * @param recordSize the average record length in characters (lengths vary by +/- 50%)
+	 * @param recordCount the number of records
+	 * @param charset the charset of the records; for UTF-8 every fourth character is a two-byte character
+	 * @return the encoded records
+	 */
+	public static byte[] generate(int recordSize, int recordCount, String charset) {
+		boolean multiByte = charset.equalsIgnoreCase("UTF-8");
+		Random random = new Random(42);
+		ByteArrayOutputStream out = new ByteArrayOutputStream(recordSize * recordCount + recordCount);
+		StringBuilder record = new StringBuilder(2 * recordSize);
+		try {
+			for (int i = 0; i < recordCount; i++) {
+				record.setLength(0);
+				record.append(i).append('|');
+				int length = recordSize / 2 + random.nextInt(recordSize + 1);
+				while (record.length() < length) {
+					if (record.length() % 16 == 15) {
+						record.append('|');
+					} else if (multiByte && record.length() % 4 == 3) {
+						record.append((char) ('\u00e0' + random.nextInt(26)));
+					} else {
+						record.append((char) ('a' + random.nextInt(26)));
+					}
+				}
+				out.write(record.toString().getBytes(charset));
+				out.write('\n');
+			}
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalArgumentException("Unsupported charset " + charset);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		return out.toByteArray();
+	}
+}
@@ -0,0 +1,137 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.myriad.driver.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.io.Text;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import eu.stratosphere.myriad.driver.reader.MyriadLineReader;
+import eu.stratosphere.myriad.driver.reader.MyriadRecord;
+import eu.stratosphere.myriad.driver.reader.MyriadRecordBatch;
+
+/**
+ * Framing throughput of {@link MyriadLineReader} on an in-memory channel. Each operation reads the whole input. The
+ * variants mirror the consumers in the driver: record views (<code>MyriadSocketReader.next(MyriadRecord)</code>),
+ * copies into a {@link Text} (<code>MyriadRecordReader.next()</code>), decoded strings
+ * (<code>MyriadSocketReader.next()</code>), batches and raw chunks.
+ * 
+ * @author Alexander Alexandrov (alexander.alexandrov@tu-berlin.de)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LineReaderBenchmark {
+
+	private static final int BUFFER_SIZE = 1048576; // as in MyriadSocketReader
+
+	@Param({ "64", "512" })
+	public int recordSize;
+
+	@Param({ "100000" })
+	public int recordCount;
+
+	@Param({ "US-ASCII", "UTF-8" })
+	public String charset;
+
+	private byte[] input;
+
+	private MyriadRecord record;
+
+	private MyriadRecordBatch batch;
+
+	private Text text;
+
+	@Setup
+	public void setUp() {
+		this.input = BenchmarkInput.generate(this.recordSize, this.recordCount, this.charset);
+		this.record = new MyriadRecord();
+		this.batch = new MyriadRecordBatch(4096, 262144);
+		this.text = new Text();
+	}
+
+	@Benchmark
+	public void readLine(ByteCounter counter, Blackhole bh) throws IOException {
+		MyriadLineReader reader = open();
+		while (reader.readLine(this.record)) {
+			bh.consume(this.record.getLength());
+		}
+		close(reader, counter);
+	}
+
+	@Benchmark
+	public void readLineToText(ByteCounter counter, Blackhole bh) throws IOException {
+		MyriadLineReader reader = open();
+		while (reader.readLine(this.record)) {
+			this.text.set(this.record.getBytes(), this.record.getOffset(), this.record.getLength());
+			bh.consume(this.text);
+		}
+		close(reader, counter);
+	}
+
+	@Benchmark
+	public void readLineToString(ByteCounter counter, Blackhole bh) throws IOException {
+		MyriadLineReader reader = open();
+		while (reader.readLine(this.record)) {
+			bh.consume(this.record.toString());
+		}
+		close(reader, counter);
+	}
+
+	@Benchmark
+	public void readLines(ByteCounter counter, Blackhole bh) throws IOException {
+		MyriadLineReader reader = open();
+		while (reader.readLines(this.batch)) {
+			bh.consume(this.batch.getDataLength());
+		}
+		close(reader, counter);
+	}
+
+	@Benchmark
+	public void readChunk(ByteCounter counter, Blackhole bh) throws IOException {
+		MyriadLineReader reader = open();
+		while (reader.readChunk(this.record)) {
+			bh.consume(this.record.getLength());
+		}
+		close(reader, counter);
+	}
+
+	private MyriadLineReader open() {
+		return new MyriadLineReader(Channels.newChannel(new ByteArrayInputStream(this.input)), BUFFER_SIZE);
+	}
+
+	private static void close(MyriadLineReader reader, ByteCounter counter) throws IOException {
+		counter.bytes += reader.getBytesRead();
+		reader.close();
+	}
+}
@@ -0,0 +1,157 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.myriad.driver.benchmarks;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.io.Text;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import eu.stratosphere.myriad.driver.reader.MyriadLineReader;
+import eu.stratosphere.myriad.driver.reader.MyriadPrefetchChannel;
+import eu.stratosphere.myriad.driver.reader.MyriadRecord;
+
+/**
+ * End-to-end reader throughput over a loopback socket. A writer thread in the benchmark JVM plays the generator: for
+ * every operation it connects to the reader's server socket and streams the whole input, as the generator does with
+ * <code>-t socket[port]</code>. The reader side is the one of <code>MyriadSocketReader</code>, optionally behind the
+ * read-ahead stage.
+ * 
+ * @author Alexander Alexandrov (alexander.alexandrov@tu-berlin.de)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SocketSourceBenchmark {
+
+	private static final int BUFFER_SIZE = 1048576; // as in MyriadSocketReader
+
+	@Param({ "64", "512" })
+	public int recordSize;
+
+	@Param({ "100000" })
+	public int recordCount;
+
+	@Param({ "US-ASCII" })
+	public String charset;
+
+	@Param({ "0", "4" })
+	public int prefetchBuffers;
+
+	private byte[] input;
+
+	private ServerSocketChannel serverSocket;
+
+	private MyriadRecord record;
+
+	private Text text;
+
+	private SocketChannel channel;
+
+	private Thread writer;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		this.input = BenchmarkInput.generate(this.recordSize, this.recordCount, this.charset);
+		this.serverSocket = ServerSocketChannel.open();
+		this.serverSocket.socket().bind(new InetSocketAddress("127.0.0.1", 0));
+		this.record = new MyriadRecord();
+		this.text = new Text();
+	}
+
+	@Setup(Level.Invocation)
+	public void connect() throws IOException {
+		final int port = this.serverSocket.socket().getLocalPort();
+		final byte[] data = this.input;
+		this.writer = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				try {
+					Socket socket = new Socket("127.0.0.1", port);
+					OutputStream out = socket.getOutputStream();
+					out.write(data);
+					socket.close();
+				} catch (IOException e) {
+					throw new IllegalStateException(e);
+				}
+			}
+		}, "benchmark-generator");
+		this.writer.start();
+		this.channel = this.serverSocket.accept();
+	}
+
+	@TearDown(Level.Invocation)
+	public void disconnect() throws InterruptedException {
+		this.writer.join();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		this.serverSocket.close();
+	}
+
+	@Benchmark
+	public void readLineToText(ByteCounter counter, Blackhole bh) throws IOException {
+		MyriadLineReader reader = open();
+		while (reader.readLine(this.record)) {
+			this.text.set(this.record.getBytes(), this.record.getOffset(), this.record.getLength());
+			bh.consume(this.text);
+		}
+		counter.bytes += reader.getBytesRead();
+		reader.close();
+	}
+
+	@Benchmark
+	public void readChunk(ByteCounter counter, Blackhole bh) throws IOException {
+		MyriadLineReader reader = open();
+		while (reader.readChunk(this.record)) {
+			bh.consume(this.record.getLength());
+		}
+		counter.bytes += reader.getBytesRead();
+		reader.close();
+	}
+
+	private MyriadLineReader open() {
+		ReadableByteChannel source = this.channel;
+		if (this.prefetchBuffers > 0) {
+			source = new MyriadPrefetchChannel(this.channel, this.prefetchBuffers, BUFFER_SIZE);
+		}
+		return new MyriadLineReader(source, BUFFER_SIZE);
+	}
+}
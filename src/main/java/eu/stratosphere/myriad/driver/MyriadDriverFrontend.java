@@ -20,7 +20,9 @@ import java.io.PrintStream;
 import java.io.PrintWriter;
 import java.net.URL;
 import java.net.URLClassLoader;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
@@ -31,9 +33,12 @@ import org.apache.commons.cli.ParseException;
 import org.apache.commons.cli.PosixParser;
 
 import eu.stratosphere.myriad.driver.hadoop.MyriadDriverHadoopJob;
+import eu.stratosphere.myriad.driver.hadoop.MyriadDriverHadoopMultiStageJob;
+import eu.stratosphere.myriad.driver.local.MyriadDriverLocalJob;
 import eu.stratosphere.myriad.driver.parameters.DriverJobParameters;
 import eu.stratosphere.myriad.driver.parameters.DriverJobParametersException;
 import eu.stratosphere.myriad.driver.parameters.DriverJobParametersFamily;
+import eu.stratosphere.myriad.driver.reader.MyriadTransport;
 
 /**
  * @author Alexander Alexandrov (alexander.alexandrov@tu-berlin.de)
@@ -80,6 +85,131 @@ public class MyriadDriverFrontend {
 		OptionBuilder.withDescription("specify specific stages to be executed");
 		OptionBuilder.withLongOpt("execute-stage");
 		this.options.addOption(OptionBuilder.create('x'));
+
+		// concurrent-stages
+		OptionBuilder.hasArg();
+		OptionBuilder.withArgName("int");
+		OptionBuilder.withDescription("maximal number of stages running at the same time");
+		OptionBuilder.withLongOpt("concurrent-stages");
+		this.options.addOption(OptionBuilder.create());
+
+		// single-job
+		OptionBuilder.withDescription("generate all stages with a single job (stages must not depend on each other)");
+		OptionBuilder.withLongOpt("single-job");
+		this.options.addOption(OptionBuilder.create());
+
+		// local
+		OptionBuilder.withDescription("generate the stages on this machine without Hadoop");
+		OptionBuilder.withLongOpt("local");
+		this.options.addOption(OptionBuilder.create());
+
+		// local-workers
+		OptionBuilder.hasArg();
+		OptionBuilder.withArgName("int");
+		OptionBuilder.withDescription("partitions generated at the same time by a local stage (0 uses all cores)");
+		OptionBuilder.withLongOpt("local-workers");
+		this.options.addOption(OptionBuilder.create());
+
+		// split-factor
+		OptionBuilder.hasArg();
+		OptionBuilder.withArgName("int");
+		OptionBuilder.withDescription("split each partition into <int> generator tasks (0 fills all map slots)");
+		OptionBuilder.withLongOpt("split-factor");
+		this.options.addOption(OptionBuilder.create());
+
+		// hosts
+		OptionBuilder.hasArgs();
+		OptionBuilder.withValueSeparator(',');
+		OptionBuilder.withArgName("host,...");
+		OptionBuilder.withDescription("preferred hosts for the generator tasks");
+		OptionBuilder.withLongOpt("hosts");
+		this.options.addOption(OptionBuilder.create());
+
+		// batch-records
+		OptionBuilder.hasArg();
+		OptionBuilder.withArgName("int");
+		OptionBuilder.withDescription("read records in batches of up to <int> records (0 disables batching)");
+		OptionBuilder.withLongOpt("batch-records");
+		this.options.addOption(OptionBuilder.create());
+
+		// batch-bytes
+		OptionBuilder.hasArg();
+		OptionBuilder.withArgName("int");
+		OptionBuilder.withDescription("targeted size of a record batch in bytes");
+		OptionBuilder.withLongOpt("batch-bytes");
+		this.options.addOption(OptionBuilder.create());
+
+		// prefetch-buffers
+		OptionBuilder.hasArg();
+		OptionBuilder.withArgName("int");
+		OptionBuilder.withDescription("drain the generator on a read-ahead thread into <int> buffers (0 disables read-ahead)");
+		OptionBuilder.withLongOpt("prefetch-buffers");
+		this.options.addOption(OptionBuilder.create());
+
+		// partitions-per-task
+		OptionBuilder.hasArg();
+		OptionBuilder.withArgName("int");
+		OptionBuilder.withDescription("generate <int> node partitions per task (text output only)");
+		OptionBuilder.withLongOpt("partitions-per-task");
+		this.options.addOption(OptionBuilder.create());
+
+		// concurrent-partitions
+		OptionBuilder.hasArg();
+		OptionBuilder.withArgName("int");
+		OptionBuilder.withDescription("run up to <int> generators of a packed task at the same time");
+		OptionBuilder.withLongOpt("concurrent-partitions");
+		this.options.addOption(OptionBuilder.create());
+
+		// output-format
+		OptionBuilder.hasArg();
+		OptionBuilder.withArgName("text|raw|sequence");
+		OptionBuilder.withDescription("write text lines, the raw generator output or typed SequenceFile tuples");
+		OptionBuilder.withLongOpt("output-format");
+		this.options.addOption(OptionBuilder.create());
+
+		// compress
+		OptionBuilder.hasArg();
+		OptionBuilder.withArgName("codec");
+		OptionBuilder.withDescription("compress the output with gzip, bzip2, deflate, snappy, lz4 or a codec class");
+		OptionBuilder.withLongOpt("compress");
+		this.options.addOption(OptionBuilder.create());
+
+		// transport
+		OptionBuilder.hasArg();
+		OptionBuilder.withArgName("socket|pipe|stdout|ring");
+		OptionBuilder.withDescription("read the generator output from a loopback socket, a named pipe, its stdout "
+			+ "or a shared memory ring");
+		OptionBuilder.withLongOpt("transport");
+		this.options.addOption(OptionBuilder.create());
+
+		// connections
+		OptionBuilder.hasArg();
+		OptionBuilder.withArgName("int");
+		OptionBuilder.withDescription("let each generator node write over <int> connections (socket transport only)");
+		OptionBuilder.withLongOpt("connections");
+		this.options.addOption(OptionBuilder.create());
+
+		// stream-merge
+		OptionBuilder.hasArg();
+		OptionBuilder.withArgName("arrival|connection|none");
+		OptionBuilder.withDescription("merge the records of several connections in arrival or connection order, or "
+			+ "keep one output file per connection (local runs only)");
+		OptionBuilder.withLongOpt("stream-merge");
+		this.options.addOption(OptionBuilder.create());
+
+		// project
+		OptionBuilder.hasArg();
+		OptionBuilder.withArgName("fields");
+		OptionBuilder.withDescription("keep only the given comma separated fields (names or positions) of each record");
+		OptionBuilder.withLongOpt("project");
+		this.options.addOption(OptionBuilder.create());
+
+		// filter
+		OptionBuilder.hasArg();
+		OptionBuilder.withArgName("predicate");
+		OptionBuilder.withDescription("keep only the records matching <field><op><value>, op one of = != < <= > >=");
+		OptionBuilder.withLongOpt("filter");
+		this.options.addOption(OptionBuilder.create());
 	}
 
 	/**
@@ -95,13 +225,26 @@ public class MyriadDriverFrontend {
 		}
 
 		try {
-			// execute a driver job for each 'execute-stage' parameter
-			for (DriverJobParameters p : new DriverJobParametersFamily(parsedOptions)) {
-				System.out.println(String.format("Running %s for stage `%s`", p.getDGenName(), p.getStage()));
-				// run driver job
-				MyriadDriverJob myriadDriverJob = driverJobFactory(p);
+			if (parsedOptions.getBoolean("single-job")) {
+				// run a single driver job for all 'execute-stage' parameters
+				List<DriverJobParameters> stages = new ArrayList<DriverJobParameters>();
+				for (DriverJobParameters p : new DriverJobParametersFamily(parsedOptions)) {
+					stages.add(p);
+				}
+				System.out.println(String.format("Running %s for stages %s", stages.get(0).getDGenName(),
+					Arrays.toString(parsedOptions.getStringArray("execute-stage"))));
+				MyriadDriverJob myriadDriverJob = driverJobFactory(stages);
 				myriadDriverJob.removeOutputPath();
 				myriadDriverJob.run();
+			} else {
+				// schedule a driver job for each 'execute-stage' parameter
+				MyriadStageScheduler scheduler = new MyriadStageScheduler(
+					parsedOptions.getInteger("concurrent-stages"));
+				for (DriverJobParameters p : new DriverJobParametersFamily(parsedOptions)) {
+					scheduler.add(p, driverJobFactory(p, parsedOptions));
+				}
+				// run driver jobs
+				scheduler.run();
 			}
 		} catch (DriverJobParametersException e) {
 			System.out.println("Exception in Hadoop MapReduce job parameters: " + e.getMessage());
@@ -148,6 +291,147 @@ public class MyriadDriverFrontend {
 			parsedOptions.setErrorMessage("node-count", e.getMessage());
 		}
 
+		parsedOptions.setBoolean("single-job", line.hasOption("single-job"));
+		parsedOptions.setBoolean("local", line.hasOption("local"));
+
+		if (line.hasOption("local") && line.hasOption("single-job")) {
+			parsedOptions.setErrorMessage("local", "The single-job mode is not supported by local runs");
+		}
+
+		try {
+			parsedOptions.setInteger("local-workers", Integer.parseInt(line.getOptionValue("local-workers", "0")));
+		} catch (NumberFormatException e) {
+			parsedOptions.setErrorMessage("local-workers", e.getMessage());
+		}
+
+		try {
+			parsedOptions.setInteger("concurrent-stages", Integer.parseInt(line.getOptionValue("concurrent-stages", "1")));
+		} catch (NumberFormatException e) {
+			parsedOptions.setErrorMessage("concurrent-stages", e.getMessage());
+		}
+
+		if (line.hasOption("hosts")) {
+			parsedOptions.setStringArray("hosts", line.getOptionValues("hosts"));
+		}
+
+		try {
+			parsedOptions.setInteger("split-factor", Integer.parseInt(line.getOptionValue("split-factor", "1")));
+		} catch (NumberFormatException e) {
+			parsedOptions.setErrorMessage("split-factor", e.getMessage());
+		}
+
+		try {
+			parsedOptions.setInteger("batch-records", Integer.parseInt(line.getOptionValue("batch-records", "0")));
+		} catch (NumberFormatException e) {
+			parsedOptions.setErrorMessage("batch-records", e.getMessage());
+		}
+
+		if (line.hasOption("batch-bytes")) {
+			try {
+				parsedOptions.setInteger("batch-bytes", Integer.parseInt(line.getOptionValue("batch-bytes")));
+			} catch (NumberFormatException e) {
+				parsedOptions.setErrorMessage("batch-bytes", e.getMessage());
+			}
+		}
+
+		try {
+			parsedOptions.setInteger("prefetch-buffers", Integer.parseInt(line.getOptionValue("prefetch-buffers", "0")));
+		} catch (NumberFormatException e) {
+			parsedOptions.setErrorMessage("prefetch-buffers", e.getMessage());
+		}
+
+		try {
+			int partitionsPerTask = Integer.parseInt(line.getOptionValue("partitions-per-task", "1"));
+			if (partitionsPerTask < 1) {
+				parsedOptions.setErrorMessage("partitions-per-task", "At least one partition per task is required");
+			} else if (partitionsPerTask > 1 && line.hasOption("single-job")) {
+				parsedOptions.setErrorMessage("partitions-per-task",
+					"The single-job mode does not support packed partitions");
+			} else if (partitionsPerTask > 1 && line.hasOption("split-factor")) {
+				parsedOptions.setErrorMessage("partitions-per-task",
+					"Packed partitions do not support the split factor");
+			} else {
+				parsedOptions.setInteger("partitions-per-task", partitionsPerTask);
+			}
+		} catch (NumberFormatException e) {
+			parsedOptions.setErrorMessage("partitions-per-task", e.getMessage());
+		}
+
+		try {
+			int concurrentPartitions = Integer.parseInt(line.getOptionValue("concurrent-partitions", "1"));
+			if (concurrentPartitions < 1) {
+				parsedOptions.setErrorMessage("concurrent-partitions", "At least one concurrent partition is required");
+			} else if (line.hasOption("concurrent-partitions") && !line.hasOption("partitions-per-task")) {
+				parsedOptions.setErrorMessage("concurrent-partitions",
+					"Concurrent partitions require packed partitions");
+			} else {
+				parsedOptions.setInteger("concurrent-partitions", concurrentPartitions);
+			}
+		} catch (NumberFormatException e) {
+			parsedOptions.setErrorMessage("concurrent-partitions", e.getMessage());
+		}
+
+		String outputFormat = line.getOptionValue("output-format", "text");
+		if (!outputFormat.equals("text") && !outputFormat.equals("raw") && !outputFormat.equals("sequence")) {
+			parsedOptions.setErrorMessage("output-format", "Unsupported output format `" + outputFormat + "`");
+		} else if (!outputFormat.equals("text") && line.hasOption("single-job")) {
+			parsedOptions.setErrorMessage("output-format", "The single-job mode supports only the text output format");
+		} else if (!outputFormat.equals("text") && line.hasOption("partitions-per-task")) {
+			parsedOptions.setErrorMessage("output-format", "Packed partitions support only the text output format");
+		} else {
+			parsedOptions.setString("output-format", outputFormat);
+		}
+
+		if (line.hasOption("local") && (line.hasOption("compress") || "sequence".equals(outputFormat))) {
+			parsedOptions.setErrorMessage("local", "Local runs support only uncompressed text and raw output");
+		}
+
+		if (line.hasOption("compress")) {
+			parsedOptions.setString("compress", line.getOptionValue("compress"));
+		}
+
+		String transport = line.getOptionValue("transport", "socket");
+		if (transport.equals("ring") && !MyriadTransport.isSupported(transport)) {
+			parsedOptions.setErrorMessage("transport", "The ring transport is not supported on this JVM");
+		} else if (!MyriadTransport.isSupported(transport)) {
+			parsedOptions.setErrorMessage("transport", "Unsupported transport `" + transport + "`");
+		} else {
+			parsedOptions.setString("transport", transport);
+		}
+
+		try {
+			int connections = Integer.parseInt(line.getOptionValue("connections", "1"));
+			if (connections < 1) {
+				parsedOptions.setErrorMessage("connections", "At least one connection is required");
+			} else if (connections > 1 && !transport.equals("socket")) {
+				parsedOptions.setErrorMessage("connections", "Several connections require the socket transport");
+			} else {
+				parsedOptions.setInteger("connections", connections);
+			}
+		} catch (NumberFormatException e) {
+			parsedOptions.setErrorMessage("connections", e.getMessage());
+		}
+
+		String streamMerge = line.getOptionValue("stream-merge", "arrival");
+		if (!streamMerge.equals("arrival") && !streamMerge.equals("connection") && !streamMerge.equals("none")) {
+			parsedOptions.setErrorMessage("stream-merge", "Unsupported stream merge `" + streamMerge + "`");
+		} else if (streamMerge.equals("none") && !line.hasOption("local")) {
+			parsedOptions.setErrorMessage("stream-merge", "Independent connection streams require a local run");
+		} else {
+			parsedOptions.setString("stream-merge", streamMerge);
+		}
+
+		if (line.hasOption("project") || line.hasOption("filter")) {
+			if (!outputFormat.equals("text")) {
+				parsedOptions.setErrorMessage("project", "Projections and filters support only the text output format");
+			} else if (line.hasOption("batch-records")) {
+				parsedOptions.setErrorMessage("project", "Projections and filters do not support batched records");
+			} else {
+				parsedOptions.setString("project", line.getOptionValue("project"));
+				parsedOptions.setString("filter", line.getOptionValue("filter"));
+			}
+		}
+
 		parsedOptions.setString("dataset-id", line.getOptionValue('m', "default-dataset"));
 		parsedOptions.setFile("output-base", new File(line.getOptionValue('o', "/tmp")));
 
@@ -158,12 +442,26 @@ public class MyriadDriverFrontend {
 	 * Factory method.
 	 * 
 	 * @param parameters
+	 * @param parsedOptions
 	 * @return
 	 */
-	private MyriadDriverJob driverJobFactory(DriverJobParameters parameters) {
+	private MyriadDriverJob driverJobFactory(DriverJobParameters parameters, ParsedOptions parsedOptions) {
+		if (parsedOptions.getBoolean("local")) {
+			return new MyriadDriverLocalJob(parameters, parsedOptions.getInteger("local-workers"));
+		}
 		return new MyriadDriverHadoopJob(parameters);
 	}
 
+	/**
+	 * Factory method for a driver job that generates several stages at once.
+	 * 
+	 * @param stages
+	 * @return
+	 */
+	private MyriadDriverJob driverJobFactory(List<DriverJobParameters> stages) {
+		return new MyriadDriverHadoopMultiStageJob(stages);
+	}
+
 	private void printErrors(PrintStream out, ParsedOptions parsedOptions) {
 		for (String message : parsedOptions.getErrorMessages()) {
 			out.println("Error: " + message);
@@ -24,4 +24,9 @@ public interface MyriadDriverJob {
 	public abstract void removeOutputPath() throws IOException;
 
 	public abstract void run() throws IOException;
+
+	/**
+	 * Stops the job if it is running. A killed job makes {@link #run()} fail.
+	 */
+	public abstract void kill() throws IOException;
 }
\ No newline at end of file
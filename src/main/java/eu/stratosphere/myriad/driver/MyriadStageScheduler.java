@@ -0,0 +1,278 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.myriad.driver;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import eu.stratosphere.myriad.driver.parameters.DriverJobParameters;
+import eu.stratosphere.myriad.driver.parameters.DriverJobParametersException;
+
+/**
+ * Runs the driver jobs of several stages with a bounded number of concurrently running jobs. A stage is started only
+ * after all stages it depends on (see {@link DriverJobParameters#getDependencies()}) have finished successfully.
+ * Dependencies on stages that are not scheduled are ignored.
+ * 
+ * The first failing stage stops the schedule: running stages are killed, pending stages are skipped and a report of
+ * all stages is printed.
+ * 
+ * @author Alexander Alexandrov (alexander.alexandrov@tu-berlin.de)
+ */
+public class MyriadStageScheduler {
+
+	private enum Status {
+		PENDING, RUNNING, SUCCEEDED, FAILED, KILLED, SKIPPED
+	}
+
+	private final int maxConcurrentStages;
+
+	private final Map<String, Stage> stages;
+
+	private volatile boolean failed;
+
+	/**
+	 * Initializes MyriadStageScheduler.
+	 * 
+	 * @param maxConcurrentStages
+	 */
+	public MyriadStageScheduler(int maxConcurrentStages) {
+		if (maxConcurrentStages < 1) {
+			throw new DriverJobParametersException("Bad number of concurrent stages " + maxConcurrentStages);
+		}
+		this.maxConcurrentStages = maxConcurrentStages;
+		this.stages = new LinkedHashMap<String, Stage>();
+		this.failed = false;
+	}
+
+	/**
+	 * Adds a stage to the schedule.
+	 * 
+	 * @param parameters
+	 * @param job
+	 */
+	public void add(DriverJobParameters parameters, MyriadDriverJob job) {
+		if (this.stages.containsKey(parameters.getStage())) {
+			throw new DriverJobParametersException("Stage `" + parameters.getStage() + "` is scheduled twice.");
+		}
+		this.stages.put(parameters.getStage(), new Stage(parameters, job));
+	}
+
+	/**
+	 * Runs all stages and blocks until they are finished.
+	 * 
+	 * @throws IOException if at least one of the stages failed
+	 */
+	public void run() throws IOException {
+		LinkedList<Stage> ready = resolveDependencies();
+
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(this.maxConcurrentStages,
+			Math.max(1, this.stages.size())));
+		CompletionService<Stage> completionService = new ExecutorCompletionService<Stage>(executor);
+		List<Stage> running = new ArrayList<Stage>();
+
+		try {
+			while (!ready.isEmpty() || !running.isEmpty()) {
+				// start ready stages
+				while (!this.failed && !ready.isEmpty() && running.size() < this.maxConcurrentStages) {
+					Stage stage = ready.removeFirst();
+					stage.status = Status.RUNNING;
+					running.add(stage);
+					completionService.submit(stage);
+				}
+				if (running.isEmpty()) {
+					break;
+				}
+
+				// wait for the next finished stage
+				Stage stage = completionService.take().get();
+				running.remove(stage);
+
+				if (stage.status == Status.FAILED && !this.failed) {
+					// fail fast
+					this.failed = true;
+					for (Stage other : running) {
+						other.kill();
+					}
+				} else if (stage.status == Status.SUCCEEDED) {
+					for (Stage dependent : stage.dependents) {
+						dependent.pendingDependencies.remove(stage.name);
+						if (dependent.pendingDependencies.isEmpty()) {
+							ready.add(dependent);
+						}
+					}
+				}
+			}
+		} catch (InterruptedException e) {
+			this.failed = true;
+			for (Stage stage : running) {
+				stage.kill();
+			}
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause()); // stages catch their own exceptions
+		} finally {
+			executor.shutdown();
+		}
+
+		int failedStages = printReport();
+		if (failedStages > 0) {
+			throw new IOException(String.format("%d of %d stages did not complete", failedStages, this.stages.size()));
+		}
+	}
+
+	/**
+	 * Links the stages with their scheduled dependencies and checks that the dependency graph is acyclic.
+	 * 
+	 * @return the stages without dependencies
+	 */
+	private LinkedList<Stage> resolveDependencies() {
+		LinkedList<Stage> ready = new LinkedList<Stage>();
+		for (Stage stage : this.stages.values()) {
+			for (String dependency : stage.parameters.getDependencies()) {
+				Stage required = this.stages.get(dependency);
+				if (required != null && required != stage) {
+					stage.pendingDependencies.add(dependency);
+					required.dependents.add(stage);
+				}
+			}
+			if (stage.pendingDependencies.isEmpty()) {
+				ready.add(stage);
+			}
+		}
+
+		// topological sort (Kahn's algorithm) to detect cycles up front
+		Set<String> visited = new HashSet<String>();
+		Map<Stage, Integer> inDegree = new LinkedHashMap<Stage, Integer>();
+		for (Stage stage : this.stages.values()) {
+			inDegree.put(stage, stage.pendingDependencies.size());
+		}
+		LinkedList<Stage> queue = new LinkedList<Stage>(ready);
+		while (!queue.isEmpty()) {
+			Stage stage = queue.removeFirst();
+			visited.add(stage.name);
+			for (Stage dependent : stage.dependents) {
+				int degree = inDegree.get(dependent) - 1;
+				inDegree.put(dependent, degree);
+				if (degree == 0) {
+					queue.add(dependent);
+				}
+			}
+		}
+		if (visited.size() < this.stages.size()) {
+			Set<String> cyclic = new HashSet<String>(this.stages.keySet());
+			cyclic.removeAll(visited);
+			throw new DriverJobParametersException("Cyclic stage dependencies between " + cyclic);
+		}
+
+		return ready;
+	}
+
+	/**
+	 * @return the number of stages that did not succeed
+	 */
+	private int printReport() {
+		int notSucceeded = 0;
+		System.out.println("Stage report:");
+		for (Stage stage : this.stages.values()) {
+			if (stage.status == Status.PENDING) {
+				stage.status = Status.SKIPPED;
+			}
+			if (stage.status != Status.SUCCEEDED) {
+				notSucceeded++;
+			}
+			StringBuilder line = new StringBuilder();
+			line.append(String.format("  %-24s %-9s", stage.name, stage.status));
+			if (stage.endTime > 0) {
+				line.append(String.format(" %8.1f s", (stage.endTime - stage.startTime) / 1000.0));
+			}
+			if (stage.error != null && stage.status == Status.FAILED) {
+				line.append("  ").append(stage.error.getMessage());
+			}
+			System.out.println(line);
+		}
+		return notSucceeded;
+	}
+
+	private class Stage implements Callable<Stage> {
+
+		private final String name;
+
+		private final DriverJobParameters parameters;
+
+		private final MyriadDriverJob job;
+
+		private final Set<String> pendingDependencies;
+
+		private final List<Stage> dependents;
+
+		private volatile Status status;
+
+		private long startTime;
+
+		private long endTime;
+
+		private Exception error;
+
+		public Stage(DriverJobParameters parameters, MyriadDriverJob job) {
+			this.name = parameters.getStage();
+			this.parameters = parameters;
+			this.job = job;
+			this.pendingDependencies = new HashSet<String>();
+			this.dependents = new ArrayList<Stage>();
+			this.status = Status.PENDING;
+		}
+
+		@Override
+		public Stage call() {
+			this.startTime = System.currentTimeMillis();
+			try {
+				System.out.println(String.format("Running %s for stage `%s`", this.parameters.getDGenName(),
+					this.name));
+				this.job.removeOutputPath();
+				this.job.run();
+				this.status = Status.SUCCEEDED;
+			} catch (Exception e) {
+				this.error = e;
+				this.status = MyriadStageScheduler.this.failed ? Status.KILLED : Status.FAILED;
+				if (this.status == Status.FAILED) {
+					e.printStackTrace(System.err);
+				}
+			} finally {
+				this.endTime = System.currentTimeMillis();
+			}
+			return this;
+		}
+
+		private void kill() {
+			try {
+				this.job.kill();
+			} catch (IOException e) {
+				e.printStackTrace(System.err);
+			}
+		}
+	}
+}
@@ -31,6 +31,10 @@ public class ParsedOptions {
 
 	private final HashMap<String, Short> shortOptions;
 
+	private final HashMap<String, Integer> integerOptions;
+
+	private final HashMap<String, Boolean> booleanOptions;
+
 	private final HashMap<String, String[]> stringArrayOptions;
 
 	private final HashMap<String, File[]> fileArrayOptions;
@@ -47,6 +51,8 @@ public class ParsedOptions {
 		this.fileOptions = new HashMap<String, File>();
 		this.floatOptions = new HashMap<String, Float>();
 		this.shortOptions = new HashMap<String, Short>();
+		this.integerOptions = new HashMap<String, Integer>();
+		this.booleanOptions = new HashMap<String, Boolean>();
 		// init array option containers
 		this.stringArrayOptions = new HashMap<String, String[]>();
 		this.fileArrayOptions = new HashMap<String, File[]>();
@@ -141,6 +147,38 @@ public class ParsedOptions {
 		this.shortOptions.put(optionKey, option);
 	}
 
+	/**
+	 * @param optionKey
+	 * @return
+	 */
+	public Integer getInteger(String optionKey) {
+		return this.integerOptions.get(optionKey);
+	}
+
+	/**
+	 * @param optionKey
+	 * @param option
+	 */
+	public void setInteger(String optionKey, Integer option) {
+		this.integerOptions.put(optionKey, option);
+	}
+
+	/**
+	 * @param optionKey
+	 * @return
+	 */
+	public Boolean getBoolean(String optionKey) {
+		return this.booleanOptions.get(optionKey);
+	}
+
+	/**
+	 * @param optionKey
+	 * @param option
+	 */
+	public void setBoolean(String optionKey, Boolean option) {
+		this.booleanOptions.put(optionKey, option);
+	}
+
 	/**
 	 * @param optionKey
 	 * @return
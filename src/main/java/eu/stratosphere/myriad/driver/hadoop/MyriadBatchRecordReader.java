@@ -0,0 +1,63 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.myriad.driver.hadoop;
+
+import java.io.IOException;
+
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.hadoop.mapred.Reporter;
+
+import eu.stratosphere.myriad.driver.reader.MyriadRecordBatch;
+
+/**
+ * A record reader that hands out whole batches of records at once. Each value holds the newline separated records of
+ * one batch, so writing the values with {@link org.apache.hadoop.mapred.TextOutputFormat} produces exactly the same
+ * output as the per-record {@link MyriadRecordReader}.
+ * 
+ * @author Alexander Alexandrov (alexander.alexandrov@tu-berlin.de)
+ */
+@SuppressWarnings("deprecation")
+public class MyriadBatchRecordReader extends MyriadRecordReader {
+
+	private final MyriadRecordBatch batch;
+
+	/**
+	 * Initializes MyriadBatchRecordReader.
+	 * 
+	 * @param split
+	 * @param conf
+	 * @param reporter
+	 */
+	public MyriadBatchRecordReader(MyriadInputSplit split, JobConf conf, Reporter reporter) {
+		// a batch is large enough to time every call
+		super(split, conf, reporter, 1);
+		this.batch = new MyriadRecordBatch(MyriadInputFormat.getBatchMaxRecords(conf),
+			MyriadInputFormat.getBatchMaxBytes(conf));
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see eu.stratosphere.myriad.driver.hadoop.MyriadRecordReader#read(org.apache.hadoop.io.Text)
+	 */
+	@Override
+	protected boolean read(Text value) throws IOException {
+		if (!this.socketReader.nextBatch(this.batch)) {
+			return false;
+		}
+		value.set(this.batch.getBytes(), this.batch.getDataOffset(), this.batch.getDataLength());
+		return true;
+	}
+}
@@ -0,0 +1,75 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.myriad.driver.hadoop;
+
+import java.io.IOException;
+
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.hadoop.mapred.Reporter;
+
+import eu.stratosphere.myriad.driver.reader.MyriadRecord;
+
+/**
+ * A record reader that passes the raw generator output through in large chunks instead of framing records. Each value
+ * holds the bytes received since the previous call, so a task makes a few framework calls per buffer rather than one
+ * per record. Written with {@link MyriadRawOutputFormat}, the output is identical to the per-record pipeline (a
+ * missing line terminator at the end of the output is added).
+ * 
+ * @author Alexander Alexandrov (alexander.alexandrov@tu-berlin.de)
+ */
+@SuppressWarnings("deprecation")
+public class MyriadChunkRecordReader extends MyriadRecordReader {
+
+	private static final byte[] NEWLINE = { '\n' };
+
+	private final MyriadRecord chunk;
+
+	private byte lastByte;
+
+	/**
+	 * Initializes MyriadChunkRecordReader.
+	 * 
+	 * @param split
+	 * @param conf
+	 * @param reporter
+	 */
+	public MyriadChunkRecordReader(MyriadInputSplit split, JobConf conf, Reporter reporter) {
+		// a chunk is large enough to time every call
+		super(split, conf, reporter, 1);
+		this.chunk = new MyriadRecord();
+		this.lastByte = '\n';
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see eu.stratosphere.myriad.driver.hadoop.MyriadRecordReader#read(org.apache.hadoop.io.Text)
+	 */
+	@Override
+	protected boolean read(Text value) throws IOException {
+		if (!this.socketReader.nextChunk(this.chunk)) {
+			if (this.lastByte != '\n') {
+				// terminate the last record like TextOutputFormat would
+				this.lastByte = '\n';
+				value.set(NEWLINE);
+				return true;
+			}
+			return false;
+		}
+		value.set(this.chunk.getBytes(), this.chunk.getOffset(), this.chunk.getLength());
+		this.lastByte = this.chunk.getBytes()[this.chunk.getOffset() + this.chunk.getLength() - 1];
+		return true;
+	}
+}
@@ -0,0 +1,109 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.myriad.driver.hadoop;
+
+import eu.stratosphere.myriad.driver.reader.MyriadGeneratorTimes;
+import eu.stratosphere.myriad.driver.reader.MyriadLaunchTimes;
+import eu.stratosphere.myriad.driver.reader.MyriadLaunchTimes.Phase;
+import eu.stratosphere.myriad.driver.reader.MyriadSocketReader;
+import eu.stratosphere.myriad.driver.reader.MyriadStallTimes;
+
+/**
+ * Per-task counters published by the {@link MyriadRecordReader} and the
+ * {@link eu.stratosphere.myriad.driver.hadoop.mapreduce.MyriadPackedRecordReader}. Times are in milliseconds.
+ * 
+ * @author Alexander Alexandrov (alexander.alexandrov@tu-berlin.de)
+ */
+public enum MyriadCounter {
+	GENERATOR_TASKS,
+	RECORDS_READ,
+	BYTES_READ,
+	RECORDS_DROPPED,
+	SOCKET_WAIT_MILLIS,
+	FRAMING_MILLIS,
+	COLLECTOR_MILLIS,
+	GENERATOR_WALL_MILLIS,
+	GENERATOR_USER_MILLIS,
+	GENERATOR_SYS_MILLIS,
+	PHASE_BIND_MILLIS,
+	PHASE_HEARTBEAT_MILLIS,
+	PHASE_EXEC_MILLIS,
+	PHASE_ACCEPT_MILLIS,
+	PHASE_FIRST_BYTE_MILLIS,
+	PHASE_TRANSFER_MILLIS,
+	PHASE_EXIT_MILLIS,
+	PHASE_CLEANUP_MILLIS,
+	STARTUP_UNDER_100_MILLIS, // startup time histogram, see MyriadLaunchTimes#getStartupBucket()
+	STARTUP_UNDER_1_SEC,
+	STARTUP_UNDER_10_SEC,
+	STARTUP_OVER_10_SEC;
+
+	/**
+	 * Returns the contribution of a finished generator run to this counter.
+	 * 
+	 * @param reader the closed socket reader of the generator run
+	 * @param stallTimes the attribution of the time spent consuming the run
+	 * @return
+	 */
+	public long getValue(MyriadSocketReader reader, MyriadStallTimes stallTimes) {
+		MyriadGeneratorTimes times = reader.getGeneratorTimes();
+		MyriadLaunchTimes launchTimes = reader.getLaunchTimes();
+		switch (this) {
+			case GENERATOR_TASKS:
+				return 1;
+			case RECORDS_READ:
+				return reader.getRecordsRead();
+			case BYTES_READ:
+				return reader.getBytesRead();
+			case RECORDS_DROPPED:
+				return reader.getRecordsDropped();
+			case SOCKET_WAIT_MILLIS:
+				return stallTimes.get(MyriadStallTimes.Part.SOCKET_WAIT);
+			case FRAMING_MILLIS:
+				return stallTimes.get(MyriadStallTimes.Part.FRAMING);
+			case COLLECTOR_MILLIS:
+				return stallTimes.get(MyriadStallTimes.Part.COLLECTOR);
+			case GENERATOR_WALL_MILLIS:
+				return times.getWallTime();
+			case GENERATOR_USER_MILLIS:
+				return times.getUserTime();
+			case GENERATOR_SYS_MILLIS:
+				return times.getSystemTime();
+			case PHASE_BIND_MILLIS:
+				return launchTimes.get(Phase.BIND);
+			case PHASE_HEARTBEAT_MILLIS:
+				return launchTimes.get(Phase.HEARTBEAT);
+			case PHASE_EXEC_MILLIS:
+				return launchTimes.get(Phase.EXEC);
+			case PHASE_ACCEPT_MILLIS:
+				return launchTimes.get(Phase.ACCEPT);
+			case PHASE_FIRST_BYTE_MILLIS:
+				return launchTimes.get(Phase.FIRST_BYTE);
+			case PHASE_TRANSFER_MILLIS:
+				return launchTimes.get(Phase.TRANSFER);
+			case PHASE_EXIT_MILLIS:
+				return launchTimes.get(Phase.EXIT);
+			case PHASE_CLEANUP_MILLIS:
+				return launchTimes.get(Phase.CLEANUP);
+			case STARTUP_UNDER_100_MILLIS:
+			case STARTUP_UNDER_1_SEC:
+			case STARTUP_UNDER_10_SEC:
+			case STARTUP_OVER_10_SEC:
+				return launchTimes.getStartupBucket() == ordinal() - STARTUP_UNDER_100_MILLIS.ordinal() ? 1 : 0;
+			default:
+				return 0;
+		}
+	}
+}
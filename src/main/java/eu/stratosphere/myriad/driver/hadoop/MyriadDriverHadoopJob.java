@@ -21,17 +21,27 @@ import org.apache.hadoop.conf.Configured;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.SequenceFile.CompressionType;
 import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.mapred.Counters;
 import org.apache.hadoop.mapred.FileOutputFormat;
 import org.apache.hadoop.mapred.JobClient;
 import org.apache.hadoop.mapred.JobConf;
 import org.apache.hadoop.mapred.Mapper;
 import org.apache.hadoop.mapred.OutputCollector;
 import org.apache.hadoop.mapred.Reporter;
+import org.apache.hadoop.mapred.RunningJob;
+import org.apache.hadoop.mapred.SequenceFileOutputFormat;
 import org.apache.hadoop.mapred.TextOutputFormat;
 
 import eu.stratosphere.myriad.driver.MyriadDriverJob;
+import eu.stratosphere.myriad.driver.hadoop.mapreduce.MyriadPackedInputFormat;
 import eu.stratosphere.myriad.driver.parameters.DriverJobParameters;
+import eu.stratosphere.myriad.driver.parameters.DriverJobParametersException;
+import eu.stratosphere.myriad.driver.reader.MyriadLaunchTimes;
+import eu.stratosphere.myriad.driver.reader.MyriadRecordFilter;
+import eu.stratosphere.myriad.driver.reader.MyriadStallTimes;
 
 /**
  * @author Alexander Alexandrov (alexander.alexandrov@tu-berlin.de)
@@ -39,7 +49,11 @@ import eu.stratosphere.myriad.driver.parameters.DriverJobParameters;
 @SuppressWarnings("deprecation")
 public class MyriadDriverHadoopJob extends Configured implements MyriadDriverJob {
 
-	private DriverJobParameters parameters;
+	protected final DriverJobParameters parameters;
+
+	private volatile RunningJob runningJob;
+
+	private volatile boolean killed;
 
 	public MyriadDriverHadoopJob(DriverJobParameters parameters) {
 		super(new Configuration());
@@ -48,7 +62,42 @@ public class MyriadDriverHadoopJob extends Configured implements MyriadDriverJob
 
 	@Override
 	public void run() throws IOException {
-		JobClient.runJob(this.createJobConf());
+		long startTime = System.currentTimeMillis();
+		JobConf conf = this.createJobConf();
+		JobClient client = new JobClient(conf);
+		if (this.killed) {
+			throw new IOException(this.getDescription() + " was killed");
+		}
+		RunningJob job = client.submitJob(conf);
+		this.runningJob = job;
+		if (this.killed) {
+			// kill() ran before the job was visible to it
+			job.killJob();
+			this.runningJob = null;
+			throw new IOException(this.getDescription() + " was killed");
+		}
+		try {
+			if (!client.monitorAndPrintJob(conf, job)) {
+				throw new IOException("Job " + job.getJobID() + " failed: " + job.getFailureInfo());
+			}
+		} catch (InterruptedException e) {
+			job.killJob();
+			throw new IOException("Interrupted while waiting for job " + job.getJobID());
+		} finally {
+			this.runningJob = null;
+		}
+		long wallTime = System.currentTimeMillis() - startTime;
+		this.commitOutput();
+		this.printThroughputSummary(job.getCounters(), wallTime);
+	}
+
+	@Override
+	public void kill() throws IOException {
+		this.killed = true;
+		RunningJob job = this.runningJob;
+		if (job != null && !job.isComplete()) {
+			job.killJob();
+		}
 	}
 
 	@Override
@@ -61,7 +110,123 @@ public class MyriadDriverHadoopJob extends Configured implements MyriadDriverJob
 		}
 	}
 
-	private JobConf createJobConf() {
+	/**
+	 * Moves the job output to its final location (nothing to do for a single stage job).
+	 * 
+	 * @throws IOException
+	 */
+	protected void commitOutput() throws IOException {
+	}
+
+	/**
+	 * @return true if the job generates several node partitions per task through the mapreduce API
+	 */
+	protected boolean isPacked() {
+		return this.parameters.getPartitionsPerTask() > 1;
+	}
+
+	/**
+	 * @return the name of the generated stage(s) used in the throughput summary
+	 */
+	protected String getDescription() {
+		return String.format("Stage `%s`", this.parameters.getStage());
+	}
+
+	/**
+	 * Resolves a codec short name (<code>gzip</code>, <code>bzip2</code>, <code>deflate</code>, <code>snappy</code>,
+	 * <code>lz4</code>) or a fully qualified class name to a codec class. Codecs that are not part of the Hadoop core
+	 * are looked up by name so that they are only required if actually used.
+	 * 
+	 * @param conf
+	 * @param codec
+	 * @return
+	 * @throws IOException if the codec is not on the classpath
+	 */
+	static Class<? extends CompressionCodec> getCompressionCodecClass(Configuration conf, String codec)
+			throws IOException {
+		String className = codec;
+		if (codec.equals("gzip")) {
+			className = "org.apache.hadoop.io.compress.GzipCodec";
+		} else if (codec.equals("bzip2")) {
+			className = "org.apache.hadoop.io.compress.BZip2Codec";
+		} else if (codec.equals("deflate")) {
+			className = "org.apache.hadoop.io.compress.DefaultCodec";
+		} else if (codec.equals("snappy")) {
+			className = "org.apache.hadoop.io.compress.SnappyCodec";
+		} else if (codec.equals("lz4")) {
+			className = "org.apache.hadoop.io.compress.Lz4Codec";
+		}
+
+		try {
+			return conf.getClassByName(className).asSubclass(CompressionCodec.class);
+		} catch (ClassNotFoundException e) {
+			throw new IOException("Compression codec `" + codec + "` is not available");
+		} catch (ClassCastException e) {
+			throw new IOException("Class `" + className + "` is not a compression codec");
+		}
+	}
+
+	/**
+	 * Prints the aggregated reader and generator counters of the stage.
+	 * 
+	 * @param counters
+	 * @param wallTime the job wall time (in milliseconds)
+	 */
+	private void printThroughputSummary(Counters counters, long wallTime) {
+		long tasks = Math.max(1, counters.getCounter(MyriadCounter.GENERATOR_TASKS));
+		long records = counters.getCounter(MyriadCounter.RECORDS_READ);
+		long bytes = counters.getCounter(MyriadCounter.BYTES_READ);
+		double seconds = Math.max(1, wallTime) / 1000.0;
+		double megabytes = bytes / 1048576.0;
+
+		System.out.println(String.format("%s: %.1f MB, %d records in %.1f s", this.getDescription(), megabytes,
+			records, seconds));
+		System.out.println(String.format("  total:    %.2f MB/s, %.0f records/s", megabytes / seconds, records
+			/ seconds));
+		System.out.println(String.format("  per node: %.2f MB/s, %.0f records/s (%d nodes)", megabytes / seconds
+			/ tasks, records / seconds / tasks, tasks));
+		System.out.println(String.format("  generator: %.1f s wall, %.1f s user, %.1f s sys",
+			counters.getCounter(MyriadCounter.GENERATOR_WALL_MILLIS) / 1000.0,
+			counters.getCounter(MyriadCounter.GENERATOR_USER_MILLIS) / 1000.0,
+			counters.getCounter(MyriadCounter.GENERATOR_SYS_MILLIS) / 1000.0));
+		long dropped = counters.getCounter(MyriadCounter.RECORDS_DROPPED);
+		if (dropped > 0) {
+			System.out.println(String.format("  pushdown: %d of %d records dropped by the reader", dropped, records));
+		}
+		long socketWait = counters.getCounter(MyriadCounter.SOCKET_WAIT_MILLIS);
+		long framing = counters.getCounter(MyriadCounter.FRAMING_MILLIS);
+		long collector = counters.getCounter(MyriadCounter.COLLECTOR_MILLIS);
+		long exitIdle = counters.getCounter(MyriadCounter.PHASE_EXIT_MILLIS);
+		System.out.println(String.format(
+			"  stalls:    %.1f s socket wait, %.1f s framing, %.1f s collector, %.1f s exit idle (%s)",
+			socketWait / 1000.0, framing / 1000.0, collector / 1000.0, exitIdle / 1000.0,
+			MyriadStallTimes.getVerdict(socketWait, framing, collector, exitIdle)));
+		System.out.println(String.format(
+			"  launch:    %.0f ms bind, %.0f ms heartbeat, %.0f ms exec, %.0f ms accept, %.0f ms first byte (average)",
+			counters.getCounter(MyriadCounter.PHASE_BIND_MILLIS) / (double) tasks,
+			counters.getCounter(MyriadCounter.PHASE_HEARTBEAT_MILLIS) / (double) tasks,
+			counters.getCounter(MyriadCounter.PHASE_EXEC_MILLIS) / (double) tasks,
+			counters.getCounter(MyriadCounter.PHASE_ACCEPT_MILLIS) / (double) tasks,
+			counters.getCounter(MyriadCounter.PHASE_FIRST_BYTE_MILLIS) / (double) tasks));
+		System.out.println(String.format(
+			"  finish:    %.0f ms transfer, %.0f ms exit, %.0f ms cleanup (average)",
+			counters.getCounter(MyriadCounter.PHASE_TRANSFER_MILLIS) / (double) tasks,
+			counters.getCounter(MyriadCounter.PHASE_EXIT_MILLIS) / (double) tasks,
+			counters.getCounter(MyriadCounter.PHASE_CLEANUP_MILLIS) / (double) tasks));
+		MyriadCounter[] buckets = { MyriadCounter.STARTUP_UNDER_100_MILLIS, MyriadCounter.STARTUP_UNDER_1_SEC,
+			MyriadCounter.STARTUP_UNDER_10_SEC, MyriadCounter.STARTUP_OVER_10_SEC };
+		StringBuilder histogram = new StringBuilder("  startup:  ");
+		for (int i = 0; i < buckets.length; i++) {
+			histogram.append(String.format(" %s: %d", MyriadLaunchTimes.getStartupBucketLabel(i),
+				counters.getCounter(buckets[i])));
+		}
+		System.out.println(histogram);
+	}
+
+	protected JobConf createJobConf() throws IOException {
+		// reject a bad projection or predicate before the tasks do
+		MyriadRecordFilter.create(this.parameters);
+
 		// create job
 		JobConf conf = new JobConf(getConf());
 
@@ -74,13 +239,63 @@ public class MyriadDriverHadoopJob extends Configured implements MyriadDriverJob
 		conf.setMapperClass(IdentityMapper.class);
 		conf.setNumReduceTasks(0);
 
-		conf.setInputFormat(MyriadInputFormat.class);
-		conf.setOutputFormat(TextOutputFormat.class);
+		if (this.parameters.getOutputFormat().equals("raw")) {
+			// pass the generator output through in chunks
+			conf.setInputFormat(MyriadChunkInputFormat.class);
+			conf.setOutputFormat(MyriadRawOutputFormat.class);
+		} else if (this.parameters.getOutputFormat().equals("sequence")) {
+			// split the records into typed fields
+			String fields = this.parameters.getFields();
+			if (fields == null) {
+				throw new DriverJobParametersException(String.format(
+					"Missing `generator.%s.fields` property required for the sequence output format",
+					this.parameters.getStage()));
+			}
+			conf.setOutputValueClass(MyriadTupleWritable.class);
+			conf.setMapperClass(TupleMapper.class);
+			if (this.parameters.getBatchRecords() > 0) {
+				conf.setInputFormat(MyriadBatchInputFormat.class);
+			} else {
+				conf.setInputFormat(MyriadInputFormat.class);
+			}
+			conf.setOutputFormat(MyriadSequenceFileOutputFormat.class);
+			MyriadSequenceFileOutputFormat.setFields(conf, fields);
+			MyriadSequenceFileOutputFormat.setFieldDelimiter(conf, this.parameters.getFieldDelimiter());
+		} else if (this.isPacked()) {
+			// generate several node partitions per task through the mapreduce API
+			conf.setUseNewMapper(true);
+			conf.setClass("mapreduce.inputformat.class", MyriadPackedInputFormat.class,
+				org.apache.hadoop.mapreduce.InputFormat.class);
+			conf.setClass("mapreduce.map.class", org.apache.hadoop.mapreduce.Mapper.class,
+				org.apache.hadoop.mapreduce.Mapper.class);
+			conf.setClass("mapreduce.outputformat.class", org.apache.hadoop.mapreduce.lib.output.TextOutputFormat.class,
+				org.apache.hadoop.mapreduce.OutputFormat.class);
+			MyriadPackedInputFormat.setPartitionsPerSplit(conf, this.parameters.getPartitionsPerTask());
+			MyriadPackedInputFormat.setConcurrentPartitions(conf, this.parameters.getConcurrentPartitions());
+		} else {
+			if (this.parameters.getBatchRecords() > 0) {
+				conf.setInputFormat(MyriadBatchInputFormat.class);
+			} else {
+				conf.setInputFormat(MyriadInputFormat.class);
+			}
+			conf.setOutputFormat(TextOutputFormat.class);
+		}
 
 		// input format configuration
 		MyriadInputFormat.setDriverJobParameters(conf, this.parameters);
+		if (this.parameters.getSplitFactor() == 0) {
+			// let the input format split the partitions so that every map slot is used
+			conf.setNumMapTasks(new JobClient(conf).getClusterStatus().getMaxMapTasks());
+		}
 		// output format configuration
 		FileOutputFormat.setOutputPath(conf, new Path(this.parameters.getJobOutputPath()));
+		if (this.parameters.getCompressionCodec() != null) {
+			FileOutputFormat.setCompressOutput(conf, true);
+			FileOutputFormat.setOutputCompressorClass(conf,
+				getCompressionCodecClass(conf, this.parameters.getCompressionCodec()));
+			// compress SequenceFile output in blocks rather than record by record
+			SequenceFileOutputFormat.setOutputCompressionType(conf, CompressionType.BLOCK);
+		}
 
 		return conf;
 	}
@@ -100,4 +315,54 @@ public class MyriadDriverHadoopJob extends Configured implements MyriadDriverJob
 			o.collect(k, v);
 		}
 	}
+
+	/**
+	 * Splits the generated records into typed fields. Handles single records as well as batches of newline separated
+	 * records.
+	 */
+	public static class TupleMapper implements Mapper<NullWritable, Text, NullWritable, MyriadTupleWritable> {
+
+		private MyriadTupleWritable tuple;
+
+		private byte delimiter;
+
+		@Override
+		public void configure(JobConf job) {
+			this.tuple = new MyriadTupleWritable(MyriadTupleWritable.parseTypes(MyriadSequenceFileOutputFormat
+				.getFields(job)));
+			this.delimiter = MyriadSequenceFileOutputFormat.getFieldDelimiter(job);
+		}
+
+		@Override
+		public void close() throws IOException {
+		}
+
+		@Override
+		public void map(NullWritable k, Text v, OutputCollector<NullWritable, MyriadTupleWritable> o, Reporter r)
+				throws IOException {
+			byte[] bytes = v.getBytes();
+			int end = v.getLength();
+			int start = 0;
+			while (start < end) {
+				int lineEnd = start;
+				while (lineEnd < end && bytes[lineEnd] != '\n') {
+					lineEnd++;
+				}
+				int next = lineEnd + 1;
+				if (lineEnd > start && bytes[lineEnd - 1] == '\r') {
+					lineEnd--;
+				}
+
+				try {
+					this.tuple.parse(bytes, start, lineEnd - start, this.delimiter);
+				} catch (IllegalArgumentException e) {
+					throw new IOException("Malformed record `" + Text.decode(bytes, start, lineEnd - start) + "`: "
+						+ e.getMessage());
+				}
+				o.collect(k, this.tuple);
+
+				start = next;
+			}
+		}
+	}
 }
@@ -0,0 +1,206 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.myriad.driver.hadoop;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapred.FileOutputFormat;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.hadoop.mapred.Mapper;
+import org.apache.hadoop.mapred.OutputCollector;
+import org.apache.hadoop.mapred.Reporter;
+import org.apache.hadoop.mapred.TextOutputFormat;
+import org.apache.hadoop.mapred.lib.MultipleOutputs;
+import org.apache.hadoop.mapred.lib.NullOutputFormat;
+
+import eu.stratosphere.myriad.driver.parameters.DriverJobParameters;
+import eu.stratosphere.myriad.driver.parameters.DriverJobParametersException;
+import eu.stratosphere.myriad.driver.reader.MyriadRecordFilter;
+
+/**
+ * A driver job that generates several stages with a single map-only job. Each task runs the data generator for all
+ * stages of its node partition one after another and writes every stage to its own named output. After the job has
+ * finished, the named outputs are moved to the output paths of their stages, so the result has the same layout as
+ * running one {@link MyriadDriverHadoopJob} per stage.
+ * 
+ * @author Alexander Alexandrov (alexander.alexandrov@tu-berlin.de)
+ */
+@SuppressWarnings("deprecation")
+public class MyriadDriverHadoopMultiStageJob extends MyriadDriverHadoopJob {
+
+	private final List<DriverJobParameters> stages;
+
+	public MyriadDriverHadoopMultiStageJob(List<DriverJobParameters> stages) {
+		super(stages.get(0));
+		this.stages = new ArrayList<DriverJobParameters>(stages);
+
+		// stages generated in the same task cannot depend on each other
+		Set<String> names = new HashSet<String>();
+		for (DriverJobParameters p : this.stages) {
+			names.add(p.getStage());
+		}
+		for (DriverJobParameters p : this.stages) {
+			for (String dependency : p.getDependencies()) {
+				if (names.contains(dependency)) {
+					throw new DriverJobParametersException(String.format(
+						"Stage `%s` depends on `%s` and cannot be generated in the same job.", p.getStage(), dependency));
+				}
+			}
+		}
+	}
+
+	@Override
+	public void removeOutputPath() throws IOException {
+		FileSystem fs = FileSystem.get(getConf());
+		for (DriverJobParameters p : this.stages) {
+			Path outputPath = new Path(p.getJobOutputPath());
+			if (fs.exists(outputPath)) {
+				fs.delete(outputPath, true);
+			}
+		}
+
+		Path tempPath = getTemporaryOutputPath();
+		if (fs.exists(tempPath)) {
+			fs.delete(tempPath, true);
+		}
+	}
+
+	@Override
+	protected void commitOutput() throws IOException {
+		FileSystem fs = FileSystem.get(getConf());
+		Path tempPath = getTemporaryOutputPath();
+
+		// move <namedOutput>-m-<partition> files to <stage output path>/part-<partition>
+		for (int i = 0; i < this.stages.size(); i++) {
+			Path outputPath = new Path(this.stages.get(i).getJobOutputPath());
+			fs.mkdirs(outputPath);
+
+			String prefix = namedOutput(i) + "-";
+			for (FileStatus file : fs.listStatus(tempPath)) {
+				String name = file.getPath().getName();
+				if (name.startsWith(prefix)) {
+					String partition = name.substring(name.lastIndexOf('-') + 1);
+					Path target = new Path(outputPath, "part-" + partition);
+					if (!fs.rename(file.getPath(), target)) {
+						throw new IOException("Could not move " + file.getPath() + " to " + target);
+					}
+				}
+			}
+		}
+
+		fs.delete(tempPath, true);
+	}
+
+	@Override
+	protected boolean isPacked() {
+		// the stages are written to named outputs of the mapred API, so the job must not switch to the mapreduce API
+		return false;
+	}
+
+	@Override
+	protected String getDescription() {
+		StringBuilder description = new StringBuilder("Stages");
+		for (int i = 0; i < this.stages.size(); i++) {
+			description.append(i == 0 ? " `" : ", `").append(this.stages.get(i).getStage()).append('`');
+		}
+		return description.toString();
+	}
+
+	@Override
+	protected JobConf createJobConf() throws IOException {
+		// the base class only checks the first stage, so reject a projection or predicate that misses any other one
+		for (DriverJobParameters p : this.stages) {
+			MyriadRecordFilter.create(p);
+		}
+
+		JobConf conf = super.createJobConf();
+
+		String[] stageNames = new String[this.stages.size()];
+		for (int i = 0; i < this.stages.size(); i++) {
+			stageNames[i] = this.stages.get(i).getStage();
+		}
+
+		conf.setMapperClass(MultiStageMapper.class);
+		conf.setInputFormat(MyriadMultiStageInputFormat.class);
+		// all records go to the named outputs
+		conf.setOutputFormat(NullOutputFormat.class);
+
+		// input format configuration
+		MyriadMultiStageInputFormat.setStages(conf, stageNames);
+		// output format configuration
+		FileOutputFormat.setOutputPath(conf, getTemporaryOutputPath());
+		for (int i = 0; i < this.stages.size(); i++) {
+			MultipleOutputs.addNamedOutput(conf, namedOutput(i), TextOutputFormat.class, NullWritable.class,
+				Text.class);
+		}
+
+		return conf;
+	}
+
+	/**
+	 * @return the output path of the job (the stage outputs are moved from there on completion)
+	 */
+	private Path getTemporaryOutputPath() {
+		return new Path(String.format("%s/%s/_multistage", this.parameters.getOutputBase(),
+			this.parameters.getDatasetID()));
+	}
+
+	/**
+	 * @param stageIndex
+	 * @return the named output of the stage with the given index (named outputs must be alphanumeric)
+	 */
+	static String namedOutput(int stageIndex) {
+		return "stage" + stageIndex;
+	}
+
+	public static class MultiStageMapper implements Mapper<IntWritable, Text, NullWritable, Text> {
+
+		private MultipleOutputs outputs;
+
+		private OutputCollector<NullWritable, Text>[] collectors;
+
+		@Override
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		public void configure(JobConf job) {
+			this.outputs = new MultipleOutputs(job);
+			this.collectors = new OutputCollector[MyriadMultiStageInputFormat.getStages(job).length];
+		}
+
+		@Override
+		public void close() throws IOException {
+			this.outputs.close();
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public void map(IntWritable k, Text v, OutputCollector<NullWritable, Text> o, Reporter r) throws IOException {
+			int stage = k.get();
+			if (this.collectors[stage] == null) {
+				this.collectors[stage] = this.outputs.getCollector(namedOutput(stage), r);
+			}
+			this.collectors[stage].collect(NullWritable.get(), v);
+		}
+	}
+}
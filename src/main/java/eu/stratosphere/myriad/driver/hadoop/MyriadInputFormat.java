@@ -17,6 +17,7 @@ package eu.stratosphere.myriad.driver.hadoop;
 import java.io.File;
 import java.io.IOException;
 
+import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.io.NullWritable;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapred.InputFormat;
@@ -27,21 +28,34 @@ import org.apache.hadoop.mapred.Reporter;
 
 import eu.stratosphere.myriad.driver.parameters.DriverJobParameters;
 import eu.stratosphere.myriad.driver.parameters.SocketReaderParameters;
+import eu.stratosphere.myriad.driver.reader.MyriadTransport;
 
 /**
  * @author Alexander Alexandrov (alexander.alexandrov@tu-berlin.de)
  */
 @SuppressWarnings("deprecation")
 public class MyriadInputFormat implements InputFormat<NullWritable, Text> {
+	/**
+	 * Creates one split per virtual node. The splits report no length: the job client orders the splits by length and
+	 * numbers the map tasks (and thereby the part files) in that order, so differing lengths would break the mapping of
+	 * part files to node partitions.
+	 * 
+	 * @see org.apache.hadoop.mapred.InputFormat#getSplits(org.apache.hadoop.mapred.JobConf, int)
+	 */
 	@Override
 	public InputSplit[] getSplits(JobConf conf, int numSplits) throws IOException {
-		// get number of splits
+		// get number of logical node partitions
 		int nodeCount = MyriadInputFormat.getNodeCount(conf);
+		// get number of sub-splits per node partition
+		int splitFactor = MyriadInputFormat.getSplitFactor(conf, nodeCount, numSplits);
 
-		// construct splits
-		InputSplit[] splits = new InputSplit[nodeCount];
-		for (int nodeID = 0; nodeID < nodeCount; nodeID++) {
-			splits[nodeID] = new MyriadInputSplit(nodeID);
+		// construct splits: sub-split j of node i runs as virtual node (i * k + j) out of (N * k), so the sub-splits
+		// of a node partition generate exactly the partition's data in the same order
+		int virtualNodeCount = nodeCount * splitFactor;
+		String[] hosts = MyriadInputFormat.getPreferredHosts(conf);
+		InputSplit[] splits = new InputSplit[virtualNodeCount];
+		for (int virtualNodeID = 0; virtualNodeID < virtualNodeCount; virtualNodeID++) {
+			splits[virtualNodeID] = new MyriadInputSplit(virtualNodeID, virtualNodeCount, hosts);
 		}
 
 		return splits;
@@ -50,14 +64,14 @@ public class MyriadInputFormat implements InputFormat<NullWritable, Text> {
 	@Override
 	public RecordReader<NullWritable, Text> getRecordReader(InputSplit split, JobConf job, Reporter reporter)
 			throws IOException {
-		return new MyriadRecordReader((MyriadInputSplit) split, job);
+		return new MyriadRecordReader((MyriadInputSplit) split, job, reporter);
 	}
 
-	public static void setDGenInstallDir(JobConf conf, String dgenNodePath) {
+	public static void setDGenInstallDir(Configuration conf, String dgenNodePath) {
 		conf.set("mapred.myriad.dgen.node.path", dgenNodePath);
 	}
 
-	public static String getDGenInstallDir(JobConf conf) {
+	public static String getDGenInstallDir(Configuration conf) {
 		String nodePath = conf.get("mapred.myriad.dgen.node.path", "");
 		if (nodePath == "") {
 			throw new IllegalArgumentException("Bad `mapred.myriad.dgen.node.path` parameter value");
@@ -65,11 +79,11 @@ public class MyriadInputFormat implements InputFormat<NullWritable, Text> {
 		return nodePath;
 	}
 
-	public static void setScalingFactor(JobConf conf, float scalingFactor) {
+	public static void setScalingFactor(Configuration conf, float scalingFactor) {
 		conf.setFloat("mapred.myriad.dgen.scaling.factor", scalingFactor);
 	}
 
-	public static float getScalingFactor(JobConf conf) {
+	public static float getScalingFactor(Configuration conf) {
 		float scalingFactor = conf.getFloat("mapred.myriad.dgen.scaling.factor", -1);
 		if (scalingFactor <= 0) {
 			throw new IllegalArgumentException("Bad `mapred.myriad.dgen.scaling.factor` parameter value");
@@ -77,11 +91,11 @@ public class MyriadInputFormat implements InputFormat<NullWritable, Text> {
 		return scalingFactor;
 	}
 
-	public static void setNodeCount(JobConf conf, short nodeCount) {
+	public static void setNodeCount(Configuration conf, short nodeCount) {
 		conf.setInt("mapred.myriad.dgen.node.count", nodeCount);
 	}
 
-	public static int getNodeCount(JobConf conf) {
+	public static int getNodeCount(Configuration conf) {
 		int nodeCount = conf.getInt("mapred.myriad.dgen.node.count", -1);
 		if (nodeCount < 1) {
 			throw new IllegalArgumentException("Bad `mapred.myriad.dgen.node.count` parameter value");
@@ -89,11 +103,44 @@ public class MyriadInputFormat implements InputFormat<NullWritable, Text> {
 		return nodeCount;
 	}
 
-	public static void setStage(JobConf conf, String stage) {
+	public static void setSplitFactor(Configuration conf, int splitFactor) {
+		conf.setInt("mapred.myriad.dgen.split.factor", splitFactor);
+	}
+
+	/**
+	 * Returns the number of sub-splits per node partition. A split factor of 0 derives the factor from the requested
+	 * number of splits. The factor is capped so that the virtual node count still fits into a short.
+	 * 
+	 * @param conf
+	 * @param nodeCount
+	 * @param numSplits
+	 * @return
+	 */
+	public static int getSplitFactor(Configuration conf, int nodeCount, int numSplits) {
+		int splitFactor = conf.getInt("mapred.myriad.dgen.split.factor", 1);
+		if (splitFactor < 0) {
+			throw new IllegalArgumentException("Bad `mapred.myriad.dgen.split.factor` parameter value");
+		}
+		if (splitFactor == 0) {
+			splitFactor = Math.max(1, (numSplits + nodeCount - 1) / nodeCount);
+		}
+		return Math.max(1, Math.min(splitFactor, Short.MAX_VALUE / nodeCount));
+	}
+
+	public static void setPreferredHosts(Configuration conf, String[] hosts) {
+		conf.setStrings("mapred.myriad.dgen.hosts", hosts);
+	}
+
+	public static String[] getPreferredHosts(Configuration conf) {
+		String[] hosts = conf.getStrings("mapred.myriad.dgen.hosts");
+		return hosts != null ? hosts : new String[] { };
+	}
+
+	public static void setStage(Configuration conf, String stage) {
 		conf.set("mapred.myriad.dgen.stage", stage);
 	}
 
-	public static String getStage(JobConf conf) {
+	public static String getStage(Configuration conf) {
 		String stage = conf.get("mapred.myriad.dgen.stage", "");
 		if (stage == "") {
 			throw new IllegalArgumentException("Bad `mapred.myriad.dgen.stage` parameter value");
@@ -101,11 +148,11 @@ public class MyriadInputFormat implements InputFormat<NullWritable, Text> {
 		return stage;
 	}
 
-	public static void setOutputBase(JobConf conf, String outputBase) {
+	public static void setOutputBase(Configuration conf, String outputBase) {
 		conf.set("mapred.myriad.dgen.output.base", outputBase);
 	}
 
-	public static String getOutputBase(JobConf conf) {
+	public static String getOutputBase(Configuration conf) {
 		String nodePath = conf.get("mapred.myriad.dgen.output.base", "");
 		if (nodePath == "") {
 			throw new IllegalArgumentException("Bad `mapred.myriad.dgen.output.base` parameter value");
@@ -113,11 +160,11 @@ public class MyriadInputFormat implements InputFormat<NullWritable, Text> {
 		return nodePath;
 	}
 
-	public static void setDatasetID(JobConf conf, String datasetID) {
+	public static void setDatasetID(Configuration conf, String datasetID) {
 		conf.set("mapred.myriad.dgen.dataset.id", datasetID);
 	}
 
-	public static String getDatasetID(JobConf conf) {
+	public static String getDatasetID(Configuration conf) {
 		String nodePath = conf.get("mapred.myriad.dgen.dataset.id", "");
 		if (nodePath == "") {
 			throw new IllegalArgumentException("Bad `mapred.myriad.dgen.dataset.id` parameter value");
@@ -125,30 +172,187 @@ public class MyriadInputFormat implements InputFormat<NullWritable, Text> {
 		return nodePath;
 	}
 
+	public static void setBatchMaxRecords(Configuration conf, int batchMaxRecords) {
+		conf.setInt("mapred.myriad.reader.batch.records", batchMaxRecords);
+	}
+
+	public static int getBatchMaxRecords(Configuration conf) {
+		int batchMaxRecords = conf.getInt("mapred.myriad.reader.batch.records", 4096);
+		if (batchMaxRecords < 1) {
+			throw new IllegalArgumentException("Bad `mapred.myriad.reader.batch.records` parameter value");
+		}
+		return batchMaxRecords;
+	}
+
+	public static void setBatchMaxBytes(Configuration conf, int batchMaxBytes) {
+		conf.setInt("mapred.myriad.reader.batch.bytes", batchMaxBytes);
+	}
+
+	public static int getBatchMaxBytes(Configuration conf) {
+		int batchMaxBytes = conf.getInt("mapred.myriad.reader.batch.bytes", 262144);
+		if (batchMaxBytes < 1) {
+			throw new IllegalArgumentException("Bad `mapred.myriad.reader.batch.bytes` parameter value");
+		}
+		return batchMaxBytes;
+	}
+
+	public static void setPrefetchBuffers(Configuration conf, int prefetchBuffers) {
+		conf.setInt("mapred.myriad.reader.prefetch.buffers", prefetchBuffers);
+	}
+
+	public static int getPrefetchBuffers(Configuration conf) {
+		int prefetchBuffers = conf.getInt("mapred.myriad.reader.prefetch.buffers", 0);
+		if (prefetchBuffers < 0) {
+			throw new IllegalArgumentException("Bad `mapred.myriad.reader.prefetch.buffers` parameter value");
+		}
+		return prefetchBuffers;
+	}
+
+	public static void setSharedHeartBeat(Configuration conf, boolean sharedHeartBeat) {
+		conf.setBoolean("mapred.myriad.reader.shared.heartbeat", sharedHeartBeat);
+	}
+
+	public static boolean getSharedHeartBeat(Configuration conf) {
+		return conf.getBoolean("mapred.myriad.reader.shared.heartbeat", true);
+	}
+
+	public static void setAcceptTimeout(Configuration conf, long acceptTimeout) {
+		conf.setLong("mapred.myriad.reader.accept.timeout", acceptTimeout);
+	}
+
+	public static long getAcceptTimeout(Configuration conf) {
+		long acceptTimeout = conf.getLong("mapred.myriad.reader.accept.timeout", 300000);
+		if (acceptTimeout < 0) {
+			throw new IllegalArgumentException("Bad `mapred.myriad.reader.accept.timeout` parameter value");
+		}
+		return acceptTimeout;
+	}
+
+	public static void setTransport(Configuration conf, String transport) {
+		conf.set("mapred.myriad.reader.transport", transport);
+	}
+
+	public static String getTransport(Configuration conf) {
+		String transport = conf.get("mapred.myriad.reader.transport", "socket");
+		if (!MyriadTransport.isSupported(transport)) {
+			throw new IllegalArgumentException("Bad `mapred.myriad.reader.transport` parameter value");
+		}
+		return transport;
+	}
+
+	public static void setConnections(Configuration conf, int connections) {
+		conf.setInt("mapred.myriad.reader.connections", connections);
+	}
+
+	public static int getConnections(Configuration conf) {
+		int connections = conf.getInt("mapred.myriad.reader.connections", 1);
+		if (connections < 1 || connections > 1 && !MyriadInputFormat.getTransport(conf).equals("socket")) {
+			throw new IllegalArgumentException("Bad `mapred.myriad.reader.connections` parameter value");
+		}
+		return connections;
+	}
+
+	public static void setStreamMerge(Configuration conf, String streamMerge) {
+		conf.set("mapred.myriad.reader.stream.merge", streamMerge);
+	}
+
+	public static String getStreamMerge(Configuration conf) {
+		// a record reader consumes a single stream, so the connections are always merged
+		String streamMerge = conf.get("mapred.myriad.reader.stream.merge", "arrival");
+		if (!streamMerge.equals("arrival") && !streamMerge.equals("connection")) {
+			throw new IllegalArgumentException("Bad `mapred.myriad.reader.stream.merge` parameter value");
+		}
+		return streamMerge;
+	}
+
+	public static void setProjection(Configuration conf, String projection) {
+		conf.set("mapred.myriad.reader.projection", projection);
+	}
+
+	public static String getProjection(Configuration conf) {
+		return conf.get("mapred.myriad.reader.projection");
+	}
+
+	public static void setPredicate(Configuration conf, String predicate) {
+		conf.set("mapred.myriad.reader.predicate", predicate);
+	}
+
+	public static String getPredicate(Configuration conf) {
+		return conf.get("mapred.myriad.reader.predicate");
+	}
+
 	/**
 	 * @param parameters
 	 */
-	public static void setDriverJobParameters(JobConf conf, DriverJobParameters parameters) {
+	public static void setDriverJobParameters(Configuration conf, DriverJobParameters parameters) {
 		MyriadInputFormat.setDGenInstallDir(conf, parameters.getDGenInstallDir().toString());
 		MyriadInputFormat.setOutputBase(conf, parameters.getOutputBase().toString());
 		MyriadInputFormat.setDatasetID(conf, parameters.getDatasetID());
 		MyriadInputFormat.setStage(conf, parameters.getStage());
 		MyriadInputFormat.setScalingFactor(conf, parameters.getScalingFactor());
 		MyriadInputFormat.setNodeCount(conf, parameters.getNodeCount());
+		MyriadInputFormat.setSplitFactor(conf, parameters.getSplitFactor());
+		if (parameters.getPreferredHosts().length > 0) {
+			MyriadInputFormat.setPreferredHosts(conf, parameters.getPreferredHosts());
+		}
+		if (parameters.getBatchRecords() > 0) {
+			MyriadInputFormat.setBatchMaxRecords(conf, parameters.getBatchRecords());
+			MyriadInputFormat.setBatchMaxBytes(conf, parameters.getBatchBytes());
+		}
+		MyriadInputFormat.setPrefetchBuffers(conf, parameters.getPrefetchBuffers());
+		MyriadInputFormat.setTransport(conf, parameters.getTransport());
+		MyriadInputFormat.setConnections(conf, parameters.getConnections());
+		MyriadInputFormat.setStreamMerge(conf, parameters.getStreamMerge());
+		if (parameters.getProjection() != null) {
+			MyriadInputFormat.setProjection(conf, parameters.getProjection());
+		}
+		if (parameters.getPredicate() != null) {
+			MyriadInputFormat.setPredicate(conf, parameters.getPredicate());
+		}
+	}
+
+	/**
+	 * @param conf
+	 * @param split
+	 * @return
+	 */
+	public static SocketReaderParameters getDriverJobParameters(Configuration conf, MyriadInputSplit split) {
+		return MyriadInputFormat.getDriverJobParameters(conf, (short) split.getNodeCount(), (short) split.getNodeID());
+	}
+
+	/**
+	 * @param conf
+	 * @param nodeCount
+	 * @param nodeID
+	 * @return
+	 */
+	public static SocketReaderParameters getDriverJobParameters(Configuration conf, short nodeCount, short nodeID) {
+		return MyriadInputFormat.getDriverJobParameters(conf, MyriadInputFormat.getStage(conf), nodeCount, nodeID);
 	}
 
 	/**
 	 * @param conf
+	 * @param stage
+	 * @param nodeCount
 	 * @param nodeID
 	 * @return
 	 */
-	public static SocketReaderParameters getDriverJobParameters(JobConf conf, short nodeID) {
+	public static SocketReaderParameters getDriverJobParameters(Configuration conf, String stage, short nodeCount,
+			short nodeID) {
 		File dgenInstallDir = new File(MyriadInputFormat.getDGenInstallDir(conf));
 		File outputBase = new File(MyriadInputFormat.getOutputBase(conf));
 		String datasetID = MyriadInputFormat.getDatasetID(conf);
-		String stage = MyriadInputFormat.getStage(conf);
 		float scalingFactor = MyriadInputFormat.getScalingFactor(conf);
-		short nodeCount = (short) MyriadInputFormat.getNodeCount(conf);
-		return new SocketReaderParameters(dgenInstallDir, outputBase, datasetID, stage, scalingFactor, nodeCount, nodeID);
+		SocketReaderParameters parameters = new SocketReaderParameters(dgenInstallDir, outputBase, datasetID, stage,
+			scalingFactor, nodeCount, nodeID);
+		parameters.setPrefetchBuffers(MyriadInputFormat.getPrefetchBuffers(conf));
+		parameters.setSharedHeartBeat(MyriadInputFormat.getSharedHeartBeat(conf));
+		parameters.setAcceptTimeout(MyriadInputFormat.getAcceptTimeout(conf));
+		parameters.setTransport(MyriadInputFormat.getTransport(conf));
+		parameters.setConnections(MyriadInputFormat.getConnections(conf));
+		parameters.setStreamMerge(MyriadInputFormat.getStreamMerge(conf));
+		parameters.setProjection(MyriadInputFormat.getProjection(conf));
+		parameters.setPredicate(MyriadInputFormat.getPredicate(conf));
+		return parameters;
 	}
 }
\ No newline at end of file
@@ -28,26 +28,45 @@ public class MyriadInputSplit implements InputSplit {
 
 	private int nodeID;
 
+	private int nodeCount;
+
+	private String[] hosts;
+
 	MyriadInputSplit() {
+		this.hosts = new String[] { };
+	}
+
+	/**
+	 * Initializes MyriadInputSplit.
+	 *
+	 * @param nodeID the (virtual) node ID passed to the data generator
+	 * @param nodeCount the (virtual) node count passed to the data generator
+	 */
+	public MyriadInputSplit(int nodeID, int nodeCount) {
+		this(nodeID, nodeCount, new String[] { });
 	}
 
 	/**
 	 * Initializes MyriadInputSplit.
 	 *
-	 * @param nodePath
-	 * @param stage
-	 * @param scalingFactor
-	 * @param nodeCount
-	 * @param nodeID
+	 * @param nodeID the (virtual) node ID passed to the data generator
+	 * @param nodeCount the (virtual) node count passed to the data generator
+	 * @param hosts the preferred hosts for the split (not serialized)
 	 */
-	public MyriadInputSplit(int nodeID) {
+	public MyriadInputSplit(int nodeID, int nodeCount, String[] hosts) {
 		this.nodeID = nodeID;
+		this.nodeCount = nodeCount;
+		this.hosts = hosts;
 	}
 
 	public int getNodeID() {
 		return this.nodeID;
 	}
 
+	public int getNodeCount() {
+		return this.nodeCount;
+	}
+
 	@Override
 	public long getLength() throws IOException {
 		return 0;
@@ -55,16 +74,18 @@ public class MyriadInputSplit implements InputSplit {
 
 	@Override
 	public String[] getLocations() throws IOException {
-		return new String[] { };
+		return this.hosts;
 	}
 
 	@Override
 	public void readFields(DataInput in) throws IOException {
 		this.nodeID = in.readInt();
+		this.nodeCount = in.readInt();
 	}
 
 	@Override
 	public void write(DataOutput out) throws IOException {
 		out.writeInt(this.nodeID);
+		out.writeInt(this.nodeCount);
 	}
 }
\ No newline at end of file
@@ -0,0 +1,58 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.myriad.driver.hadoop;
+
+import java.io.IOException;
+
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapred.InputFormat;
+import org.apache.hadoop.mapred.InputSplit;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.hadoop.mapred.RecordReader;
+import org.apache.hadoop.mapred.Reporter;
+
+/**
+ * An input format that generates several stages per node partition in a single task. The key of each record is the
+ * index of its stage in {@link #getStages(JobConf)}.
+ * 
+ * @author Alexander Alexandrov (alexander.alexandrov@tu-berlin.de)
+ */
+@SuppressWarnings("deprecation")
+public class MyriadMultiStageInputFormat implements InputFormat<IntWritable, Text> {
+
+	@Override
+	public InputSplit[] getSplits(JobConf conf, int numSplits) throws IOException {
+		return new MyriadInputFormat().getSplits(conf, numSplits);
+	}
+
+	@Override
+	public RecordReader<IntWritable, Text> getRecordReader(InputSplit split, JobConf job, Reporter reporter)
+			throws IOException {
+		return new MyriadMultiStageRecordReader((MyriadInputSplit) split, job, reporter);
+	}
+
+	public static void setStages(JobConf conf, String[] stages) {
+		conf.setStrings("mapred.myriad.dgen.stages", stages);
+	}
+
+	public static String[] getStages(JobConf conf) {
+		String[] stages = conf.getStrings("mapred.myriad.dgen.stages");
+		if (stages == null || stages.length == 0) {
+			throw new IllegalArgumentException("Bad `mapred.myriad.dgen.stages` parameter value");
+		}
+		return stages;
+	}
+}
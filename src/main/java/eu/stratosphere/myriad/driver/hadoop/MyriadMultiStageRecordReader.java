@@ -0,0 +1,149 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.myriad.driver.hadoop;
+
+import java.io.IOException;
+
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.hadoop.mapred.RecordReader;
+import org.apache.hadoop.mapred.Reporter;
+
+/**
+ * Runs the data generator for several stages of the same node partition one after another. Each stage is read with
+ * a {@link MyriadRecordReader}, the key holds the index of the current stage.
+ * 
+ * @author Alexander Alexandrov (alexander.alexandrov@tu-berlin.de)
+ */
+@SuppressWarnings("deprecation")
+public class MyriadMultiStageRecordReader implements RecordReader<IntWritable, Text> {
+
+	private final MyriadInputSplit split;
+
+	private final JobConf conf;
+
+	private final Reporter reporter;
+
+	private final String[] stages;
+
+	private final NullWritable nullKey;
+
+	private MyriadRecordReader currentReader;
+
+	private int currentStage;
+
+	private long finishedBytes;
+
+	/**
+	 * Initializes MyriadMultiStageRecordReader.
+	 * 
+	 * @param split
+	 * @param conf
+	 * @param reporter
+	 */
+	public MyriadMultiStageRecordReader(MyriadInputSplit split, JobConf conf, Reporter reporter) {
+		this.split = split;
+		this.conf = conf;
+		this.reporter = reporter;
+		this.stages = MyriadMultiStageInputFormat.getStages(conf);
+		this.nullKey = NullWritable.get();
+		this.currentReader = null;
+		this.currentStage = -1;
+		this.finishedBytes = 0;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.apache.hadoop.mapred.RecordReader#createKey()
+	 */
+	@Override
+	public IntWritable createKey() {
+		return new IntWritable();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.apache.hadoop.mapred.RecordReader#createValue()
+	 */
+	@Override
+	public Text createValue() {
+		return new Text();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.apache.hadoop.mapred.RecordReader#getPos()
+	 */
+	@Override
+	public long getPos() throws IOException {
+		return this.finishedBytes + (this.currentReader != null ? this.currentReader.getPos() : 0);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.apache.hadoop.mapred.RecordReader#getProgress()
+	 */
+	@Override
+	public float getProgress() throws IOException {
+		if (this.currentStage < 0) {
+			return 0.0f;
+		}
+		float stageProgress = this.currentReader != null ? this.currentReader.getProgress() : 1.0f;
+		return Math.min(1.0f, (this.currentStage + stageProgress) / this.stages.length);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.apache.hadoop.mapred.RecordReader#next(java.lang.Object, java.lang.Object)
+	 */
+	@Override
+	public boolean next(IntWritable key, Text value) throws IOException {
+		while (true) {
+			if (this.currentReader != null && this.currentReader.next(this.nullKey, value)) {
+				key.set(this.currentStage);
+				return true;
+			}
+
+			// current stage is exhausted, continue with the next one
+			closeCurrentReader();
+			if (this.currentStage + 1 >= this.stages.length) {
+				return false;
+			}
+			this.currentStage++;
+			this.currentReader = new MyriadRecordReader(MyriadInputFormat.getDriverJobParameters(this.conf,
+				this.stages[this.currentStage], (short) this.split.getNodeCount(), (short) this.split.getNodeID()),
+				this.reporter);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.apache.hadoop.mapred.RecordReader#close()
+	 */
+	@Override
+	public void close() throws IOException {
+		closeCurrentReader();
+	}
+
+	private void closeCurrentReader() throws IOException {
+		if (this.currentReader != null) {
+			this.finishedBytes += this.currentReader.getPos();
+			this.currentReader.close();
+			this.currentReader = null;
+		}
+	}
+}
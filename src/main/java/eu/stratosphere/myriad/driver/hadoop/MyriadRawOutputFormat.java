@@ -0,0 +1,76 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.myriad.driver.hadoop;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.GzipCodec;
+import org.apache.hadoop.mapred.FileOutputFormat;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.hadoop.mapred.RecordWriter;
+import org.apache.hadoop.mapred.Reporter;
+import org.apache.hadoop.util.Progressable;
+import org.apache.hadoop.util.ReflectionUtils;
+
+/**
+ * An output format that writes the bytes of each value as they are, without separators or keys. Used together with
+ * {@link MyriadChunkInputFormat} to stream the generator output into the task output file.
+ * 
+ * @author Alexander Alexandrov (alexander.alexandrov@tu-berlin.de)
+ */
+@SuppressWarnings("deprecation")
+public class MyriadRawOutputFormat extends FileOutputFormat<NullWritable, Text> {
+
+	@Override
+	public RecordWriter<NullWritable, Text> getRecordWriter(FileSystem ignored, JobConf job, String name,
+			Progressable progress) throws IOException {
+		if (!getCompressOutput(job)) {
+			Path file = FileOutputFormat.getTaskOutputPath(job, name);
+			FileSystem fs = file.getFileSystem(job);
+			return new RawRecordWriter(fs.create(file, progress));
+		} else {
+			Class<? extends CompressionCodec> codecClass = getOutputCompressorClass(job, GzipCodec.class);
+			CompressionCodec codec = ReflectionUtils.newInstance(codecClass, job);
+			Path file = FileOutputFormat.getTaskOutputPath(job, name + codec.getDefaultExtension());
+			FileSystem fs = file.getFileSystem(job);
+			return new RawRecordWriter(new DataOutputStream(codec.createOutputStream(fs.create(file, progress))));
+		}
+	}
+
+	protected static class RawRecordWriter implements RecordWriter<NullWritable, Text> {
+
+		private final DataOutputStream out;
+
+		public RawRecordWriter(DataOutputStream out) {
+			this.out = out;
+		}
+
+		@Override
+		public void write(NullWritable key, Text value) throws IOException {
+			this.out.write(value.getBytes(), 0, value.getLength());
+		}
+
+		@Override
+		public void close(Reporter reporter) throws IOException {
+			this.out.close();
+		}
+	}
+}
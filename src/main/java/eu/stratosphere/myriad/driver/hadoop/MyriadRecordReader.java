@@ -20,8 +20,13 @@ import org.apache.hadoop.io.NullWritable;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapred.JobConf;
 import org.apache.hadoop.mapred.RecordReader;
+import org.apache.hadoop.mapred.Reporter;
 
+import eu.stratosphere.myriad.driver.parameters.SocketReaderParameters;
+import eu.stratosphere.myriad.driver.reader.MyriadReadClock;
+import eu.stratosphere.myriad.driver.reader.MyriadRecord;
 import eu.stratosphere.myriad.driver.reader.MyriadSocketReader;
+import eu.stratosphere.myriad.driver.reader.MyriadStallTimes;
 
 /**
  * @author Alexander Alexandrov (alexander.alexandrov@tu-berlin.de)
@@ -29,16 +34,52 @@ import eu.stratosphere.myriad.driver.reader.MyriadSocketReader;
 @SuppressWarnings("deprecation")
 public class MyriadRecordReader implements RecordReader<NullWritable, Text> {
 
-	private MyriadSocketReader socketReader;
+	protected final MyriadSocketReader socketReader;
+
+	private final MyriadRecord record;
+
+	private final Reporter reporter;
+
+	private final MyriadReadClock clock;
 
 	/**
 	 * Initializes MyriadRecordReader.
 	 * 
 	 * @param split
 	 * @param job
+	 * @param reporter
+	 */
+	public MyriadRecordReader(MyriadInputSplit split, JobConf conf, Reporter reporter) {
+		this(split, conf, reporter, MyriadReadClock.SAMPLE_INTERVAL);
+	}
+
+	/**
+	 * Initializes MyriadRecordReader.
+	 * 
+	 * @param split
+	 * @param conf
+	 * @param reporter
+	 * @param sampleInterval the number of values per sampled collector time, see {@link MyriadReadClock}
+	 */
+	protected MyriadRecordReader(MyriadInputSplit split, JobConf conf, Reporter reporter, int sampleInterval) {
+		this(MyriadInputFormat.getDriverJobParameters(conf, split), reporter, sampleInterval);
+	}
+
+	/**
+	 * Initializes MyriadRecordReader.
+	 * 
+	 * @param parameters
+	 * @param reporter
 	 */
-	public MyriadRecordReader(MyriadInputSplit split, JobConf conf) {
-		this.socketReader = new MyriadSocketReader(MyriadInputFormat.getDriverJobParameters(conf, (short) split.getNodeID()));
+	public MyriadRecordReader(SocketReaderParameters parameters, Reporter reporter) {
+		this(parameters, reporter, MyriadReadClock.SAMPLE_INTERVAL);
+	}
+
+	private MyriadRecordReader(SocketReaderParameters parameters, Reporter reporter, int sampleInterval) {
+		this.socketReader = new MyriadSocketReader(parameters);
+		this.record = new MyriadRecord();
+		this.reporter = reporter;
+		this.clock = new MyriadReadClock(sampleInterval);
 	}
 
 	/*
@@ -65,7 +106,7 @@ public class MyriadRecordReader implements RecordReader<NullWritable, Text> {
 	 */
 	@Override
 	public long getPos() throws IOException {
-		return 0;
+		return this.socketReader.getBytesRead();
 	}
 
 	/*
@@ -83,11 +124,28 @@ public class MyriadRecordReader implements RecordReader<NullWritable, Text> {
 	 */
 	@Override
 	public boolean next(NullWritable key, Text value) throws IOException {
-		final String v = this.socketReader.next();
-		if (v == null) {
+		// the time between two calls is spent in the mapper and the output collector
+		this.clock.enter();
+		if (read(value)) {
+			this.clock.leave();
+			return true;
+		}
+		this.clock.stop();
+		return false;
+	}
+
+	/**
+	 * Reads the next value from the socket reader.
+	 * 
+	 * @param value
+	 * @return false if the data generator output has been exhausted
+	 * @throws IOException
+	 */
+	protected boolean read(Text value) throws IOException {
+		if (!this.socketReader.next(this.record)) {
 			return false;
 		}
-		value.set(v);
+		value.set(this.record.getBytes(), this.record.getOffset(), this.record.getLength());
 		return true;
 	}
 
@@ -97,6 +155,22 @@ public class MyriadRecordReader implements RecordReader<NullWritable, Text> {
 	 */
 	@Override
 	public void close() throws IOException {
-		this.socketReader.close();
+		this.clock.stop();
+		try {
+			this.socketReader.close();
+		} finally {
+			this.publishCounters();
+		}
+	}
+
+	/**
+	 * Publishes the reader and generator throughput counters of this task.
+	 */
+	private void publishCounters() {
+		MyriadStallTimes stallTimes = MyriadStallTimes.of(this.socketReader, this.clock.getReaderNanos(),
+			this.clock.getConsumerNanos());
+		for (MyriadCounter counter : MyriadCounter.values()) {
+			this.reporter.incrCounter(counter, counter.getValue(this.socketReader, stallTimes));
+		}
 	}
-}
\ No newline at end of file
+}
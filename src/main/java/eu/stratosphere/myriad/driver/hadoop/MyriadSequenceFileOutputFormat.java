@@ -0,0 +1,103 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.myriad.driver.hadoop;
+
+import java.io.IOException;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.io.SequenceFile.CompressionType;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.DefaultCodec;
+import org.apache.hadoop.mapred.FileOutputFormat;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.hadoop.mapred.RecordWriter;
+import org.apache.hadoop.mapred.Reporter;
+import org.apache.hadoop.mapred.SequenceFileOutputFormat;
+import org.apache.hadoop.util.Progressable;
+import org.apache.hadoop.util.ReflectionUtils;
+
+/**
+ * Writes {@link MyriadTupleWritable} records into SequenceFiles. The schema is stored in the file metadata under the
+ * <code>myriad.fields</code> key, so readers can configure the tuple values without access to the generator
+ * configuration.
+ * 
+ * @author Alexander Alexandrov (alexander.alexandrov@tu-berlin.de)
+ */
+@SuppressWarnings("deprecation")
+public class MyriadSequenceFileOutputFormat extends SequenceFileOutputFormat<NullWritable, MyriadTupleWritable> {
+
+	@Override
+	public RecordWriter<NullWritable, MyriadTupleWritable> getRecordWriter(FileSystem ignored, JobConf job,
+			String name, Progressable progress) throws IOException {
+		Path file = FileOutputFormat.getTaskOutputPath(job, name);
+		FileSystem fs = file.getFileSystem(job);
+
+		CompressionCodec codec = null;
+		CompressionType compressionType = CompressionType.NONE;
+		if (getCompressOutput(job)) {
+			compressionType = getOutputCompressionType(job);
+			Class<? extends CompressionCodec> codecClass = getOutputCompressorClass(job, DefaultCodec.class);
+			codec = ReflectionUtils.newInstance(codecClass, job);
+		}
+
+		SequenceFile.Metadata metadata = new SequenceFile.Metadata();
+		metadata.set(new Text("myriad.fields"), new Text(getFields(job)));
+
+		final SequenceFile.Writer out = SequenceFile.createWriter(fs, job, file, NullWritable.class,
+			MyriadTupleWritable.class, compressionType, codec, progress, metadata);
+
+		return new RecordWriter<NullWritable, MyriadTupleWritable>() {
+
+			@Override
+			public void write(NullWritable key, MyriadTupleWritable value) throws IOException {
+				out.append(key, value);
+			}
+
+			@Override
+			public void close(Reporter reporter) throws IOException {
+				out.close();
+			}
+		};
+	}
+
+	public static void setFields(JobConf conf, String fields) {
+		conf.set("mapred.myriad.output.fields", fields);
+	}
+
+	public static String getFields(Configuration conf) {
+		String fields = conf.get("mapred.myriad.output.fields", "");
+		if (fields.trim().isEmpty()) {
+			throw new IllegalArgumentException("Bad `mapred.myriad.output.fields` parameter value");
+		}
+		return fields;
+	}
+
+	public static void setFieldDelimiter(JobConf conf, char delimiter) {
+		conf.set("mapred.myriad.output.field.delimiter", String.valueOf(delimiter));
+	}
+
+	public static byte getFieldDelimiter(Configuration conf) {
+		String delimiter = conf.get("mapred.myriad.output.field.delimiter", "|");
+		if (delimiter.length() != 1 || delimiter.charAt(0) > 127) {
+			throw new IllegalArgumentException("Bad `mapred.myriad.output.field.delimiter` parameter value");
+		}
+		return (byte) delimiter.charAt(0);
+	}
+}
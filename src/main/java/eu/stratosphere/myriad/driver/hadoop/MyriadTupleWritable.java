@@ -0,0 +1,331 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.myriad.driver.hadoop;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.hadoop.conf.Configurable;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableUtils;
+
+/**
+ * A generated record split into typed fields. The field types are given by a schema of the form
+ * <code>name:type,name:type,...</code> where type is one of <code>int</code>, <code>long</code>, <code>double</code>
+ * and <code>string</code>.
+ * <p>
+ * The binary layout is a null bitmap of <code>(size + 7) / 8</code> bytes followed by the non-null fields: ints and
+ * longs as variable-length integers, doubles as 8 bytes and strings as a variable-length byte count followed by the
+ * UTF-8 bytes. The schema is not part of the serialized form; a tuple created by reflection takes it from the
+ * <code>mapred.myriad.output.fields</code> configuration parameter (see
+ * {@link MyriadSequenceFileOutputFormat#setFields(org.apache.hadoop.mapred.JobConf, String)}).
+ * 
+ * @author Alexander Alexandrov (alexander.alexandrov@tu-berlin.de)
+ */
+public class MyriadTupleWritable implements Writable, Configurable {
+
+	public static final byte INT = 0;
+
+	public static final byte LONG = 1;
+
+	public static final byte DOUBLE = 2;
+
+	public static final byte STRING = 3;
+
+	private Configuration conf;
+
+	private byte[] types;
+
+	private byte[] nulls;
+
+	private long[] numbers;
+
+	private double[] doubles;
+
+	private Text[] strings;
+
+	/**
+	 * Initializes MyriadTupleWritable without a schema. The schema is set by {@link #setConf(Configuration)}.
+	 */
+	public MyriadTupleWritable() {
+	}
+
+	/**
+	 * Initializes MyriadTupleWritable.
+	 * 
+	 * @param types the field types
+	 */
+	public MyriadTupleWritable(byte[] types) {
+		setTypes(types);
+	}
+
+	/**
+	 * Parses the field types of the given schema.
+	 * 
+	 * @param fields the schema (<code>name:type,name:type,...</code>)
+	 * @return
+	 * @throws IllegalArgumentException if the schema is malformed
+	 */
+	public static byte[] parseTypes(String fields) {
+		String[] specs = fields.trim().split("\\s*,\\s*");
+		byte[] types = new byte[specs.length];
+		for (int i = 0; i < specs.length; i++) {
+			int colon = specs[i].lastIndexOf(':');
+			String type = colon < 0 ? "" : specs[i].substring(colon + 1).trim();
+			if (type.equals("int")) {
+				types[i] = INT;
+			} else if (type.equals("long")) {
+				types[i] = LONG;
+			} else if (type.equals("double")) {
+				types[i] = DOUBLE;
+			} else if (type.equals("string")) {
+				types[i] = STRING;
+			} else {
+				throw new IllegalArgumentException("Bad field specification `" + specs[i] + "`");
+			}
+		}
+		return types;
+	}
+
+	/**
+	 * @return the number of fields
+	 */
+	public int size() {
+		return this.types.length;
+	}
+
+	public byte getType(int i) {
+		return this.types[i];
+	}
+
+	public boolean isNull(int i) {
+		return (this.nulls[i >>> 3] & (1 << (i & 7))) != 0;
+	}
+
+	public int getInt(int i) {
+		return (int) this.numbers[i];
+	}
+
+	public long getLong(int i) {
+		return this.numbers[i];
+	}
+
+	public double getDouble(int i) {
+		return this.doubles[i];
+	}
+
+	public Text getString(int i) {
+		return this.strings[i];
+	}
+
+	/**
+	 * Splits the given delimited record into fields. Empty numeric fields are set to null. Bytes after the last field
+	 * (e.g. a trailing delimiter) are ignored.
+	 * 
+	 * @param bytes
+	 * @param offset
+	 * @param length
+	 * @param delimiter
+	 * @throws IllegalArgumentException if the record has too few fields or a numeric field is malformed
+	 */
+	public void parse(byte[] bytes, int offset, int length, byte delimiter) {
+		Arrays.fill(this.nulls, (byte) 0);
+
+		final int end = offset + length;
+		int fieldStart = offset;
+		for (int i = 0; i < this.types.length; i++) {
+			if (fieldStart > end) {
+				throw new IllegalArgumentException("Expected " + this.types.length + " fields, found " + i);
+			}
+
+			int fieldEnd = fieldStart;
+			while (fieldEnd < end && bytes[fieldEnd] != delimiter) {
+				fieldEnd++;
+			}
+
+			if (this.types[i] == STRING) {
+				this.strings[i].set(bytes, fieldStart, fieldEnd - fieldStart);
+			} else if (fieldStart == fieldEnd) {
+				this.nulls[i >>> 3] |= 1 << (i & 7);
+			} else if (this.types[i] == DOUBLE) {
+				this.doubles[i] = parseDouble(bytes, fieldStart, fieldEnd);
+			} else {
+				this.numbers[i] = parseLong(bytes, fieldStart, fieldEnd);
+				if (this.types[i] == INT && this.numbers[i] != (int) this.numbers[i]) {
+					throw new NumberFormatException("Value out of int range in field " + i);
+				}
+			}
+
+			fieldStart = fieldEnd + 1;
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.apache.hadoop.io.Writable#write(java.io.DataOutput)
+	 */
+	@Override
+	public void write(DataOutput out) throws IOException {
+		out.write(this.nulls);
+		for (int i = 0; i < this.types.length; i++) {
+			if (isNull(i)) {
+				continue;
+			}
+			switch (this.types[i]) {
+				case INT:
+					WritableUtils.writeVInt(out, (int) this.numbers[i]);
+					break;
+				case LONG:
+					WritableUtils.writeVLong(out, this.numbers[i]);
+					break;
+				case DOUBLE:
+					out.writeDouble(this.doubles[i]);
+					break;
+				default:
+					this.strings[i].write(out);
+			}
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.apache.hadoop.io.Writable#readFields(java.io.DataInput)
+	 */
+	@Override
+	public void readFields(DataInput in) throws IOException {
+		if (this.types == null) {
+			throw new IOException("Tuple schema is not configured");
+		}
+		in.readFully(this.nulls);
+		for (int i = 0; i < this.types.length; i++) {
+			if (isNull(i)) {
+				continue;
+			}
+			switch (this.types[i]) {
+				case INT:
+					this.numbers[i] = WritableUtils.readVInt(in);
+					break;
+				case LONG:
+					this.numbers[i] = WritableUtils.readVLong(in);
+					break;
+				case DOUBLE:
+					this.doubles[i] = in.readDouble();
+					break;
+				default:
+					this.strings[i].readFields(in);
+			}
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.apache.hadoop.conf.Configurable#setConf(org.apache.hadoop.conf.Configuration)
+	 */
+	@Override
+	public void setConf(Configuration conf) {
+		this.conf = conf;
+		String fields = conf.get("mapred.myriad.output.fields");
+		if (this.types == null && fields != null) {
+			setTypes(parseTypes(fields));
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.apache.hadoop.conf.Configurable#getConf()
+	 */
+	@Override
+	public Configuration getConf() {
+		return this.conf;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		StringBuilder s = new StringBuilder();
+		for (int i = 0; i < this.types.length; i++) {
+			if (i > 0) {
+				s.append('|');
+			}
+			if (isNull(i)) {
+				continue;
+			}
+			switch (this.types[i]) {
+				case INT:
+				case LONG:
+					s.append(this.numbers[i]);
+					break;
+				case DOUBLE:
+					s.append(this.doubles[i]);
+					break;
+				default:
+					s.append(this.strings[i]);
+			}
+		}
+		return s.toString();
+	}
+
+	private void setTypes(byte[] types) {
+		this.types = types;
+		this.nulls = new byte[(types.length + 7) / 8];
+		this.numbers = new long[types.length];
+		this.doubles = new double[types.length];
+		this.strings = new Text[types.length];
+		for (int i = 0; i < types.length; i++) {
+			if (types[i] == STRING) {
+				this.strings[i] = new Text();
+			}
+		}
+	}
+
+	private static long parseLong(byte[] bytes, int start, int end) {
+		boolean negative = bytes[start] == '-';
+		int i = (negative || bytes[start] == '+') ? start + 1 : start;
+		if (i == end) {
+			throw new NumberFormatException("Malformed number `" + new String(bytes, start, end - start) + "`");
+		}
+		long value = 0;
+		for (; i < end; i++) {
+			int digit = bytes[i] - '0';
+			if (digit < 0 || digit > 9 || value < (Long.MIN_VALUE + digit) / 10) {
+				throw new NumberFormatException("Malformed number `" + new String(bytes, start, end - start) + "`");
+			}
+			// accumulate negatively to cover Long.MIN_VALUE
+			value = value * 10 - digit;
+		}
+		if (!negative) {
+			if (value == Long.MIN_VALUE) {
+				throw new NumberFormatException("Malformed number `" + new String(bytes, start, end - start) + "`");
+			}
+			value = -value;
+		}
+		return value;
+	}
+
+	private static double parseDouble(byte[] bytes, int start, int end) {
+		char[] chars = new char[end - start];
+		for (int i = start; i < end; i++) {
+			chars[i - start] = (char) bytes[i];
+		}
+		return Double.parseDouble(new String(chars));
+	}
+}
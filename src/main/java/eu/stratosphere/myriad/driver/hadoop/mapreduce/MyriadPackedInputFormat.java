@@ -0,0 +1,108 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.myriad.driver.hadoop.mapreduce;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.InputFormat;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.JobContext;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+
+import eu.stratosphere.myriad.driver.hadoop.MyriadInputFormat;
+
+/**
+ * Input format for the <code>org.apache.hadoop.mapreduce</code> API. Unlike {@link MyriadInputFormat}, a split can
+ * cover several node partitions which are generated within the same task, so stages with many more partitions than
+ * map slots do not pay the task launch overhead for every partition. The job is configured through the
+ * {@link MyriadInputFormat} setters; the split factor is not supported.
+ * 
+ * @author Alexander Alexandrov (alexander.alexandrov@tu-berlin.de)
+ */
+public class MyriadPackedInputFormat extends InputFormat<NullWritable, Text> {
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.apache.hadoop.mapreduce.InputFormat#getSplits(org.apache.hadoop.mapreduce.JobContext)
+	 */
+	@Override
+	public List<InputSplit> getSplits(JobContext context) throws IOException {
+		return getSplits(context.getConfiguration());
+	}
+
+	/**
+	 * Packs the node partitions of the configured stage into splits.
+	 * 
+	 * @param conf
+	 * @return
+	 */
+	List<InputSplit> getSplits(Configuration conf) {
+		int nodeCount = MyriadInputFormat.getNodeCount(conf);
+		int partitionsPerSplit = MyriadPackedInputFormat.getPartitionsPerSplit(conf);
+
+		// pack consecutive node partitions into a split
+		String[] hosts = MyriadInputFormat.getPreferredHosts(conf);
+		List<InputSplit> splits = new ArrayList<InputSplit>();
+		for (int first = 0; first < nodeCount; first += partitionsPerSplit) {
+			int[] nodeIDs = new int[Math.min(partitionsPerSplit, nodeCount - first)];
+			for (int i = 0; i < nodeIDs.length; i++) {
+				nodeIDs[i] = first + i;
+			}
+			splits.add(new MyriadPackedInputSplit(nodeIDs, nodeCount, hosts));
+		}
+
+		return splits;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.apache.hadoop.mapreduce.InputFormat#createRecordReader(org.apache.hadoop.mapreduce.InputSplit,
+	 * org.apache.hadoop.mapreduce.TaskAttemptContext)
+	 */
+	@Override
+	public RecordReader<NullWritable, Text> createRecordReader(InputSplit split, TaskAttemptContext context) {
+		return new MyriadPackedRecordReader();
+	}
+
+	public static void setPartitionsPerSplit(Configuration conf, int partitionsPerSplit) {
+		conf.setInt("mapred.myriad.dgen.partitions.per.split", partitionsPerSplit);
+	}
+
+	public static int getPartitionsPerSplit(Configuration conf) {
+		int partitionsPerSplit = conf.getInt("mapred.myriad.dgen.partitions.per.split", 1);
+		if (partitionsPerSplit < 1) {
+			throw new IllegalArgumentException("Bad `mapred.myriad.dgen.partitions.per.split` parameter value");
+		}
+		return partitionsPerSplit;
+	}
+
+	public static void setConcurrentPartitions(Configuration conf, int concurrentPartitions) {
+		conf.setInt("mapred.myriad.reader.concurrent.partitions", concurrentPartitions);
+	}
+
+	public static int getConcurrentPartitions(Configuration conf) {
+		int concurrentPartitions = conf.getInt("mapred.myriad.reader.concurrent.partitions", 1);
+		if (concurrentPartitions < 1) {
+			throw new IllegalArgumentException("Bad `mapred.myriad.reader.concurrent.partitions` parameter value");
+		}
+		return concurrentPartitions;
+	}
+}
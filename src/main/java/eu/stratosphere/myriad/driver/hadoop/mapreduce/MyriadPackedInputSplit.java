@@ -0,0 +1,90 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.myriad.driver.hadoop.mapreduce;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.mapreduce.InputSplit;
+
+/**
+ * A split covering several node partitions of a stage.
+ * 
+ * @author Alexander Alexandrov (alexander.alexandrov@tu-berlin.de)
+ */
+public class MyriadPackedInputSplit extends InputSplit implements Writable {
+
+	private int[] nodeIDs;
+
+	private int nodeCount;
+
+	private String[] hosts;
+
+	MyriadPackedInputSplit() {
+		this.nodeIDs = new int[] { };
+		this.hosts = new String[] { };
+	}
+
+	/**
+	 * Initializes MyriadPackedInputSplit.
+	 * 
+	 * @param nodeIDs the node IDs passed to the data generators, in the order in which they are generated
+	 * @param nodeCount the node count passed to the data generators
+	 * @param hosts the preferred hosts for the split (not serialized)
+	 */
+	public MyriadPackedInputSplit(int[] nodeIDs, int nodeCount, String[] hosts) {
+		this.nodeIDs = nodeIDs;
+		this.nodeCount = nodeCount;
+		this.hosts = hosts;
+	}
+
+	public int[] getNodeIDs() {
+		return this.nodeIDs;
+	}
+
+	public int getNodeCount() {
+		return this.nodeCount;
+	}
+
+	@Override
+	public long getLength() throws IOException {
+		return 0;
+	}
+
+	@Override
+	public String[] getLocations() throws IOException {
+		return this.hosts;
+	}
+
+	@Override
+	public void readFields(DataInput in) throws IOException {
+		this.nodeIDs = new int[in.readInt()];
+		for (int i = 0; i < this.nodeIDs.length; i++) {
+			this.nodeIDs[i] = in.readInt();
+		}
+		this.nodeCount = in.readInt();
+	}
+
+	@Override
+	public void write(DataOutput out) throws IOException {
+		out.writeInt(this.nodeIDs.length);
+		for (int nodeID : this.nodeIDs) {
+			out.writeInt(nodeID);
+		}
+		out.writeInt(this.nodeCount);
+	}
+}
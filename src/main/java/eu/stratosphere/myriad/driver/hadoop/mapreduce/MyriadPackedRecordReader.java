@@ -0,0 +1,212 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.myriad.driver.hadoop.mapreduce;
+
+import java.io.IOException;
+import java.util.LinkedList;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.TaskInputOutputContext;
+
+import eu.stratosphere.myriad.driver.hadoop.MyriadCounter;
+import eu.stratosphere.myriad.driver.hadoop.MyriadInputFormat;
+import eu.stratosphere.myriad.driver.reader.MyriadReadClock;
+import eu.stratosphere.myriad.driver.reader.MyriadRecord;
+import eu.stratosphere.myriad.driver.reader.MyriadSocketReader;
+import eu.stratosphere.myriad.driver.reader.MyriadStallTimes;
+
+/**
+ * Reads the node partitions of a {@link MyriadPackedInputSplit} one after the other. Up to
+ * <code>mapred.myriad.reader.concurrent.partitions</code> generators run at the same time: while the records of the
+ * current partition are consumed, the generators of the following partitions are already started and produce into
+ * their socket buffers.
+ * 
+ * @author Alexander Alexandrov (alexander.alexandrov@tu-berlin.de)
+ */
+public class MyriadPackedRecordReader extends RecordReader<NullWritable, Text> {
+
+	private final LinkedList<MyriadSocketReader> socketReaders;
+
+	private final MyriadRecord record;
+
+	private final Text value;
+
+	private Configuration conf;
+
+	private TaskAttemptContext context;
+
+	private MyriadPackedInputSplit split;
+
+	private int concurrentPartitions;
+
+	private int startedPartitions;
+
+	private int finishedPartitions;
+
+	private final MyriadReadClock clock;
+
+	public MyriadPackedRecordReader() {
+		this.socketReaders = new LinkedList<MyriadSocketReader>();
+		this.record = new MyriadRecord();
+		this.value = new Text();
+		this.clock = new MyriadReadClock();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.apache.hadoop.mapreduce.RecordReader#initialize(org.apache.hadoop.mapreduce.InputSplit,
+	 * org.apache.hadoop.mapreduce.TaskAttemptContext)
+	 */
+	@Override
+	public void initialize(InputSplit split, TaskAttemptContext context) throws IOException {
+		this.conf = context.getConfiguration();
+		this.context = context;
+		this.split = (MyriadPackedInputSplit) split;
+		this.concurrentPartitions = MyriadPackedInputFormat.getConcurrentPartitions(this.conf);
+		this.startedPartitions = 0;
+		this.finishedPartitions = 0;
+		this.clock.reset();
+		startGenerators();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.apache.hadoop.mapreduce.RecordReader#nextKeyValue()
+	 */
+	@Override
+	public boolean nextKeyValue() throws IOException {
+		// the time between two calls is spent in the mapper and the output collector
+		this.clock.enter();
+		while (!this.socketReaders.isEmpty()) {
+			MyriadSocketReader socketReader = this.socketReaders.getFirst();
+			if (socketReader.next(this.record)) {
+				this.value.set(this.record.getBytes(), this.record.getOffset(), this.record.getLength());
+				this.clock.leave();
+				return true;
+			}
+			// partition exhausted, continue with the next one
+			this.socketReaders.removeFirst();
+			finish(socketReader);
+			startGenerators();
+			this.clock.enter();
+		}
+		return false;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.apache.hadoop.mapreduce.RecordReader#getCurrentKey()
+	 */
+	@Override
+	public NullWritable getCurrentKey() {
+		return NullWritable.get();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.apache.hadoop.mapreduce.RecordReader#getCurrentValue()
+	 */
+	@Override
+	public Text getCurrentValue() {
+		return this.value;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.apache.hadoop.mapreduce.RecordReader#getProgress()
+	 */
+	@Override
+	public float getProgress() {
+		int partitionCount = this.split.getNodeIDs().length;
+		if (partitionCount == 0) {
+			return 1.0f;
+		}
+		float current = this.socketReaders.isEmpty() ? 0.0f : this.socketReaders.getFirst().getProgress();
+		return (this.finishedPartitions + current) / partitionCount;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.apache.hadoop.mapreduce.RecordReader#close()
+	 */
+	@Override
+	public void close() throws IOException {
+		IOException error = null;
+		while (!this.socketReaders.isEmpty()) {
+			// close the remaining readers even if one of the generators failed
+			try {
+				finish(this.socketReaders.removeFirst());
+			} catch (IOException e) {
+				if (error == null) {
+					error = e;
+				}
+			}
+		}
+		if (error != null) {
+			throw error;
+		}
+	}
+
+	/**
+	 * Starts the generators of the following partitions until the configured number of generators is running.
+	 */
+	private void startGenerators() {
+		int[] nodeIDs = this.split.getNodeIDs();
+		while (this.socketReaders.size() < this.concurrentPartitions && this.startedPartitions < nodeIDs.length) {
+			short nodeID = (short) nodeIDs[this.startedPartitions++];
+			this.socketReaders.add(new MyriadSocketReader(MyriadInputFormat.getDriverJobParameters(this.conf,
+				(short) this.split.getNodeCount(), nodeID)));
+		}
+	}
+
+	/**
+	 * Closes the given socket reader and publishes its counters.
+	 * 
+	 * @param socketReader
+	 * @throws IOException if the generator of the partition failed
+	 */
+	private void finish(MyriadSocketReader socketReader) throws IOException {
+		this.clock.stop();
+		try {
+			socketReader.close();
+		} finally {
+			this.finishedPartitions++;
+			publishCounters(socketReader);
+		}
+	}
+
+	/**
+	 * Publishes the counters of the given closed socket reader.
+	 * 
+	 * @param socketReader
+	 */
+	private void publishCounters(MyriadSocketReader socketReader) {
+		if (this.context instanceof TaskInputOutputContext<?, ?, ?, ?>) {
+			TaskInputOutputContext<?, ?, ?, ?> taskContext = (TaskInputOutputContext<?, ?, ?, ?>) this.context;
+			MyriadStallTimes stallTimes = MyriadStallTimes.of(socketReader, this.clock.getReaderNanos(),
+				this.clock.getConsumerNanos());
+			for (MyriadCounter counter : MyriadCounter.values()) {
+				taskContext.getCounter(counter).increment(counter.getValue(socketReader, stallTimes));
+			}
+		}
+		// the reader and collector times are attributed to the partition that was consumed
+		this.clock.reset();
+	}
+}
@@ -0,0 +1,432 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.myriad.driver.local;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import eu.stratosphere.myriad.driver.MyriadDriverJob;
+import eu.stratosphere.myriad.driver.parameters.DriverJobParameters;
+import eu.stratosphere.myriad.driver.parameters.SocketReaderParameters;
+import eu.stratosphere.myriad.driver.reader.MyriadGeneratorTimes;
+import eu.stratosphere.myriad.driver.reader.MyriadLaunchTimes;
+import eu.stratosphere.myriad.driver.reader.MyriadLaunchTimes.Phase;
+import eu.stratosphere.myriad.driver.reader.MyriadReadClock;
+import eu.stratosphere.myriad.driver.reader.MyriadRecord;
+import eu.stratosphere.myriad.driver.reader.MyriadRecordFilter;
+import eu.stratosphere.myriad.driver.reader.MyriadSocketReader;
+import eu.stratosphere.myriad.driver.reader.MyriadStallTimes;
+import eu.stratosphere.myriad.driver.reader.MyriadStallTimes.Part;
+
+/**
+ * Runs all node partitions of a stage on the local machine without Hadoop. A bounded pool of workers streams the
+ * output of each partition's {@link MyriadSocketReader} into <code>&lt;job output path&gt;/part-NNNNN</code> on the
+ * local file system, producing the same files as the Hadoop job. A partition read over several unmerged connections
+ * is written into one <code>part-NNNNN-CC</code> file per connection instead.
+ * 
+ * @author Alexander Alexandrov (alexander.alexandrov@tu-berlin.de)
+ */
+public class MyriadDriverLocalJob implements MyriadDriverJob {
+
+	private static final int WRITE_BUFFER_SIZE = 4194304; // 4MB
+
+	private final DriverJobParameters parameters;
+
+	private final int workerCount;
+
+	private final AtomicLong recordsRead;
+
+	private final AtomicLong bytesRead;
+
+	private final AtomicLong recordsDropped;
+
+	private final AtomicLong generatorWallTime;
+
+	private final AtomicLong generatorUserTime;
+
+	private final AtomicLong generatorSystemTime;
+
+	private final AtomicLongArray launchPhaseTimes;
+
+	private final AtomicLongArray startupHistogram;
+
+	private final AtomicLongArray stallTimes;
+
+	private volatile ExecutorService executor;
+
+	private volatile boolean killed;
+
+	/**
+	 * Initializes MyriadDriverLocalJob.
+	 * 
+	 * @param parameters
+	 * @param workerCount the maximal number of partitions generated at the same time (0 uses one worker per core)
+	 */
+	public MyriadDriverLocalJob(DriverJobParameters parameters, int workerCount) {
+		this.parameters = parameters;
+		this.workerCount = workerCount > 0 ? workerCount : Runtime.getRuntime().availableProcessors();
+		this.recordsRead = new AtomicLong();
+		this.bytesRead = new AtomicLong();
+		this.recordsDropped = new AtomicLong();
+		this.generatorWallTime = new AtomicLong();
+		this.generatorUserTime = new AtomicLong();
+		this.generatorSystemTime = new AtomicLong();
+		this.launchPhaseTimes = new AtomicLongArray(Phase.values().length);
+		this.startupHistogram = new AtomicLongArray(MyriadLaunchTimes.getStartupBucketCount());
+		this.stallTimes = new AtomicLongArray(Part.values().length);
+	}
+
+	@Override
+	public void removeOutputPath() throws IOException {
+		delete(new File(this.parameters.getJobOutputPath()));
+	}
+
+	@Override
+	public void run() throws IOException {
+		final String stage = this.parameters.getStage();
+		if (this.killed) {
+			throw new IOException("Stage " + stage + " was killed");
+		}
+
+		// reject a bad projection or predicate before starting any generator
+		MyriadRecordFilter.create(this.parameters);
+
+		File outputPath = new File(this.parameters.getJobOutputPath());
+		if (!outputPath.isDirectory() && !outputPath.mkdirs()) {
+			throw new IOException("Could not create output path " + outputPath);
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(this.workerCount, new ThreadFactory() {
+
+			private final AtomicInteger count = new AtomicInteger();
+
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, String.format("myriad-%s-worker-%d", stage, this.count.getAndIncrement()));
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		this.executor = executor;
+		if (this.killed) {
+			// kill() ran before the executor was visible to it
+			executor.shutdownNow();
+			this.executor = null;
+			throw new IOException("Stage " + stage + " was killed");
+		}
+
+		long startTime = System.currentTimeMillis();
+		try {
+			CompletionService<Void> completionService = new ExecutorCompletionService<Void>(executor);
+			List<Future<Void>> futures = new ArrayList<Future<Void>>();
+			try {
+				for (short nodeID = 0; nodeID < this.parameters.getNodeCount(); nodeID++) {
+					futures.add(completionService.submit(new PartitionTask(nodeID, new File(outputPath, String.format(
+						"part-%05d", nodeID)))));
+				}
+			} catch (RejectedExecutionException e) {
+				// kill() shut the executor down while the partitions were submitted
+				throw new IOException("Stage " + stage + " was killed");
+			}
+
+			for (int i = 0; i < futures.size(); i++) {
+				try {
+					completionService.take().get();
+				} catch (ExecutionException e) {
+					// fail fast, the interrupt closes the sockets the other workers are blocked on
+					executor.shutdownNow();
+					if (this.killed) {
+						throw new IOException("Stage " + stage + " was killed");
+					}
+					Throwable cause = e.getCause();
+					IOException ioe = new IOException("Partition of stage " + stage + " failed: " + cause.getMessage());
+					ioe.initCause(cause);
+					throw ioe;
+				} catch (InterruptedException e) {
+					executor.shutdownNow();
+					throw new IOException("Interrupted while waiting for stage " + stage);
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+			this.executor = null;
+		}
+
+		printThroughputSummary(System.currentTimeMillis() - startTime);
+	}
+
+	@Override
+	public void kill() throws IOException {
+		this.killed = true;
+		ExecutorService executor = this.executor;
+		if (executor != null) {
+			executor.shutdownNow();
+		}
+	}
+
+	private void printThroughputSummary(long wallTime) {
+		int nodes = this.parameters.getNodeCount();
+		long records = this.recordsRead.get();
+		double seconds = Math.max(1, wallTime) / 1000.0;
+		double megabytes = this.bytesRead.get() / 1048576.0;
+
+		System.out.println(String.format("Stage `%s` (local, %d workers): %.1f MB, %d records in %.1f s",
+			this.parameters.getStage(), this.workerCount, megabytes, records, seconds));
+		System.out.println(String.format("  total:    %.2f MB/s, %.0f records/s", megabytes / seconds, records
+			/ seconds));
+		System.out.println(String.format("  per node: %.2f MB/s, %.0f records/s (%d nodes)", megabytes / seconds
+			/ nodes, records / seconds / nodes, nodes));
+		System.out.println(String.format("  generator: %.1f s wall, %.1f s user, %.1f s sys",
+			this.generatorWallTime.get() / 1000.0, this.generatorUserTime.get() / 1000.0,
+			this.generatorSystemTime.get() / 1000.0));
+		if (this.recordsDropped.get() > 0) {
+			System.out.println(String.format("  pushdown: %d of %d records dropped by the reader",
+				this.recordsDropped.get(), records));
+		}
+
+		StringBuilder phases = new StringBuilder("  launch:   ");
+		for (Phase phase : Phase.values()) {
+			phases.append(String.format(" %s %.0f ms", phase.name().toLowerCase(), this.launchPhaseTimes.get(phase
+				.ordinal()) / (double) nodes));
+		}
+		System.out.println(phases.append(" (average)"));
+		StringBuilder histogram = new StringBuilder("  startup:  ");
+		for (int i = 0; i < this.startupHistogram.length(); i++) {
+			histogram.append(String.format(" %s: %d", MyriadLaunchTimes.getStartupBucketLabel(i),
+				this.startupHistogram.get(i)));
+		}
+		System.out.println(histogram);
+
+		long socketWait = this.stallTimes.get(Part.SOCKET_WAIT.ordinal());
+		long framing = this.stallTimes.get(Part.FRAMING.ordinal());
+		long writer = this.stallTimes.get(Part.COLLECTOR.ordinal());
+		long exitIdle = this.stallTimes.get(Part.EXIT_IDLE.ordinal());
+		System.out.println(String.format(
+			"  stalls:    %.1f s socket wait, %.1f s framing, %.1f s writer, %.1f s exit idle (%s)",
+			socketWait / 1000.0, framing / 1000.0, writer / 1000.0, exitIdle / 1000.0,
+			MyriadStallTimes.getVerdict(socketWait, framing, writer, exitIdle)));
+	}
+
+	private static void delete(File file) throws IOException {
+		if (file.isDirectory()) {
+			for (File child : file.listFiles()) {
+				delete(child);
+			}
+		}
+		if (file.exists() && !file.delete()) {
+			throw new IOException("Could not delete " + file);
+		}
+	}
+
+	/**
+	 * Generates a single node partition into a local file.
+	 */
+	private final class PartitionTask implements Callable<Void> {
+
+		private final short nodeID;
+
+		private final File outputFile;
+
+		public PartitionTask(short nodeID, File outputFile) {
+			this.nodeID = nodeID;
+			this.outputFile = outputFile;
+		}
+
+		@Override
+		public Void call() throws IOException {
+			DriverJobParameters p = MyriadDriverLocalJob.this.parameters;
+			SocketReaderParameters readerParameters = new SocketReaderParameters(p.getDGenInstallDir(),
+				p.getOutputBase(), p.getDatasetID(), p.getStage(), p.getScalingFactor(), p.getNodeCount(),
+				this.nodeID);
+			readerParameters.setPrefetchBuffers(p.getPrefetchBuffers());
+			readerParameters.setTransport(p.getTransport());
+			readerParameters.setConnections(p.getConnections());
+			readerParameters.setStreamMerge(p.getStreamMerge());
+			readerParameters.setProjection(p.getProjection());
+			readerParameters.setPredicate(p.getPredicate());
+
+			MyriadSocketReader reader = new MyriadSocketReader(readerParameters);
+			StreamTask[] streamTasks = new StreamTask[reader.getStreamCount()];
+			boolean copied = false;
+			try {
+				if (streamTasks.length == 1) {
+					streamTasks[0] = new StreamTask(reader, 0, this.outputFile);
+					streamTasks[0].call();
+				} else {
+					copyStreams(reader, streamTasks);
+				}
+				copied = true;
+			} finally {
+				if (copied) {
+					reader.close(); // fails the partition if the generator exited with an error
+				} else {
+					try {
+						reader.close();
+					} catch (IOException e) {
+						// the copy failure is reported instead
+					}
+				}
+			}
+
+			long readerNanos = 0;
+			long writerNanos = 0;
+			for (StreamTask streamTask : streamTasks) {
+				readerNanos += streamTask.clock.getReaderNanos();
+				writerNanos += streamTask.clock.getConsumerNanos();
+			}
+			MyriadGeneratorTimes times = reader.getGeneratorTimes();
+			MyriadDriverLocalJob.this.recordsRead.addAndGet(reader.getRecordsRead());
+			MyriadDriverLocalJob.this.bytesRead.addAndGet(reader.getBytesRead());
+			MyriadDriverLocalJob.this.recordsDropped.addAndGet(reader.getRecordsDropped());
+			MyriadDriverLocalJob.this.generatorWallTime.addAndGet(times.getWallTime());
+			MyriadDriverLocalJob.this.generatorUserTime.addAndGet(times.getUserTime());
+			MyriadDriverLocalJob.this.generatorSystemTime.addAndGet(times.getSystemTime());
+			MyriadLaunchTimes launchTimes = reader.getLaunchTimes();
+			for (Phase phase : Phase.values()) {
+				MyriadDriverLocalJob.this.launchPhaseTimes.addAndGet(phase.ordinal(), launchTimes.get(phase));
+			}
+			MyriadDriverLocalJob.this.startupHistogram.incrementAndGet(launchTimes.getStartupBucket());
+			MyriadStallTimes stallTimes = MyriadStallTimes.of(reader, readerNanos, writerNanos);
+			for (Part part : Part.values()) {
+				MyriadDriverLocalJob.this.stallTimes.addAndGet(part.ordinal(), stallTimes.get(part));
+			}
+			return null;
+		}
+
+		/**
+		 * Writes the independent streams of the reader in parallel, one thread and one output file per stream.
+		 */
+		private void copyStreams(MyriadSocketReader reader, StreamTask[] streamTasks) throws IOException {
+			List<FutureTask<Void>> futures = new ArrayList<FutureTask<Void>>();
+			for (int i = 0; i < streamTasks.length; i++) {
+				streamTasks[i] = new StreamTask(reader, i, new File(this.outputFile.getPath()
+					+ String.format("-%02d", i)));
+				FutureTask<Void> future = new FutureTask<Void>(streamTasks[i]);
+				Thread t = new Thread(future, String.format("%s-stream-%d", Thread.currentThread().getName(), i));
+				t.setDaemon(true);
+				t.start();
+				futures.add(future);
+			}
+			try {
+				for (FutureTask<Void> future : futures) {
+					future.get();
+				}
+			} catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				IOException ioe = new IOException("Stream of node " + this.nodeID + " failed: " + cause.getMessage());
+				ioe.initCause(cause);
+				throw ioe;
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt(); // the reader stops the generator on close
+				throw new IOException("Interrupted while writing node " + this.nodeID);
+			} finally {
+				for (FutureTask<Void> future : futures) {
+					future.cancel(true);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Writes a single record stream of a node partition into a local file.
+	 */
+	private final class StreamTask implements Callable<Void> {
+
+		private final MyriadSocketReader reader;
+
+		private final int stream;
+
+		private final File outputFile;
+
+		private final boolean raw;
+
+		private final MyriadReadClock clock; // splits the time between the reader and writing the output
+
+		public StreamTask(MyriadSocketReader reader, int stream, File outputFile) {
+			this.reader = reader;
+			this.stream = stream;
+			this.outputFile = outputFile;
+			this.raw = MyriadDriverLocalJob.this.parameters.getOutputFormat().equals("raw");
+			// a chunk is large enough to time every call
+			this.clock = this.raw ? new MyriadReadClock(1) : new MyriadReadClock();
+		}
+
+		@Override
+		public Void call() throws IOException {
+			OutputStream out = new BufferedOutputStream(new FileOutputStream(this.outputFile), WRITE_BUFFER_SIZE);
+			try {
+				if (this.raw) {
+					copyChunks(out);
+				} else {
+					copyRecords(out);
+				}
+			} finally {
+				this.clock.stop();
+				out.close();
+			}
+			return null;
+		}
+
+		/**
+		 * Writes the records one per line, like the Hadoop text output.
+		 */
+		private void copyRecords(OutputStream out) throws IOException {
+			MyriadRecord record = new MyriadRecord();
+			this.clock.enter();
+			while (this.reader.next(this.stream, record)) {
+				this.clock.leave();
+				out.write(record.getBytes(), record.getOffset(), record.getLength());
+				out.write('\n');
+				this.clock.enter();
+			}
+		}
+
+		/**
+		 * Writes the generator output as is, terminating an unterminated last line.
+		 */
+		private void copyChunks(OutputStream out) throws IOException {
+			MyriadRecord chunk = new MyriadRecord();
+			byte lastByte = '\n';
+			this.clock.enter();
+			while (this.reader.nextChunk(this.stream, chunk)) {
+				this.clock.leave();
+				out.write(chunk.getBytes(), chunk.getOffset(), chunk.getLength());
+				lastByte = chunk.getBytes()[chunk.getOffset() + chunk.getLength() - 1];
+				this.clock.enter();
+			}
+			if (lastByte != '\n') {
+				out.write('\n');
+			}
+		}
+	}
+}
@@ -44,6 +44,34 @@ public class DriverJobParameters {
 
 	private final Properties dgenNodeProperties;
 
+	private String[] preferredHosts = new String[] { };
+
+	private int splitFactor = 1; // one split per node partition by default
+
+	private int batchRecords = 0; // batching is disabled by default
+
+	private int batchBytes = 262144; // 256KB
+
+	private int prefetchBuffers = 0; // read-ahead is disabled by default
+
+	private int partitionsPerTask = 1; // one node partition per task by default
+
+	private int concurrentPartitions = 1; // packed partitions are generated back-to-back by default
+
+	private String outputFormat = "text"; // one line per record
+
+	private String compressionCodec = null; // uncompressed output by default
+
+	private String transport = "socket"; // loopback TCP by default
+
+	private int connections = 1; // one generator connection per node by default
+
+	private String streamMerge = "arrival"; // merge the connections in arrival order by default
+
+	private String projection = null; // all fields by default
+
+	private String predicate = null; // all records by default
+
 	public DriverJobParameters(File dgenInstallDir, File outputBase, String datasetID, String stage,
 			float scalingFactor, short nodeCount) throws DriverJobParametersException {
 		this.dgenInstallDir = dgenInstallDir;
@@ -115,10 +143,192 @@ public class DriverJobParameters {
 		return this.nodeCount;
 	}
 
+	public String[] getPreferredHosts() {
+		return this.preferredHosts;
+	}
+
+	public void setPreferredHosts(String[] preferredHosts) {
+		this.preferredHosts = preferredHosts;
+	}
+
+	public int getSplitFactor() {
+		return this.splitFactor;
+	}
+
+	public void setSplitFactor(int splitFactor) {
+		this.splitFactor = splitFactor;
+	}
+
+	public int getBatchRecords() {
+		return this.batchRecords;
+	}
+
+	public void setBatchRecords(int batchRecords) {
+		this.batchRecords = batchRecords;
+	}
+
+	public int getBatchBytes() {
+		return this.batchBytes;
+	}
+
+	public void setBatchBytes(int batchBytes) {
+		this.batchBytes = batchBytes;
+	}
+
+	public int getPrefetchBuffers() {
+		return this.prefetchBuffers;
+	}
+
+	public void setPrefetchBuffers(int prefetchBuffers) {
+		this.prefetchBuffers = prefetchBuffers;
+	}
+
+	public int getPartitionsPerTask() {
+		return this.partitionsPerTask;
+	}
+
+	public void setPartitionsPerTask(int partitionsPerTask) {
+		this.partitionsPerTask = partitionsPerTask;
+	}
+
+	/**
+	 * @return the number of generators of a packed task that run at the same time
+	 */
+	public int getConcurrentPartitions() {
+		return this.concurrentPartitions;
+	}
+
+	public void setConcurrentPartitions(int concurrentPartitions) {
+		this.concurrentPartitions = concurrentPartitions;
+	}
+
+	/**
+	 * @return the output format of the job (<code>text</code>, <code>raw</code> or <code>sequence</code>)
+	 */
+	public String getOutputFormat() {
+		return this.outputFormat;
+	}
+
+	public void setOutputFormat(String outputFormat) {
+		this.outputFormat = outputFormat;
+	}
+
+	/**
+	 * @return the codec name (e.g. <code>gzip</code>) or class name used to compress the output, or null if the output
+	 *         is not compressed
+	 */
+	public String getCompressionCodec() {
+		return this.compressionCodec;
+	}
+
+	public void setCompressionCodec(String compressionCodec) {
+		this.compressionCodec = compressionCodec;
+	}
+
+	/**
+	 * @return the transport between generator and reader (<code>socket</code>, <code>pipe</code>, <code>stdout</code>
+	 *         or <code>ring</code>)
+	 */
+	public String getTransport() {
+		return this.transport;
+	}
+
+	public void setTransport(String transport) {
+		this.transport = transport;
+	}
+
+	/**
+	 * @return the number of connections each generator node opens (more than one requires the <code>socket</code>
+	 *         transport)
+	 */
+	public int getConnections() {
+		return this.connections;
+	}
+
+	public void setConnections(int connections) {
+		this.connections = connections;
+	}
+
+	/**
+	 * @return how the records of several connections are merged (<code>arrival</code> order, <code>connection</code>
+	 *         order or <code>none</code> for one independent record stream per connection)
+	 */
+	public String getStreamMerge() {
+		return this.streamMerge;
+	}
+
+	public void setStreamMerge(String streamMerge) {
+		this.streamMerge = streamMerge;
+	}
+
+	/**
+	 * @return the fields to keep (comma separated names or positions), or null to keep all fields
+	 */
+	public String getProjection() {
+		return this.projection;
+	}
+
+	public void setProjection(String projection) {
+		this.projection = projection;
+	}
+
+	/**
+	 * @return the predicate on the records to keep (e.g. <code>id&lt;1000</code>), or null to keep all records
+	 */
+	public String getPredicate() {
+		return this.predicate;
+	}
+
+	public void setPredicate(String predicate) {
+		this.predicate = predicate;
+	}
+
+	/**
+	 * @return the stages that have to be generated before this stage (property
+	 *         <code>generator.&lt;stage&gt;.dependencies</code>, comma separated)
+	 */
+	public String[] getDependencies() {
+		String dependencies = this.dgenNodeProperties.getProperty(String.format("generator.%s.dependencies",
+			this.stage), "").trim();
+		return dependencies.isEmpty() ? new String[] { } : dependencies.split("\\s*,\\s*");
+	}
+
+	/**
+	 * @return the field layout of the stage records (property <code>generator.&lt;stage&gt;.fields</code>, a comma
+	 *         separated list of <code>name:type</code> pairs), or null if not configured
+	 */
+	public String getFields() {
+		String fields = this.dgenNodeProperties.getProperty(String.format("generator.%s.fields", this.stage), "").trim();
+		return fields.isEmpty() ? null : fields;
+	}
+
+	/**
+	 * @return true if the generator applies projections and predicates itself (property
+	 *         <code>generator.&lt;stage&gt;.pushdown</code>, false by default)
+	 */
+	public boolean isGeneratorPushdown() {
+		return Boolean.parseBoolean(this.dgenNodeProperties.getProperty(String.format("generator.%s.pushdown",
+			this.stage), "false").trim());
+	}
+
+	/**
+	 * @return the field delimiter of the stage records (property <code>generator.&lt;stage&gt;.field-delimiter</code>,
+	 *         '|' by default)
+	 */
+	public char getFieldDelimiter() {
+		String delimiter = this.dgenNodeProperties.getProperty(String.format("generator.%s.field-delimiter",
+			this.stage), "|");
+		if (delimiter.length() != 1) {
+			throw new DriverJobParametersException(String.format("Bad field delimiter `%s` for stage `%s`", delimiter,
+				this.stage));
+		}
+		return delimiter.charAt(0);
+	}
+
 	public String getJobOutputPath() {
 		return String.format("%s/%s/%s", this.outputBase, this.datasetID, getOutputFile(this.stage));
 	}
-	
+
 	private String getOutputFile(String stage) {
 		return this.dgenNodeProperties.getProperty(String.format("generator.%s.output-file", stage), stage);
 	}
@@ -58,6 +58,34 @@ public class DriverJobParametersFamily implements Iterable<DriverJobParameters>
 
 		private final String[] stages;
 
+		private final String[] preferredHosts;
+
+		private final Integer splitFactor;
+
+		private final Integer batchRecords;
+
+		private final Integer batchBytes;
+
+		private final Integer prefetchBuffers;
+
+		private final Integer partitionsPerTask;
+
+		private final Integer concurrentPartitions;
+
+		private final String outputFormat;
+
+		private final String compressionCodec;
+
+		private final String transport;
+
+		private final Integer connections;
+
+		private final String streamMerge;
+
+		private final String projection;
+
+		private final String predicate;
+
 		private int currentStage;
 
 		/**
@@ -72,6 +100,20 @@ public class DriverJobParametersFamily implements Iterable<DriverJobParameters>
 			this.scalingFactor = parsedOptions.getFloat("scaling-factor");
 			this.nodeCount = parsedOptions.getShort("node-count");
 			this.stages = parsedOptions.getStringArray("execute-stage");
+			this.preferredHosts = parsedOptions.getStringArray("hosts");
+			this.splitFactor = parsedOptions.getInteger("split-factor");
+			this.batchRecords = parsedOptions.getInteger("batch-records");
+			this.batchBytes = parsedOptions.getInteger("batch-bytes");
+			this.prefetchBuffers = parsedOptions.getInteger("prefetch-buffers");
+			this.partitionsPerTask = parsedOptions.getInteger("partitions-per-task");
+			this.concurrentPartitions = parsedOptions.getInteger("concurrent-partitions");
+			this.outputFormat = parsedOptions.getString("output-format");
+			this.compressionCodec = parsedOptions.getString("compress");
+			this.transport = parsedOptions.getString("transport");
+			this.connections = parsedOptions.getInteger("connections");
+			this.streamMerge = parsedOptions.getString("stream-merge");
+			this.projection = parsedOptions.getString("project");
+			this.predicate = parsedOptions.getString("filter");
 			this.currentStage = 0;
 		}
 
@@ -90,8 +132,51 @@ public class DriverJobParametersFamily implements Iterable<DriverJobParameters>
 		 */
 		@Override
 		public DriverJobParameters next() {
-			return new DriverJobParameters(this.dgenInstallDir, this.outputBase, this.datasetID,
-				this.stages[this.currentStage++], this.scalingFactor, this.nodeCount);
+			DriverJobParameters parameters = new DriverJobParameters(this.dgenInstallDir, this.outputBase,
+				this.datasetID, this.stages[this.currentStage++], this.scalingFactor, this.nodeCount);
+			if (this.preferredHosts != null) {
+				parameters.setPreferredHosts(this.preferredHosts);
+			}
+			if (this.splitFactor != null) {
+				parameters.setSplitFactor(this.splitFactor);
+			}
+			if (this.batchRecords != null) {
+				parameters.setBatchRecords(this.batchRecords);
+			}
+			if (this.batchBytes != null) {
+				parameters.setBatchBytes(this.batchBytes);
+			}
+			if (this.prefetchBuffers != null) {
+				parameters.setPrefetchBuffers(this.prefetchBuffers);
+			}
+			if (this.partitionsPerTask != null) {
+				parameters.setPartitionsPerTask(this.partitionsPerTask);
+			}
+			if (this.concurrentPartitions != null) {
+				parameters.setConcurrentPartitions(this.concurrentPartitions);
+			}
+			if (this.outputFormat != null) {
+				parameters.setOutputFormat(this.outputFormat);
+			}
+			if (this.compressionCodec != null) {
+				parameters.setCompressionCodec(this.compressionCodec);
+			}
+			if (this.transport != null) {
+				parameters.setTransport(this.transport);
+			}
+			if (this.connections != null) {
+				parameters.setConnections(this.connections);
+			}
+			if (this.streamMerge != null) {
+				parameters.setStreamMerge(this.streamMerge);
+			}
+			if (this.projection != null) {
+				parameters.setProjection(this.projection);
+			}
+			if (this.predicate != null) {
+				parameters.setPredicate(this.predicate);
+			}
+			return parameters;
 		}
 
 		/*
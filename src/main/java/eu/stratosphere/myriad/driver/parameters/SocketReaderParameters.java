@@ -24,6 +24,10 @@ public class SocketReaderParameters extends DriverJobParameters {
 
 	private final short nodeID;
 
+	private boolean sharedHeartBeat = true; // one heartbeat server per JVM by default
+
+	private long acceptTimeout = 300000; // 5 minutes
+
 	/**
 	 * Initializes SocketReaderParameters.
 	 *
@@ -39,4 +43,27 @@ public class SocketReaderParameters extends DriverJobParameters {
 	public short getNodeID() {
 		return this.nodeID;
 	}
+
+	/**
+	 * @return true if the reader registers with the heartbeat server shared by all readers of the JVM (where the host
+	 *         supports it), false if it starts a heartbeat server of its own
+	 */
+	public boolean isSharedHeartBeat() {
+		return this.sharedHeartBeat;
+	}
+
+	public void setSharedHeartBeat(boolean sharedHeartBeat) {
+		this.sharedHeartBeat = sharedHeartBeat;
+	}
+
+	/**
+	 * @return the time (in milliseconds) to wait for the generator to connect (0 waits forever)
+	 */
+	public long getAcceptTimeout() {
+		return this.acceptTimeout;
+	}
+
+	public void setAcceptTimeout(long acceptTimeout) {
+		this.acceptTimeout = acceptTimeout;
+	}
 }
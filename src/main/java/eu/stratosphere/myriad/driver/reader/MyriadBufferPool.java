@@ -0,0 +1,70 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.myriad.driver.reader;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * A process-wide pool of reusable I/O buffers. Readers created one after another in the same JVM (e.g. with JVM reuse
+ * enabled) recycle their buffers instead of allocating fresh ones for each node partition.
+ * 
+ * The pooled buffers are array-backed, so that framed records can be exposed as (array, offset, length) views and
+ * handed to Hadoop's Text without an additional copy.
+ * 
+ * @author Alexander Alexandrov (alexander.alexandrov@tu-berlin.de)
+ */
+public final class MyriadBufferPool {
+
+	private static final int MAX_POOLED_BUFFERS = 16;
+
+	private static final ConcurrentLinkedQueue<ByteBuffer> pool = new ConcurrentLinkedQueue<ByteBuffer>();
+
+	private MyriadBufferPool() {
+	}
+
+	/**
+	 * Returns a cleared buffer with at least the given capacity.
+	 * 
+	 * @param capacity
+	 * @return
+	 */
+	public static ByteBuffer acquire(int capacity) {
+		// pick a pooled buffer if one is large enough, otherwise allocate a new one
+		for (int i = 0; i < MAX_POOLED_BUFFERS; i++) {
+			ByteBuffer buffer = pool.poll();
+			if (buffer == null) {
+				break;
+			}
+			if (buffer.capacity() >= capacity) {
+				buffer.clear();
+				return buffer;
+			}
+			// too small, drop it
+		}
+		return ByteBuffer.allocate(capacity);
+	}
+
+	/**
+	 * Returns a buffer to the pool.
+	 * 
+	 * @param buffer
+	 */
+	public static void release(ByteBuffer buffer) {
+		if (buffer != null && pool.size() < MAX_POOLED_BUFFERS) {
+			pool.offer(buffer);
+		}
+	}
+}
@@ -0,0 +1,127 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.myriad.driver.reader;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Generator process times as recorded by the <code>time --output=...</code> wrapper around the data generator.
+ * 
+ * @author Alexander Alexandrov (alexander.alexandrov@tu-berlin.de)
+ */
+public class MyriadGeneratorTimes {
+
+	// default GNU time format, e.g. "12.34user 0.56system 0:13.01elapsed 99%CPU (...)"
+	private static final Pattern TIME_PATTERN = Pattern
+		.compile("([0-9.]+)user\\s+([0-9.]+)system\\s+([0-9:.]+)elapsed");
+
+	private final long wallTime;
+
+	private final long userTime;
+
+	private final long systemTime;
+
+	/**
+	 * Initializes MyriadGeneratorTimes.
+	 * 
+	 * @param wallTime
+	 * @param userTime
+	 * @param systemTime
+	 */
+	public MyriadGeneratorTimes(long wallTime, long userTime, long systemTime) {
+		this.wallTime = wallTime;
+		this.userTime = userTime;
+		this.systemTime = systemTime;
+	}
+
+	/**
+	 * @return the elapsed real time of the generator process (in milliseconds)
+	 */
+	public long getWallTime() {
+		return this.wallTime;
+	}
+
+	/**
+	 * @return the user CPU time of the generator process (in milliseconds)
+	 */
+	public long getUserTime() {
+		return this.userTime;
+	}
+
+	/**
+	 * @return the system CPU time of the generator process (in milliseconds)
+	 */
+	public long getSystemTime() {
+		return this.systemTime;
+	}
+
+	/**
+	 * Parses the output of the <code>time</code> wrapper. Returns zero times if the file does not exist or cannot be
+	 * parsed.
+	 * 
+	 * @param timeOutput
+	 * @return
+	 */
+	public static MyriadGeneratorTimes parse(File timeOutput) {
+		if (!timeOutput.isFile()) {
+			return new MyriadGeneratorTimes(0, 0, 0);
+		}
+
+		try {
+			BufferedReader reader = new BufferedReader(new FileReader(timeOutput));
+			try {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					Matcher m = TIME_PATTERN.matcher(line);
+					if (m.find()) {
+						return new MyriadGeneratorTimes(parseElapsed(m.group(3)), parseSeconds(m.group(1)),
+							parseSeconds(m.group(2)));
+					}
+				}
+			} finally {
+				reader.close();
+			}
+		} catch (IOException e) {
+			// ignore unreadable time output
+		}
+		return new MyriadGeneratorTimes(0, 0, 0);
+	}
+
+	/**
+	 * @param seconds a decimal number of seconds
+	 * @return the value in milliseconds
+	 */
+	private static long parseSeconds(String seconds) {
+		return (long) (Double.parseDouble(seconds) * 1000.0);
+	}
+
+	/**
+	 * @param elapsed a [[h:]m:]s.ss formatted duration
+	 * @return the value in milliseconds
+	 */
+	private static long parseElapsed(String elapsed) {
+		String[] parts = elapsed.split(":");
+		double seconds = 0;
+		for (String part : parts) {
+			seconds = seconds * 60 + Double.parseDouble(part);
+		}
+		return (long) (seconds * 1000.0);
+	}
+}
@@ -0,0 +1,230 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.myriad.driver.reader;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.mortbay.jetty.Request;
+import org.mortbay.jetty.Server;
+import org.mortbay.jetty.handler.AbstractHandler;
+import org.mortbay.jetty.nio.SelectChannelConnector;
+import org.mortbay.thread.QueuedThreadPool;
+
+/**
+ * A heartbeat endpoint shared by all socket readers of a JVM. It is started once, on first use, and receives the
+ * <code>HEAD ?progress=</code> calls of every data generator process.
+ * <p>
+ * The generator command line only carries the heartbeat host and port, so readers are told apart by the host: each
+ * registered reader is assigned its own loopback address (from 127.1.0.1 upwards), the server listens on all
+ * addresses and routes a request by the local address it was received on. This relies on the whole 127.0.0.0/8
+ * block being routed to the loopback interface, as it is on Linux. Whether it is, is probed once per JVM (see
+ * {@link #isSupported()}); elsewhere the readers fall back to a heartbeat server of their own.
+ * 
+ * @author Alexander Alexandrov (alexander.alexandrov@tu-berlin.de)
+ */
+public class MyriadHeartBeatServer {
+
+	private static final int ADDRESS_COUNT = 254 * 256; // 127.1.[0-255].[1-254]
+
+	private static final int PROBE_TIMEOUT = 1000; // 1 second
+
+	private static MyriadHeartBeatServer shared;
+
+	private static Boolean supported; // probed on first use
+
+	private final Server server;
+
+	private final int port;
+
+	private final ConcurrentHashMap<String, MyriadProgressTracker> trackers;
+
+	private final AtomicInteger nextAddress;
+
+	/**
+	 * Initializes MyriadHeartBeatServer and starts the HTTP server on a free port.
+	 * 
+	 * @throws Exception
+	 */
+	private MyriadHeartBeatServer() throws Exception {
+		this.trackers = new ConcurrentHashMap<String, MyriadProgressTracker>();
+		this.nextAddress = new AtomicInteger();
+
+		// a few daemon threads suffice, heartbeats are rare and handled in microseconds
+		QueuedThreadPool threadPool = new QueuedThreadPool();
+		threadPool.setName("myriad-heartbeat");
+		threadPool.setMinThreads(1);
+		threadPool.setMaxThreads(4);
+		threadPool.setDaemon(true);
+
+		SelectChannelConnector connector = new SelectChannelConnector();
+		connector.setPort(0);
+
+		org.mortbay.log.Log.setLog(null); // disable the jetty log
+		this.server = new Server();
+		this.server.setThreadPool(threadPool);
+		this.server.addConnector(connector);
+		this.server.setHandler(new HeartBeatHandler());
+		this.server.start();
+		this.port = connector.getLocalPort();
+	}
+
+	/**
+	 * @return the heartbeat server of this JVM, started on first use
+	 * @throws IOException if the server could not be started
+	 */
+	public static synchronized MyriadHeartBeatServer getShared() throws IOException {
+		if (shared == null) {
+			try {
+				shared = new MyriadHeartBeatServer();
+			} catch (Exception e) {
+				IOException ioe = new IOException("Could not start the shared heartbeat server");
+				ioe.initCause(e);
+				throw ioe;
+			}
+		}
+		return shared;
+	}
+
+	/**
+	 * @return true if connections to the per-reader loopback addresses arrive at those addresses on this host
+	 */
+	public static synchronized boolean isSupported() {
+		if (supported == null) {
+			supported = probe();
+		}
+		return supported;
+	}
+
+	/**
+	 * Connects to a listening socket through the first per-reader address and checks the address the connection
+	 * arrives at.
+	 * 
+	 * @return
+	 */
+	private static boolean probe() {
+		ServerSocket server = null;
+		Socket client = null;
+		Socket accepted = null;
+		try {
+			InetAddress address = InetAddress.getByName("127.1.0.1");
+			server = new ServerSocket(0);
+			server.setSoTimeout(PROBE_TIMEOUT);
+			client = new Socket();
+			client.connect(new InetSocketAddress(address, server.getLocalPort()), PROBE_TIMEOUT);
+			accepted = server.accept();
+			return address.equals(accepted.getLocalAddress());
+		} catch (IOException e) {
+			return false;
+		} finally {
+			close(accepted);
+			close(client);
+			if (server != null) {
+				try {
+					server.close();
+				} catch (IOException e) {
+					// ignore
+				}
+			}
+		}
+	}
+
+	private static void close(Socket socket) {
+		if (socket != null) {
+			try {
+				socket.close();
+			} catch (IOException e) {
+				// ignore
+			}
+		}
+	}
+
+	/**
+	 * @return the port the server listens on
+	 */
+	public int getPort() {
+		return this.port;
+	}
+
+	/**
+	 * Registers a progress tracker for the heartbeats of one generator process.
+	 * 
+	 * @param tracker
+	 * @return the heartbeat host to pass to the generator process
+	 */
+	public String register(MyriadProgressTracker tracker) {
+		for (int i = 0; i < ADDRESS_COUNT; i++) {
+			int n = (this.nextAddress.getAndIncrement() & Integer.MAX_VALUE) % ADDRESS_COUNT;
+			String address = String.format("127.1.%d.%d", n / 254, n % 254 + 1);
+			if (this.trackers.putIfAbsent(address, tracker) == null) {
+				return address;
+			}
+		}
+		throw new IllegalStateException("No free heartbeat address");
+	}
+
+	/**
+	 * Removes the registration for the given heartbeat host.
+	 * 
+	 * @param address
+	 */
+	public void unregister(String address) {
+		this.trackers.remove(address);
+	}
+
+	private class HeartBeatHandler extends AbstractHandler {
+
+		/*
+		 * (non-Javadoc)
+		 * @see org.mortbay.jetty.Handler#handle(java.lang.String, javax.servlet.http.HttpServletRequest,
+		 * javax.servlet.http.HttpServletResponse, int)
+		 */
+		@Override
+		public void handle(String target, HttpServletRequest request, HttpServletResponse response, int dispatch)
+				throws IOException, ServletException {
+			if ("HEAD".equals(request.getMethod())) {
+				MyriadProgressTracker tracker = MyriadHeartBeatServer.this.trackers.get(request.getLocalAddr());
+
+				float progress;
+				try {
+					progress = Float.parseFloat(request.getParameter("progress"));
+				} catch (NumberFormatException e) {
+					progress = -1;
+				} catch (NullPointerException e) {
+					progress = -1;
+				}
+
+				if (tracker != null && progress != -1) {
+					tracker.update(progress);
+				}
+
+				// write the response
+				response.setStatus(tracker != null ? HttpServletResponse.SC_OK : HttpServletResponse.SC_NOT_FOUND);
+				if (request instanceof Request) {
+					((Request) request).setHandled(true);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,124 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.myriad.driver.reader;
+
+/**
+ * The durations of the phases of a generator run, as observed by the {@link MyriadSocketReader}. Startup phases are
+ * measured from the reader's point of view: the time until the generator connects includes the process startup.
+ * 
+ * @author Alexander Alexandrov (alexander.alexandrov@tu-berlin.de)
+ */
+public class MyriadLaunchTimes {
+
+	public enum Phase {
+		BIND, // opening the reader server socket
+		HEARTBEAT, // starting or registering with the heartbeat server
+		EXEC, // starting the generator process
+		ACCEPT, // until the generator connected
+		FIRST_BYTE, // from the connection to the first byte received
+		TRANSFER, // from the first byte to the end of the stream
+		EXIT, // from the end of the stream to the process exit
+		CLEANUP // closing the process, sockets and heartbeat registration
+	}
+
+	/**
+	 * Upper bounds (in milliseconds) of the startup time histogram buckets. The last bucket is unbounded.
+	 */
+	private static final long[] STARTUP_BUCKET_LIMITS = { 100, 1000, 10000 };
+
+	private static final String[] STARTUP_BUCKET_LABELS = { "< 100 ms", "< 1 s", "< 10 s", ">= 10 s" };
+
+	private final long[] nanos;
+
+	public MyriadLaunchTimes() {
+		this.nanos = new long[Phase.values().length];
+	}
+
+	/**
+	 * Records the duration of a phase given by its start and end time (in nanoseconds). Phases that did not complete
+	 * (start or end time 0) keep a zero duration.
+	 * 
+	 * @param phase
+	 * @param startNanos
+	 * @param endNanos
+	 */
+	void set(Phase phase, long startNanos, long endNanos) {
+		if (startNanos != 0 && endNanos != 0) {
+			this.nanos[phase.ordinal()] = Math.max(0, endNanos - startNanos);
+		}
+	}
+
+	/**
+	 * @param phase
+	 * @return the duration of the given phase in milliseconds
+	 */
+	public long get(Phase phase) {
+		return this.nanos[phase.ordinal()] / 1000000L;
+	}
+
+	/**
+	 * @return the time (in milliseconds) from opening the reader until the first byte was received
+	 */
+	public long getStartupTime() {
+		long startup = 0;
+		for (Phase phase : new Phase[] { Phase.BIND, Phase.HEARTBEAT, Phase.EXEC, Phase.ACCEPT, Phase.FIRST_BYTE }) {
+			startup += this.nanos[phase.ordinal()];
+		}
+		return startup / 1000000L;
+	}
+
+	/**
+	 * @return the index of the startup time histogram bucket of this run
+	 */
+	public int getStartupBucket() {
+		long startup = getStartupTime();
+		int bucket = 0;
+		while (bucket < STARTUP_BUCKET_LIMITS.length && startup >= STARTUP_BUCKET_LIMITS[bucket]) {
+			bucket++;
+		}
+		return bucket;
+	}
+
+	/**
+	 * @return the number of startup time histogram buckets
+	 */
+	public static int getStartupBucketCount() {
+		return STARTUP_BUCKET_LABELS.length;
+	}
+
+	/**
+	 * @param bucket
+	 * @return a label for the given startup time histogram bucket
+	 */
+	public static String getStartupBucketLabel(int bucket) {
+		return STARTUP_BUCKET_LABELS[bucket];
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		StringBuilder s = new StringBuilder();
+		for (Phase phase : Phase.values()) {
+			if (s.length() > 0) {
+				s.append(", ");
+			}
+			s.append(phase.name().toLowerCase()).append(' ').append(get(phase)).append(" ms");
+		}
+		return s.toString();
+	}
+}
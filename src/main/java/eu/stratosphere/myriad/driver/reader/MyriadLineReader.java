@@ -0,0 +1,276 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.myriad.driver.reader;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * A byte-oriented line reader. Bytes are read from a channel into a pooled buffer, lines are framed directly in that
+ * buffer and exposed as {@link MyriadRecord} views, so no per-record objects are allocated and no charset decoding
+ * takes place.
+ * 
+ * Lines are terminated by '\n' (a preceding '\r' is stripped). A trailing line without terminator is returned as the
+ * last record.
+ * 
+ * @author Alexander Alexandrov (alexander.alexandrov@tu-berlin.de)
+ */
+public class MyriadLineReader {
+
+	private static final byte LF = '\n';
+
+	private static final byte CR = '\r';
+
+	private final ReadableByteChannel channel;
+
+	private ByteBuffer buffer;
+
+	private byte[] bytes; // the array backing the current buffer
+
+	private int start; // first unconsumed byte in the buffer
+
+	private int end; // first invalid byte in the buffer
+
+	private boolean eof;
+
+	private long bytesRead;
+
+	private long recordsRead;
+
+	private long readWaitNanos;
+
+	private long firstByteNanos; // time the first bytes were received (0 if none yet)
+
+	private long eofNanos; // time the end of the stream was reached (0 if not yet)
+
+	/**
+	 * Initializes MyriadLineReader.
+	 * 
+	 * @param channel
+	 * @param bufferSize
+	 */
+	public MyriadLineReader(ReadableByteChannel channel, int bufferSize) {
+		this.channel = channel;
+		this.buffer = MyriadBufferPool.acquire(bufferSize);
+		this.bytes = this.buffer.array();
+		this.start = 0;
+		this.end = 0;
+		this.eof = false;
+	}
+
+	/**
+	 * Frames the next line and points the given record view to it.
+	 * 
+	 * @param record
+	 * @return false if the end of the stream has been reached
+	 * @throws IOException
+	 */
+	public boolean readLine(MyriadRecord record) throws IOException {
+		int scan = this.start;
+		while (true) {
+			int lineEnd = findLineEnd(scan);
+			if (lineEnd >= 0) {
+				record.set(this.bytes, this.start, lineEnd - this.start);
+				this.start = skipTerminator(lineEnd);
+				this.recordsRead++;
+				return true;
+			}
+
+			if (this.eof) {
+				return false;
+			}
+
+			// no terminator in the buffered bytes, read more input and continue scanning where we stopped
+			int scanned = this.end - this.start;
+			fill();
+			scan = this.start + scanned;
+		}
+	}
+
+	/**
+	 * Frames as many lines as fit into the given batch. Input is read only until the first line is complete, the
+	 * remaining lines are taken from what is already buffered.
+	 * 
+	 * @param batch
+	 * @return false if the end of the stream has been reached
+	 * @throws IOException
+	 */
+	public boolean readLines(MyriadRecordBatch batch) throws IOException {
+		int scan = this.start;
+		while (true) {
+			int lineEnd = findLineEnd(scan);
+			if (lineEnd >= 0) {
+				batch.reset(this.bytes);
+				do {
+					batch.add(this.start, lineEnd - this.start);
+					this.start = skipTerminator(lineEnd);
+				} while ((lineEnd = findLineEnd(this.start)) >= 0 && batch.accepts(lineEnd));
+				this.recordsRead += batch.size();
+				return true;
+			}
+
+			if (this.eof) {
+				batch.reset(this.bytes);
+				return false;
+			}
+
+			int scanned = this.end - this.start;
+			fill();
+			scan = this.start + scanned;
+		}
+	}
+
+	/**
+	 * Points the given view to all bytes buffered so far (reading more input if the buffer is empty), ignoring line
+	 * boundaries. Used to pass the generator output through without framing records.
+	 * 
+	 * @param chunk
+	 * @return false if the end of the stream has been reached
+	 * @throws IOException
+	 */
+	public boolean readChunk(MyriadRecord chunk) throws IOException {
+		while (this.start == this.end && !this.eof) {
+			// the buffer is drained, refill it from the front
+			this.start = 0;
+			this.end = 0;
+			fill();
+		}
+		if (this.start == this.end) {
+			return false;
+		}
+		chunk.set(this.bytes, this.start, this.end - this.start);
+		this.start = this.end;
+		return true;
+	}
+
+	/**
+	 * @return the number of bytes read from the channel
+	 */
+	public long getBytesRead() {
+		return this.bytesRead;
+	}
+
+	/**
+	 * @return the number of framed records
+	 */
+	public long getRecordsRead() {
+		return this.recordsRead;
+	}
+
+	/**
+	 * @return the time (in nanoseconds) spent blocked on reads from the channel
+	 */
+	public long getReadWaitNanos() {
+		return this.readWaitNanos;
+	}
+
+	/**
+	 * @return the {@link System#nanoTime()} when the first bytes were received, or 0
+	 */
+	public long getFirstByteNanos() {
+		return this.firstByteNanos;
+	}
+
+	/**
+	 * @return the {@link System#nanoTime()} when the end of the stream was reached, or 0
+	 */
+	public long getEofNanos() {
+		return this.eofNanos;
+	}
+
+	/**
+	 * Closes the underlying channel and returns the buffer to the pool. Previously returned record views become
+	 * invalid.
+	 * 
+	 * @throws IOException
+	 */
+	public void close() throws IOException {
+		MyriadBufferPool.release(this.buffer);
+		this.buffer = null;
+		this.bytes = null;
+		this.channel.close();
+	}
+
+	/**
+	 * Returns the end of the current line (excluding a trailing '\r') or -1 if no complete line is buffered. At the end
+	 * of the stream an unterminated tail counts as a complete line.
+	 * 
+	 * @param scan the position where to resume the terminator search
+	 * @return
+	 */
+	private int findLineEnd(int scan) {
+		final byte[] b = this.bytes;
+		for (int i = scan; i < this.end; i++) {
+			if (b[i] == LF) {
+				return (i > this.start && b[i - 1] == CR) ? i - 1 : i;
+			}
+		}
+		if (this.eof && this.start < this.end) {
+			return this.end;
+		}
+		return -1;
+	}
+
+	/**
+	 * @param lineEnd
+	 * @return the position of the first byte after the terminator of the line ending at the given position
+	 */
+	private int skipTerminator(int lineEnd) {
+		if (lineEnd < this.end && this.bytes[lineEnd] == CR) {
+			lineEnd++;
+		}
+		return lineEnd < this.end ? lineEnd + 1 : lineEnd;
+	}
+
+	/**
+	 * Reads more bytes into the buffer, compacting or growing the buffer if it is full.
+	 * 
+	 * @throws IOException
+	 */
+	private void fill() throws IOException {
+		if (this.end == this.bytes.length) {
+			if (this.start > 0) {
+				// move the unconsumed line prefix to the front
+				System.arraycopy(this.bytes, this.start, this.bytes, 0, this.end - this.start);
+				this.end -= this.start;
+				this.start = 0;
+			} else {
+				// a single line is larger than the buffer
+				ByteBuffer grown = MyriadBufferPool.acquire(this.bytes.length * 2);
+				System.arraycopy(this.bytes, 0, grown.array(), 0, this.end);
+				MyriadBufferPool.release(this.buffer);
+				this.buffer = grown;
+				this.bytes = grown.array();
+			}
+		}
+
+		this.buffer.limit(this.bytes.length);
+		this.buffer.position(this.end);
+		long readStart = System.nanoTime();
+		int n = this.channel.read(this.buffer);
+		this.readWaitNanos += System.nanoTime() - readStart;
+		if (n < 0) {
+			this.eof = true;
+			this.eofNanos = System.nanoTime();
+		} else {
+			if (this.bytesRead == 0 && n > 0) {
+				this.firstByteNanos = System.nanoTime();
+			}
+			this.end += n;
+			this.bytesRead += n;
+		}
+	}
+}
@@ -0,0 +1,268 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.myriad.driver.reader;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ReadableByteChannel;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Merges the output of several generator connections into one stream of records. Each source is drained by a thread
+ * of its own into a few buffers. A buffer is handed to the consumer only up to its last complete record (the rest is
+ * carried over into the next buffer), so records of different sources are never interleaved.
+ * <p>
+ * The records are merged either in arrival order (whichever source has data first) or in connection order (all
+ * records of the first connection, then of the second, and so on). In connection order the drain threads of the
+ * later connections block once their buffers are full, which pushes back on the generator.
+ * <p>
+ * An unterminated last record of a connection is terminated with a line feed, so the merged stream may be longer than
+ * the sum of its sources.
+ * 
+ * @author Alexander Alexandrov (alexander.alexandrov@tu-berlin.de)
+ */
+public class MyriadMergedChannel implements ReadableByteChannel {
+
+	private static final int BUFFERS_PER_SOURCE = 4;
+
+	private final ReadableByteChannel[] sources;
+
+	private final boolean connectionOrder;
+
+	private final BlockingQueue<Chunk>[] filled; // a single shared queue in arrival order
+
+	private final BlockingQueue<ByteBuffer>[] free;
+
+	private final Thread[] drainThreads;
+
+	private int finishedSources;
+
+	private Chunk current;
+
+	private volatile boolean closed;
+
+	/**
+	 * Initializes MyriadMergedChannel and starts the drain threads.
+	 * 
+	 * @param sources
+	 * @param connectionOrder true to merge in connection order, false to merge in arrival order
+	 * @param bufferSize
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public MyriadMergedChannel(ReadableByteChannel[] sources, boolean connectionOrder, int bufferSize) {
+		this.sources = sources;
+		this.connectionOrder = connectionOrder;
+		this.filled = new BlockingQueue[connectionOrder ? sources.length : 1];
+		for (int i = 0; i < this.filled.length; i++) {
+			this.filled[i] = new LinkedBlockingQueue<Chunk>();
+		}
+		this.free = new BlockingQueue[sources.length];
+		this.drainThreads = new Thread[sources.length];
+		for (int i = 0; i < sources.length; i++) {
+			this.free[i] = new ArrayBlockingQueue<ByteBuffer>(BUFFERS_PER_SOURCE);
+			for (int j = 0; j < BUFFERS_PER_SOURCE; j++) {
+				this.free[i].add(MyriadBufferPool.acquire(bufferSize));
+			}
+		}
+		for (int i = 0; i < sources.length; i++) {
+			this.drainThreads[i] = new Thread(new Drainer(i), "myriad-merge-" + i);
+			this.drainThreads[i].setDaemon(true);
+			this.drainThreads[i].start();
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.nio.channels.ReadableByteChannel#read(java.nio.ByteBuffer)
+	 */
+	@Override
+	public int read(ByteBuffer dst) throws IOException {
+		if (this.closed) {
+			throw new ClosedChannelException();
+		}
+
+		while (this.current == null || !this.current.buffer.hasRemaining()) {
+			if (this.current != null) {
+				// hand the drained buffer back to its source
+				this.current.buffer.clear();
+				this.free[this.current.source].add(this.current.buffer);
+				this.current = null;
+			}
+			if (this.finishedSources == this.sources.length) {
+				return -1;
+			}
+
+			Chunk chunk = take();
+			if (chunk.error != null) {
+				throw chunk.error;
+			} else if (chunk.buffer == null) {
+				this.finishedSources++; // end of this source
+			} else {
+				this.current = chunk;
+			}
+		}
+
+		ByteBuffer buffer = this.current.buffer;
+		int n = Math.min(dst.remaining(), buffer.remaining());
+		if (buffer.remaining() <= dst.remaining()) {
+			dst.put(buffer);
+		} else {
+			int limit = buffer.limit();
+			buffer.limit(buffer.position() + n);
+			dst.put(buffer);
+			buffer.limit(limit);
+		}
+		return n;
+	}
+
+	/**
+	 * Waits for the next chunk in merge order.
+	 * 
+	 * @return
+	 * @throws InterruptedIOException
+	 */
+	private Chunk take() throws InterruptedIOException {
+		try {
+			return this.filled[this.connectionOrder ? this.finishedSources : 0].take();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for the generator");
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.nio.channels.Channel#isOpen()
+	 */
+	@Override
+	public boolean isOpen() {
+		return !this.closed;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.nio.channels.Channel#close()
+	 */
+	@Override
+	public void close() throws IOException {
+		if (this.closed) {
+			return;
+		}
+		this.closed = true;
+		try {
+			for (int i = 0; i < this.sources.length; i++) {
+				this.sources[i].close();
+				this.drainThreads[i].interrupt(); // a drain thread may wait for a free buffer
+			}
+			for (int i = 0; i < this.sources.length; i++) {
+				this.drainThreads[i].join();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			for (int i = 0; i < this.sources.length; i++) {
+				for (ByteBuffer buffer : this.free[i]) {
+					MyriadBufferPool.release(buffer);
+				}
+			}
+		}
+	}
+
+	private static final class Chunk {
+
+		private final int source;
+
+		private final ByteBuffer buffer; // null at the end of the source
+
+		private final IOException error;
+
+		public Chunk(int source, ByteBuffer buffer, IOException error) {
+			this.source = source;
+			this.buffer = buffer;
+			this.error = error;
+		}
+	}
+
+	private class Drainer implements Runnable {
+
+		private final int source;
+
+		public Drainer(int source) {
+			this.source = source;
+		}
+
+		@Override
+		public void run() {
+			final MyriadMergedChannel channel = MyriadMergedChannel.this;
+			final BlockingQueue<Chunk> filled = channel.filled[channel.connectionOrder ? this.source : 0];
+			final BlockingQueue<ByteBuffer> free = channel.free[this.source];
+			try {
+				ByteBuffer buffer = free.take();
+				while (true) {
+					if (channel.sources[this.source].read(buffer) < 0) {
+						// terminate an unterminated last record, so it does not run into the next chunk
+						if (buffer.position() > 0) {
+							if (!buffer.hasRemaining()) {
+								ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() + 1);
+								buffer.flip();
+								larger.put(buffer);
+								buffer = larger;
+							}
+							buffer.put((byte) '\n');
+							buffer.flip();
+							filled.put(new Chunk(this.source, buffer, null));
+						}
+						filled.put(new Chunk(this.source, null, null));
+						return;
+					}
+
+					int end = buffer.position();
+					while (end > 0 && buffer.get(end - 1) != '\n') {
+						end--;
+					}
+					if (end > 0) {
+						// publish the complete records, carry the partial one over
+						ByteBuffer next = free.take();
+						int position = buffer.position();
+						if (position - end > next.capacity()) {
+							next = ByteBuffer.allocate(buffer.capacity()); // the tail came from a grown buffer
+						}
+						buffer.limit(position).position(end);
+						next.put(buffer);
+						buffer.limit(end).position(0);
+						filled.put(new Chunk(this.source, buffer, null));
+						buffer = next;
+					} else if (!buffer.hasRemaining()) {
+						// a single record fills the buffer, grow it
+						ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2);
+						buffer.flip();
+						larger.put(buffer);
+						buffer = larger;
+					}
+				}
+			} catch (InterruptedException e) {
+				// closed by the consumer
+			} catch (IOException e) {
+				if (!channel.closed) {
+					filled.add(new Chunk(this.source, null, e));
+				}
+			}
+		}
+	}
+}
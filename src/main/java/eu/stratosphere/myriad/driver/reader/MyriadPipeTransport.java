@@ -0,0 +1,135 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.myriad.driver.reader;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.channels.ReadableByteChannel;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A named pipe transport. The generator writes into a FIFO created with <code>mkfifo</code>
+ * (<code>-t pipe[path]</code>), which avoids the TCP stack for purely local traffic.
+ * <p>
+ * Opening the reading end of a FIFO blocks until a writer opens it and cannot be interrupted. A watchdog thread
+ * therefore opens the writing end itself if the generator exits or the timeout expires first, which releases the
+ * reader with an empty pipe.
+ * 
+ * @author Alexander Alexandrov (alexander.alexandrov@tu-berlin.de)
+ */
+public class MyriadPipeTransport extends MyriadTransport {
+
+	private static final int WAITING = 0;
+
+	private static final int OPENED = 1;
+
+	private static final int EXITED = 2;
+
+	private static final int TIMED_OUT = 3;
+
+	private final File path;
+
+	public MyriadPipeTransport(File path) throws IOException {
+		this.path = path;
+
+		Process mkfifo = new ProcessBuilder("mkfifo", "-m", "600", path.getPath()).redirectErrorStream(true).start();
+		try {
+			if (mkfifo.waitFor() != 0) {
+				throw new IOException("Could not create named pipe " + path);
+			}
+		} catch (InterruptedException e) {
+			mkfifo.destroy();
+			throw new InterruptedIOException("Interrupted while creating named pipe " + path);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see eu.stratosphere.myriad.driver.reader.MyriadTransport#getOutputType()
+	 */
+	@Override
+	public String getOutputType() {
+		return "pipe[" + this.path.getAbsolutePath() + "]";
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see eu.stratosphere.myriad.driver.reader.MyriadTransport#connect(java.lang.Process, long)
+	 */
+	@Override
+	public ReadableByteChannel connect(final Process process, final long timeout) throws IOException {
+		final AtomicInteger state = new AtomicInteger(WAITING);
+		Thread watchdog = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				long deadline = timeout > 0 ? System.currentTimeMillis() + timeout : Long.MAX_VALUE;
+				try {
+					while (state.get() == WAITING) {
+						boolean exited = hasExited(process);
+						long remaining = deadline - System.currentTimeMillis();
+						if (exited || remaining <= 0) {
+							if (state.compareAndSet(WAITING, exited ? EXITED : TIMED_OUT)) {
+								new FileOutputStream(MyriadPipeTransport.this.path).close(); // release the reader
+							}
+							return;
+						}
+						// wake up at least once a second to notice a failed generator
+						Thread.sleep(Math.min(remaining, 1000));
+					}
+				} catch (InterruptedException e) {
+					// the reader opened the pipe
+				} catch (IOException e) {
+					// the pipe was removed
+				}
+			}
+		}, "myriad-pipe-watchdog");
+		watchdog.setDaemon(true);
+		watchdog.start();
+
+		FileInputStream in = new FileInputStream(this.path); // blocks until a writer opened the pipe
+		if (state.compareAndSet(WAITING, OPENED)) {
+			watchdog.interrupt();
+			this.path.delete(); // both ends are open, the name is no longer needed
+			return in.getChannel();
+		}
+
+		// the watchdog released the reader
+		if (state.get() == EXITED && in.available() > 0) {
+			// the generator wrote its output and exited right before the reader noticed
+			this.path.delete();
+			return in.getChannel();
+		}
+		in.close();
+		if (state.get() == EXITED) {
+			throw new IOException(String.format("Generator exited with code %d before opening the pipe",
+				process.exitValue()));
+		} else {
+			throw new InterruptedIOException(String.format("Generator did not open the pipe within %d ms", timeout));
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see eu.stratosphere.myriad.driver.reader.MyriadTransport#close()
+	 */
+	@Override
+	public void close() throws IOException {
+		this.path.delete();
+	}
+}
@@ -0,0 +1,283 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.myriad.driver.reader;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ReadableByteChannel;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A read-ahead stage between the data generator and the record reader. A dedicated thread drains the source channel
+ * into a bounded ring of buffers while the consumer reads from the filled buffers, so the generator can keep writing
+ * while the consumer is busy.
+ * 
+ * The ring is a single-producer/single-consumer queue: each side only advances its own counter and the handoff
+ * happens without locks. A side that finds the ring full (producer) or empty (consumer) waits by parking for a short
+ * time and records the time spent waiting. A high producer stall time indicates a consumer-bound task, a high consumer
+ * stall time indicates a generator-bound task.
+ * 
+ * @author Alexander Alexandrov (alexander.alexandrov@tu-berlin.de)
+ */
+public class MyriadPrefetchChannel implements ReadableByteChannel {
+
+	private static final long PARK_NANOS = 50000L; // 50us
+
+	private static final int SPIN_TRIES = 100;
+
+	private final ReadableByteChannel source;
+
+	private final ByteBuffer[] ring;
+
+	private final AtomicLong head; // number of buffers taken by the consumer
+
+	private final AtomicLong tail; // number of buffers published by the producer
+
+	private final Thread producerThread;
+
+	private volatile boolean eof;
+
+	private volatile boolean closed;
+
+	private volatile IOException error;
+
+	private volatile long producerStallNanos;
+
+	private long consumerStallNanos;
+
+	private long takenBuffers;
+
+	private long queueDepthSum;
+
+	private ByteBuffer current;
+
+	/**
+	 * Initializes MyriadPrefetchChannel and starts the read-ahead thread.
+	 * 
+	 * @param source
+	 * @param bufferCount
+	 * @param bufferSize
+	 */
+	public MyriadPrefetchChannel(ReadableByteChannel source, int bufferCount, int bufferSize) {
+		this.source = source;
+		this.ring = new ByteBuffer[bufferCount];
+		for (int i = 0; i < bufferCount; i++) {
+			this.ring[i] = MyriadBufferPool.acquire(bufferSize);
+		}
+		this.head = new AtomicLong(0);
+		this.tail = new AtomicLong(0);
+		this.eof = false;
+		this.closed = false;
+		this.current = null;
+
+		this.producerThread = new Thread(new Producer(), "myriad-prefetch");
+		this.producerThread.setDaemon(true);
+		this.producerThread.start();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.nio.channels.ReadableByteChannel#read(java.nio.ByteBuffer)
+	 */
+	@Override
+	public int read(ByteBuffer dst) throws IOException {
+		if (this.closed) {
+			throw new ClosedChannelException();
+		}
+
+		if (this.current == null || !this.current.hasRemaining()) {
+			if (this.current != null) {
+				// hand the drained buffer back to the producer
+				this.current = null;
+				this.head.lazySet(this.head.get() + 1);
+			}
+			if (!take()) {
+				return -1;
+			}
+		}
+
+		int n = Math.min(dst.remaining(), this.current.remaining());
+		if (this.current.remaining() <= dst.remaining()) {
+			dst.put(this.current);
+		} else {
+			int limit = this.current.limit();
+			this.current.limit(this.current.position() + n);
+			dst.put(this.current);
+			this.current.limit(limit);
+		}
+		return n;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.nio.channels.Channel#isOpen()
+	 */
+	@Override
+	public boolean isOpen() {
+		return !this.closed;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.nio.channels.Channel#close()
+	 */
+	@Override
+	public void close() throws IOException {
+		if (this.closed) {
+			return;
+		}
+		this.closed = true;
+		try {
+			this.source.close();
+			this.producerThread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			for (int i = 0; i < this.ring.length; i++) {
+				MyriadBufferPool.release(this.ring[i]);
+			}
+		}
+	}
+
+	/**
+	 * @return the number of filled buffers waiting for the consumer
+	 */
+	public int getQueueDepth() {
+		return (int) (this.tail.get() - this.head.get());
+	}
+
+	/**
+	 * @return the average number of filled buffers seen by the consumer when taking a buffer
+	 */
+	public double getAverageQueueDepth() {
+		return this.takenBuffers > 0 ? (double) this.queueDepthSum / this.takenBuffers : 0.0;
+	}
+
+	/**
+	 * @return the capacity of the ring in buffers
+	 */
+	public int getQueueCapacity() {
+		return this.ring.length;
+	}
+
+	/**
+	 * @return the time (in milliseconds) the read-ahead thread waited for a free buffer
+	 */
+	public long getProducerStallTime() {
+		return this.producerStallNanos / 1000000L;
+	}
+
+	/**
+	 * @return the time (in milliseconds) the consumer waited for a filled buffer
+	 */
+	public long getConsumerStallTime() {
+		return this.consumerStallNanos / 1000000L;
+	}
+
+	/**
+	 * Waits for the next filled buffer.
+	 * 
+	 * @return false if the source has been exhausted
+	 * @throws IOException
+	 */
+	private boolean take() throws IOException {
+		final long h = this.head.get();
+		long waitStart = 0;
+		int tries = 0;
+		long t;
+		while ((t = this.tail.get()) == h) {
+			if (this.error != null) {
+				throw this.error;
+			}
+			if (this.eof && this.tail.get() == h) {
+				break;
+			}
+			if (Thread.interrupted()) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while waiting for the generator");
+			}
+			if (waitStart == 0) {
+				waitStart = System.nanoTime();
+			}
+			if (++tries > SPIN_TRIES) {
+				LockSupport.parkNanos(PARK_NANOS);
+			}
+		}
+		if (waitStart != 0) {
+			this.consumerStallNanos += System.nanoTime() - waitStart;
+		}
+		if (t == h) {
+			return false;
+		}
+
+		this.takenBuffers++;
+		this.queueDepthSum += t - h;
+		this.current = this.ring[(int) (h % this.ring.length)];
+		return true;
+	}
+
+	private class Producer implements Runnable {
+
+		@Override
+		public void run() {
+			final MyriadPrefetchChannel channel = MyriadPrefetchChannel.this;
+			final int capacity = channel.ring.length;
+			long stallNanos = 0;
+			try {
+				while (!channel.closed) {
+					// wait for a free buffer
+					final long t = channel.tail.get();
+					long waitStart = 0;
+					int tries = 0;
+					while (t - channel.head.get() >= capacity && !channel.closed) {
+						if (waitStart == 0) {
+							waitStart = System.nanoTime();
+						}
+						if (++tries > SPIN_TRIES) {
+							LockSupport.parkNanos(PARK_NANOS);
+						}
+					}
+					if (waitStart != 0) {
+						stallNanos += System.nanoTime() - waitStart;
+						channel.producerStallNanos = stallNanos;
+					}
+
+					// read whatever the generator has sent so far into the buffer
+					ByteBuffer buffer = channel.ring[(int) (t % capacity)];
+					buffer.clear();
+					int n = channel.source.read(buffer);
+					buffer.flip();
+
+					// publish the buffer
+					if (buffer.hasRemaining()) {
+						channel.tail.lazySet(t + 1);
+					}
+					if (n < 0) {
+						break;
+					}
+				}
+			} catch (IOException e) {
+				if (!channel.closed) {
+					channel.error = e;
+				}
+			} finally {
+				channel.eof = true;
+			}
+		}
+	}
+}
@@ -0,0 +1,144 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.myriad.driver.reader;
+
+/**
+ * Tracks the data generator progress reported by the heart beats. Heart beats may be dispatched concurrently by
+ * the pooled threads of the heart beat server, so updates are serialized on the tracker. Readers of the progress never
+ * block: the published values are kept in volatile fields.
+ * 
+ * Each update also derives the generation rate (smoothed progress per second) and the estimated remaining time.
+ * Progress is logged at most once per log interval and once on completion.
+ * 
+ * @author Alexander Alexandrov (alexander.alexandrov@tu-berlin.de)
+ */
+public class MyriadProgressTracker {
+
+	private static final long DEFAULT_LOG_INTERVAL = 10000; // 10 seconds
+
+	private static final double RATE_SMOOTHING = 0.3; // weight of the latest rate sample
+
+	private final String name;
+
+	private final long logInterval;
+
+	private volatile float progress;
+
+	private volatile double rate;
+
+	private long nextLogTime; // guarded by this
+
+	private long lastUpdateTime; // guarded by this
+
+	private float lastProgress; // guarded by this
+
+	private boolean completionLogged; // guarded by this
+
+	/**
+	 * Initializes MyriadProgressTracker.
+	 * 
+	 * @param name the name used in log messages
+	 */
+	public MyriadProgressTracker(String name) {
+		this(name, DEFAULT_LOG_INTERVAL);
+	}
+
+	/**
+	 * Initializes MyriadProgressTracker.
+	 * 
+	 * @param name the name used in log messages
+	 * @param logInterval the minimal time between two log messages (in milliseconds)
+	 */
+	public MyriadProgressTracker(String name, long logInterval) {
+		this.name = name;
+		this.logInterval = logInterval;
+		this.progress = 0.0f;
+		this.rate = 0.0;
+		this.nextLogTime = 0;
+		this.lastUpdateTime = -1;
+		this.lastProgress = 0.0f;
+		this.completionLogged = false;
+	}
+
+	/**
+	 * Records a new progress value reported by the data generator.
+	 * 
+	 * @param progress
+	 */
+	public void update(float progress) {
+		update(progress, System.currentTimeMillis());
+	}
+
+	/**
+	 * Records a new progress value reported by the data generator at the given time.
+	 * 
+	 * @param progress
+	 * @param now the time of the report (in milliseconds)
+	 */
+	synchronized void update(float progress, long now) {
+		// derive the generation rate
+		if (this.lastUpdateTime >= 0 && now > this.lastUpdateTime) {
+			double sample = (progress - this.lastProgress) * 1000.0 / (now - this.lastUpdateTime);
+			this.rate = (this.rate == 0.0) ? sample : RATE_SMOOTHING * sample + (1 - RATE_SMOOTHING) * this.rate;
+		}
+		this.lastUpdateTime = now;
+		this.lastProgress = progress;
+		this.progress = progress;
+
+		// log progress (rate limited)
+		if (progress >= 1.0f) {
+			if (!this.completionLogged) {
+				this.completionLogged = true;
+				log();
+			}
+		} else {
+			if (now >= this.nextLogTime) {
+				this.nextLogTime = now + this.logInterval;
+				log();
+			}
+		}
+	}
+
+	/**
+	 * @return the last reported progress
+	 */
+	public float getProgress() {
+		return this.progress;
+	}
+
+	/**
+	 * @return the smoothed generation rate (progress per second)
+	 */
+	public double getRate() {
+		return this.rate;
+	}
+
+	/**
+	 * @return the estimated remaining time (in milliseconds) or -1 if no estimate is available
+	 */
+	public long getRemainingTime() {
+		double rate = this.rate;
+		if (rate <= 0.0) {
+			return -1;
+		}
+		return (long) (Math.max(0.0f, 1.0f - this.progress) * 1000.0 / rate);
+	}
+
+	private void log() {
+		long remaining = getRemainingTime();
+		System.out.println(String.format("Progress of %s is now %.1f%% (%.2f%%/s, ETA %s)", this.name,
+			this.progress * 100.0, this.rate * 100.0, remaining < 0 ? "unknown" : (remaining / 1000) + "s"));
+	}
+}
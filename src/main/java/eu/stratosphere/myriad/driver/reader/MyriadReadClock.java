@@ -0,0 +1,150 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.myriad.driver.reader;
+
+/**
+ * Splits the time of a consumer loop into the time spent inside the reader and the time spent outside of it (in the
+ * mapper or the output path). Reading the clock before and after every record is a noticeable share of the per-record
+ * cost for short records, so the clock only measures the whole loop and every n-th gap between two reads. The time
+ * outside the reader is extrapolated from the sampled gaps and the time inside the reader is the rest of the loop.
+ * 
+ * @author Alexander Alexandrov (alexander.alexandrov@tu-berlin.de)
+ */
+public class MyriadReadClock {
+
+	/**
+	 * The default number of reads per sampled gap.
+	 */
+	public static final int SAMPLE_INTERVAL = 64;
+
+	private final int sampleInterval;
+
+	private int countdown;
+
+	private boolean running;
+
+	private long startTime;
+
+	private long totalNanos;
+
+	private long sampleStart; // return time of the last sampled read (0 if the current gap is not sampled)
+
+	private long sampledNanos;
+
+	private long sampledGaps;
+
+	private long gaps;
+
+	/**
+	 * Initializes MyriadReadClock with the default sample interval.
+	 */
+	public MyriadReadClock() {
+		this(SAMPLE_INTERVAL);
+	}
+
+	/**
+	 * Initializes MyriadReadClock.
+	 * 
+	 * @param sampleInterval the number of reads per sampled gap (1 measures every gap)
+	 */
+	public MyriadReadClock(int sampleInterval) {
+		if (sampleInterval < 1) {
+			throw new IllegalArgumentException("Bad sample interval " + sampleInterval);
+		}
+		this.sampleInterval = sampleInterval;
+		reset();
+	}
+
+	/**
+	 * Discards all measurements, e.g. to attribute the following reads to the next partition.
+	 */
+	public void reset() {
+		this.countdown = 1; // the gap after the first record is always sampled
+		this.running = false;
+		this.startTime = 0;
+		this.totalNanos = 0;
+		this.sampleStart = 0;
+		this.sampledNanos = 0;
+		this.sampledGaps = 0;
+		this.gaps = 0;
+	}
+
+	/**
+	 * Marks the start of a read.
+	 */
+	public void enter() {
+		if (this.sampleStart != 0) {
+			this.sampledNanos += System.nanoTime() - this.sampleStart;
+			this.sampledGaps++;
+			this.sampleStart = 0;
+		} else if (!this.running) {
+			this.running = true;
+			this.startTime = System.nanoTime();
+		}
+	}
+
+	/**
+	 * Marks the end of a read that returned a record. The time until the next {@link #enter()} is spent outside the
+	 * reader.
+	 */
+	public void leave() {
+		this.gaps++;
+		if (--this.countdown == 0) {
+			this.countdown = this.sampleInterval;
+			this.sampleStart = System.nanoTime();
+		}
+	}
+
+	/**
+	 * Marks the end of the last read. Calling it again without an intermediate {@link #enter()} has no effect.
+	 */
+	public void stop() {
+		if (this.running) {
+			long stopTime = System.nanoTime();
+			this.running = false;
+			this.totalNanos += stopTime - this.startTime;
+			if (this.sampleStart != 0) {
+				// the consumer of the last record finished before the stop
+				this.sampledNanos += stopTime - this.sampleStart;
+				this.sampledGaps++;
+				this.sampleStart = 0;
+			}
+		}
+	}
+
+	/**
+	 * @return the estimated time (in nanoseconds) spent outside the reader between two reads
+	 */
+	public long getConsumerNanos() {
+		if (this.sampledGaps == 0) {
+			return 0;
+		}
+		return Math.min(getTotalNanos(), (long) (this.sampledNanos * ((double) this.gaps / this.sampledGaps)));
+	}
+
+	/**
+	 * @return the estimated time (in nanoseconds) spent inside the reader
+	 */
+	public long getReaderNanos() {
+		return getTotalNanos() - getConsumerNanos();
+	}
+
+	/**
+	 * @return the time (in nanoseconds) between the first read and the {@link #stop()}
+	 */
+	private long getTotalNanos() {
+		return this.totalNanos;
+	}
+}
@@ -0,0 +1,82 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.myriad.driver.reader;
+
+/**
+ * A reusable view over a single record held in a shared byte buffer. The view is only valid until the next call to
+ * the reader that filled it.
+ * 
+ * @author Alexander Alexandrov (alexander.alexandrov@tu-berlin.de)
+ */
+public class MyriadRecord {
+
+	private byte[] bytes;
+
+	private int offset;
+
+	private int length;
+
+	/**
+	 * Initializes an empty MyriadRecord.
+	 */
+	public MyriadRecord() {
+		this.bytes = new byte[0];
+		this.offset = 0;
+		this.length = 0;
+	}
+
+	/**
+	 * Points the view to the given buffer region.
+	 * 
+	 * @param bytes
+	 * @param offset
+	 * @param length
+	 */
+	void set(byte[] bytes, int offset, int length) {
+		this.bytes = bytes;
+		this.offset = offset;
+		this.length = length;
+	}
+
+	/**
+	 * @return the backing buffer (shared, do not modify)
+	 */
+	public byte[] getBytes() {
+		return this.bytes;
+	}
+
+	/**
+	 * @return the offset of the first record byte in the backing buffer
+	 */
+	public int getOffset() {
+		return this.offset;
+	}
+
+	/**
+	 * @return the number of record bytes (without the line terminator)
+	 */
+	public int getLength() {
+		return this.length;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return new String(this.bytes, this.offset, this.length);
+	}
+}
@@ -0,0 +1,155 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.myriad.driver.reader;
+
+/**
+ * A reusable batch of records framed in a shared byte buffer. The records of a batch are stored back to back in the
+ * buffer (separated by their original line terminators), so the whole batch can also be consumed as a single
+ * contiguous region via {@link #getDataOffset()} and {@link #getDataLength()}.
+ * 
+ * The batch is only valid until the next call to the reader that filled it.
+ * 
+ * @author Alexander Alexandrov (alexander.alexandrov@tu-berlin.de)
+ */
+public class MyriadRecordBatch {
+
+	private final int maxRecords;
+
+	private final int maxBytes;
+
+	private final int[] offsets;
+
+	private final int[] lengths;
+
+	private byte[] bytes;
+
+	private int size;
+
+	/**
+	 * Initializes MyriadRecordBatch.
+	 * 
+	 * @param maxRecords the maximal number of records in a batch
+	 * @param maxBytes the targeted number of bytes in a batch (a batch always holds at least one record)
+	 */
+	public MyriadRecordBatch(int maxRecords, int maxBytes) {
+		if (maxRecords < 1) {
+			throw new IllegalArgumentException("Bad batch size " + maxRecords);
+		}
+		this.maxRecords = maxRecords;
+		this.maxBytes = maxBytes;
+		this.offsets = new int[maxRecords];
+		this.lengths = new int[maxRecords];
+		this.bytes = new byte[0];
+		this.size = 0;
+	}
+
+	/**
+	 * Empties the batch and points it to a new backing buffer.
+	 * 
+	 * @param bytes
+	 */
+	void reset(byte[] bytes) {
+		this.bytes = bytes;
+		this.size = 0;
+	}
+
+	/**
+	 * Appends a record to the batch.
+	 * 
+	 * @param offset
+	 * @param length
+	 */
+	void add(int offset, int length) {
+		this.offsets[this.size] = offset;
+		this.lengths[this.size] = length;
+		this.size++;
+	}
+
+	/**
+	 * @return true if another record with the given end offset would still fit into the batch
+	 */
+	boolean accepts(int recordEnd) {
+		return this.size == 0
+			|| (this.size < this.maxRecords && recordEnd - this.offsets[0] <= this.maxBytes);
+	}
+
+	/**
+	 * @return the number of records in the batch
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * @return the backing buffer (shared, do not modify)
+	 */
+	public byte[] getBytes() {
+		return this.bytes;
+	}
+
+	/**
+	 * @param i
+	 * @return the offset of the i-th record in the backing buffer
+	 */
+	public int getOffset(int i) {
+		return this.offsets[i];
+	}
+
+	/**
+	 * @param i
+	 * @return the length of the i-th record (without the line terminator)
+	 */
+	public int getLength(int i) {
+		return this.lengths[i];
+	}
+
+	/**
+	 * Points the given record view to the i-th record.
+	 * 
+	 * @param i
+	 * @param record
+	 */
+	public void getRecord(int i, MyriadRecord record) {
+		record.set(this.bytes, this.offsets[i], this.lengths[i]);
+	}
+
+	/**
+	 * @return the offset of the first record in the backing buffer
+	 */
+	public int getDataOffset() {
+		return this.size > 0 ? this.offsets[0] : 0;
+	}
+
+	/**
+	 * @return the number of bytes from the start of the first to the end of the last record
+	 */
+	public int getDataLength() {
+		return this.size > 0 ? this.offsets[this.size - 1] + this.lengths[this.size - 1] - this.offsets[0] : 0;
+	}
+
+	/**
+	 * @return the maximal number of records in a batch
+	 */
+	public int getMaxRecords() {
+		return this.maxRecords;
+	}
+
+	/**
+	 * @return the targeted number of bytes in a batch
+	 */
+	public int getMaxBytes() {
+		return this.maxBytes;
+	}
+}
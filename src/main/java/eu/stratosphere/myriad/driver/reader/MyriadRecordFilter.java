@@ -0,0 +1,356 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.myriad.driver.reader;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import eu.stratosphere.myriad.driver.parameters.DriverJobParameters;
+import eu.stratosphere.myriad.driver.parameters.DriverJobParametersException;
+
+/**
+ * Drops the rows and columns of delimited records that a job does not need. A filter consists of an optional
+ * projection (a comma separated list of fields to keep, in output order) and an optional predicate of the form
+ * <code>&lt;field&gt;&lt;op&gt;&lt;value&gt;</code> with one of the operators <code>=</code>, <code>!=</code>,
+ * <code>&lt;</code>, <code>&lt;=</code>, <code>&gt;</code> and <code>&gt;=</code>. Fields are referenced by their name
+ * in the stage field layout or by their zero-based position. A numeric value compares the field numerically (records
+ * with a non-numeric field are dropped), any other value compares the field bytes lexicographically.
+ * <p>
+ * A filter keeps a scratch buffer for the projected record and must not be shared between threads.
+ * 
+ * @author Alexander Alexandrov (alexander.alexandrov@tu-berlin.de)
+ */
+public class MyriadRecordFilter {
+
+	private static final Pattern PREDICATE_PATTERN = Pattern
+		.compile("\\s*([^\\s=!<>]+)\\s*(=|!=|<=|>=|<|>)\\s*(\\S+)\\s*");
+
+	private static final int EQ = 0, NE = 1, LT = 2, LE = 3, GT = 4, GE = 5;
+
+	private final String projectionSpec;
+
+	private final String predicateSpec;
+
+	private final byte delimiter;
+
+	private final int[] projection; // null keeps all fields
+
+	private final int predicateField; // -1 accepts all records
+
+	private final int predicateOp;
+
+	private final byte[] predicateBytes;
+
+	private final boolean predicateNumeric;
+
+	private final boolean predicateIntegral;
+
+	private final long predicateLong;
+
+	private final double predicateDouble;
+
+	private final int[] fieldStarts;
+
+	private final int[] fieldEnds;
+
+	private byte[] buffer;
+
+	private long droppedRecords;
+
+	/**
+	 * Initializes MyriadRecordFilter.
+	 * 
+	 * @param projection the fields to keep (comma separated) or null to keep all fields
+	 * @param predicate the predicate on the records to keep or null to keep all records
+	 * @param fields the field layout of the records (<code>name:type,...</code>) or null if only positions are used
+	 * @param delimiter the field delimiter
+	 * @throws IllegalArgumentException if the projection or the predicate is malformed
+	 */
+	public MyriadRecordFilter(String projection, String predicate, String fields, char delimiter) {
+		String[] names = fields == null ? new String[0] : fields.trim().split("\\s*,\\s*");
+		for (int i = 0; i < names.length; i++) {
+			int colon = names[i].lastIndexOf(':');
+			names[i] = colon < 0 ? names[i] : names[i].substring(0, colon).trim();
+		}
+		this.delimiter = (byte) delimiter;
+		int maxField = -1;
+
+		if (projection != null) {
+			String[] specs = projection.trim().split("\\s*,\\s*");
+			this.projection = new int[specs.length];
+			for (int i = 0; i < specs.length; i++) {
+				this.projection[i] = resolveField(specs[i], names);
+				maxField = Math.max(maxField, this.projection[i]);
+			}
+			this.projectionSpec = join(specs);
+		} else {
+			this.projection = null;
+			this.projectionSpec = null;
+		}
+
+		if (predicate != null) {
+			Matcher m = PREDICATE_PATTERN.matcher(predicate);
+			if (!m.matches()) {
+				throw new IllegalArgumentException("Bad predicate `" + predicate + "`");
+			}
+			this.predicateField = resolveField(m.group(1), names);
+			String op = m.group(2);
+			this.predicateOp = op.equals("=") ? EQ : op.equals("!=") ? NE : op.equals("<") ? LT : op.equals("<=") ? LE
+				: op.equals(">") ? GT : GE;
+			String value = m.group(3);
+			this.predicateBytes = value.getBytes();
+			this.predicateIntegral = value.matches("[+-]?\\d{1,18}");
+			this.predicateNumeric = this.predicateIntegral || isDouble(value);
+			this.predicateLong = this.predicateIntegral ? Long.parseLong(value) : 0;
+			this.predicateDouble = this.predicateNumeric ? Double.parseDouble(value) : 0;
+			this.predicateSpec = m.group(1) + op + value;
+			maxField = Math.max(maxField, this.predicateField);
+		} else {
+			this.predicateField = -1;
+			this.predicateOp = EQ;
+			this.predicateBytes = null;
+			this.predicateIntegral = false;
+			this.predicateNumeric = false;
+			this.predicateLong = 0;
+			this.predicateDouble = 0;
+			this.predicateSpec = null;
+		}
+
+		this.fieldStarts = new int[maxField + 1];
+		this.fieldEnds = new int[maxField + 1];
+		this.buffer = new byte[1024];
+	}
+
+	/**
+	 * Creates the record filter configured by the given job parameters.
+	 * 
+	 * @param parameters
+	 * @return the filter or null if the job neither projects nor filters the records
+	 * @throws DriverJobParametersException if the projection or the predicate is malformed
+	 */
+	public static MyriadRecordFilter create(DriverJobParameters parameters) {
+		if (parameters.getProjection() == null && parameters.getPredicate() == null) {
+			return null;
+		}
+		try {
+			return new MyriadRecordFilter(parameters.getProjection(), parameters.getPredicate(),
+				parameters.getFields(), parameters.getFieldDelimiter());
+		} catch (IllegalArgumentException e) {
+			throw new DriverJobParametersException(String.format("Bad pushdown for stage `%s`: %s",
+				parameters.getStage(), e.getMessage()));
+		}
+	}
+
+	/**
+	 * @return the projection with whitespace removed or null if all fields are kept
+	 */
+	public String getProjectionSpec() {
+		return this.projectionSpec;
+	}
+
+	/**
+	 * @return the predicate with whitespace removed or null if all records are kept
+	 */
+	public String getPredicateSpec() {
+		return this.predicateSpec;
+	}
+
+	/**
+	 * @return the number of records dropped by the predicate so far
+	 */
+	public long getDroppedRecords() {
+		return this.droppedRecords;
+	}
+
+	/**
+	 * Applies the filter to the given record view. A projected record is copied into the scratch buffer of the filter
+	 * and the view is pointed to the copy.
+	 * 
+	 * @param record
+	 * @return false if the record is dropped
+	 */
+	public boolean apply(MyriadRecord record) {
+		int length = apply(record.getBytes(), record.getOffset(), record.getLength());
+		if (length < 0) {
+			return false;
+		}
+		if (this.projection != null) {
+			record.set(this.buffer, 0, length);
+		}
+		return true;
+	}
+
+	/**
+	 * Applies the filter to the given record (without line terminator). A projected record is written into the
+	 * buffer returned by {@link #getBuffer()}.
+	 * 
+	 * @param bytes
+	 * @param offset
+	 * @param length
+	 * @return the length of the filtered record or -1 if the record is dropped
+	 */
+	public int apply(byte[] bytes, int offset, int length) {
+		// locate the referenced fields, missing fields are empty
+		int fields = this.fieldStarts.length;
+		int start = offset;
+		int end = offset + length;
+		for (int i = 0; i < fields; i++) {
+			int pos = start;
+			while (pos < end && bytes[pos] != this.delimiter) {
+				pos++;
+			}
+			this.fieldStarts[i] = start;
+			this.fieldEnds[i] = pos;
+			start = pos < end ? pos + 1 : end;
+		}
+
+		if (this.predicateField >= 0 && !test(bytes, this.fieldStarts[this.predicateField],
+			this.fieldEnds[this.predicateField])) {
+			this.droppedRecords++;
+			return -1;
+		}
+		if (this.projection == null) {
+			return length;
+		}
+
+		int required = this.projection.length;
+		for (int field : this.projection) {
+			required += this.fieldEnds[field] - this.fieldStarts[field];
+		}
+		if (this.buffer.length < required) {
+			this.buffer = new byte[Math.max(required, this.buffer.length * 2)];
+		}
+		int n = 0;
+		for (int i = 0; i < this.projection.length; i++) {
+			if (i > 0) {
+				this.buffer[n++] = this.delimiter;
+			}
+			int field = this.projection[i];
+			int fieldLength = this.fieldEnds[field] - this.fieldStarts[field];
+			System.arraycopy(bytes, this.fieldStarts[field], this.buffer, n, fieldLength);
+			n += fieldLength;
+		}
+		return n;
+	}
+
+	/**
+	 * @return the scratch buffer holding the last projected record
+	 */
+	public byte[] getBuffer() {
+		return this.buffer;
+	}
+
+	/**
+	 * @return true if the filter rewrites the kept records
+	 */
+	public boolean isProjecting() {
+		return this.projection != null;
+	}
+
+	private boolean test(byte[] bytes, int start, int end) {
+		int cmp;
+		if (this.predicateIntegral) {
+			// parse integral fields in place, avoiding a string per record
+			long value = 0;
+			int pos = start;
+			boolean negative = pos < end && bytes[pos] == '-';
+			if (negative || pos < end && bytes[pos] == '+') {
+				pos++;
+			}
+			if (pos == end || end - pos > 18) {
+				return compareDouble(bytes, start, end);
+			}
+			for (; pos < end; pos++) {
+				int digit = bytes[pos] - '0';
+				if (digit < 0 || digit > 9) {
+					return compareDouble(bytes, start, end);
+				}
+				value = value * 10 + digit;
+			}
+			value = negative ? -value : value;
+			cmp = value < this.predicateLong ? -1 : value == this.predicateLong ? 0 : 1;
+		} else if (this.predicateNumeric) {
+			return compareDouble(bytes, start, end);
+		} else {
+			cmp = 0;
+			int n = Math.min(end - start, this.predicateBytes.length);
+			for (int i = 0; i < n && cmp == 0; i++) {
+				cmp = (bytes[start + i] & 0xFF) - (this.predicateBytes[i] & 0xFF);
+			}
+			if (cmp == 0) {
+				cmp = (end - start) - this.predicateBytes.length;
+			}
+		}
+		return matches(cmp);
+	}
+
+	private boolean compareDouble(byte[] bytes, int start, int end) {
+		String field = new String(bytes, start, end - start);
+		if (!isDouble(field)) {
+			return false;
+		}
+		return matches(Double.compare(Double.parseDouble(field), this.predicateDouble));
+	}
+
+	private boolean matches(int cmp) {
+		switch (this.predicateOp) {
+			case EQ:
+				return cmp == 0;
+			case NE:
+				return cmp != 0;
+			case LT:
+				return cmp < 0;
+			case LE:
+				return cmp <= 0;
+			case GT:
+				return cmp > 0;
+			default:
+				return cmp >= 0;
+		}
+	}
+
+	private static boolean isDouble(String value) {
+		try {
+			Double.parseDouble(value);
+			return value.length() > 0 && !value.endsWith("d") && !value.endsWith("f") && !value.endsWith("D")
+				&& !value.endsWith("F");
+		} catch (NumberFormatException e) {
+			return false;
+		}
+	}
+
+	private static int resolveField(String field, String[] names) {
+		for (int i = 0; i < names.length; i++) {
+			if (names[i].equals(field)) {
+				return i;
+			}
+		}
+		if (field.matches("\\d{1,4}")) {
+			return Integer.parseInt(field);
+		}
+		throw new IllegalArgumentException("Unknown field `" + field + "`");
+	}
+
+	private static String join(String[] specs) {
+		StringBuilder s = new StringBuilder();
+		for (String spec : specs) {
+			if (s.length() > 0) {
+				s.append(',');
+			}
+			s.append(spec);
+		}
+		return s.toString();
+	}
+}
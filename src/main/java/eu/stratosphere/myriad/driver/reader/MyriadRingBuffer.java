@@ -0,0 +1,395 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.myriad.driver.reader;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.locks.LockSupport;
+
+import sun.misc.Unsafe;
+
+/**
+ * A single-producer/single-consumer byte ring in a memory-mapped file, shared between a generator process (producer)
+ * and its reader (consumer). The file starts with a header of {@link #HEADER_SIZE} bytes followed by the data area.
+ * All fields are little-endian:
+ * 
+ * <pre>
+ * offset  type  field
+ *      0  int   magic, 0x4D595242 (&quot;MYRB&quot;)
+ *      4  int   layout version, 1
+ *      8  long  capacity of the data area in bytes, a power of two
+ *     16  int   offset of the data area (the header size, 256)
+ *     64  long  write position, the number of bytes published by the producer (written by the producer only)
+ *    128  long  read position, the number of bytes consumed by the consumer (written by the consumer only)
+ *    192  int   producer state: 0 = not attached, 1 = attached, 2 = closed (end of stream)
+ *    196  int   consumer state: 0 = open, 1 = closed
+ *    256        data area, the byte at stream position p is stored at 256 + (p &amp; (capacity - 1))
+ * </pre>
+ * 
+ * The two positions grow monotonically and live on separate cache lines. The producer copies data into the free part
+ * of the ring and then publishes the new write position; the consumer reads the write position, then the data, and
+ * then publishes the new read position. The producer sets its state to closed after publishing the last bytes.
+ * <p>
+ * Java 6 has no ordered accesses to mapped memory, so the positions and states are accessed through the volatile
+ * loads (<code>getLongVolatile</code>, <code>getIntVolatile</code>) and ordered stores (<code>putOrderedLong</code>,
+ * <code>putOrderedInt</code>) of <code>sun.misc.Unsafe</code> on the address of the mapping. A volatile load orders
+ * the following data reads after it, an ordered store orders the preceding data writes before it. Unsafe accesses
+ * use the native byte order, so the ring is only available on little-endian JVMs that expose Unsafe (see
+ * {@link #isSupported()}). The address of the mapping is read through the field offset of
+ * <code>Buffer.address</code>, which also works on JVMs that no longer open the field to reflection.
+ * <p>
+ * A mapping is only released when its buffer is garbage collected, so {@link #close()} unmaps the ring eagerly
+ * through the cleaner of the buffer if the JVM offers one.
+ * <p>
+ * A producer blocked on a full ring notices a consumer that closed the ring, but not one whose JVM was killed; the
+ * generator has to detect that through its failing heartbeats.
+ * 
+ * @author Alexander Alexandrov (alexander.alexandrov@tu-berlin.de)
+ */
+public class MyriadRingBuffer {
+
+	public static final int MAGIC = 0x4D595242;
+
+	public static final int VERSION = 1;
+
+	public static final int HEADER_SIZE = 256;
+
+	public static final int PRODUCER_WAITING = 0;
+
+	public static final int PRODUCER_ATTACHED = 1;
+
+	public static final int PRODUCER_CLOSED = 2;
+
+	private static final int MAGIC_OFFSET = 0;
+
+	private static final int VERSION_OFFSET = 4;
+
+	private static final int CAPACITY_OFFSET = 8;
+
+	private static final int DATA_OFFSET_OFFSET = 16;
+
+	private static final int WRITE_POSITION_OFFSET = 64;
+
+	private static final int READ_POSITION_OFFSET = 128;
+
+	private static final int PRODUCER_STATE_OFFSET = 192;
+
+	private static final int CONSUMER_STATE_OFFSET = 196;
+
+	private static final int SPIN_LIMIT = 64; // busy polls before yielding
+
+	private static final int YIELD_LIMIT = 128; // polls before parking
+
+	private static final long PARK_NANOS = 50000; // 50 microseconds
+
+	private static final int EXIT_CHECK_INTERVAL = 1024; // polls between checks for a crashed producer
+
+	// Unsafe is not part of the public API, its instance is looked up once and then called directly
+	private static final Unsafe UNSAFE;
+
+	private static final long BUFFER_ADDRESS_OFFSET; // of the address field of a direct buffer
+
+	private static final Method INVOKE_CLEANER; // Unsafe.invokeCleaner(ByteBuffer), Java 9 and later
+
+	private static final Method GET_CLEANER; // DirectBuffer.cleaner(), before Java 9
+
+	static {
+		Unsafe unsafe = null;
+		long bufferAddressOffset = -1;
+		try {
+			Field theUnsafe = Unsafe.class.getDeclaredField("theUnsafe");
+			theUnsafe.setAccessible(true);
+			unsafe = (Unsafe) theUnsafe.get(null);
+			bufferAddressOffset = unsafe.objectFieldOffset(Buffer.class.getDeclaredField("address"));
+		} catch (Throwable t) {
+			unsafe = null; // ring buffers are not supported
+		}
+		UNSAFE = unsafe;
+		BUFFER_ADDRESS_OFFSET = bufferAddressOffset;
+
+		Method invokeCleaner = null, getCleaner = null;
+		try {
+			invokeCleaner = Unsafe.class.getMethod("invokeCleaner", ByteBuffer.class);
+		} catch (Throwable t) {
+			try {
+				getCleaner = Class.forName("sun.nio.ch.DirectBuffer").getMethod("cleaner");
+			} catch (Throwable u) {
+				// the mappings are released by the garbage collector
+			}
+		}
+		INVOKE_CLEANER = invokeCleaner;
+		GET_CLEANER = getCleaner;
+	}
+
+	private final MappedByteBuffer buffer;
+
+	private final ByteBuffer data; // view for the bulk copies of this side
+
+	private final int capacity;
+
+	private final long address; // of the mapping
+
+	private long position; // the write position of the producer or the read position of the consumer
+
+	private boolean closed;
+
+	private MyriadRingBuffer(MappedByteBuffer buffer, int capacity) {
+		this.buffer = buffer;
+		this.buffer.order(ByteOrder.LITTLE_ENDIAN);
+		this.data = buffer.duplicate();
+		this.capacity = capacity;
+		this.address = UNSAFE.getLong(buffer, BUFFER_ADDRESS_OFFSET);
+		this.closed = false;
+	}
+
+	/**
+	 * @return true if the JVM supports the ordered accesses the ring relies on
+	 */
+	public static boolean isSupported() {
+		return UNSAFE != null && ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN;
+	}
+
+	/**
+	 * Unmaps the ring. Neither side may access the ring afterwards, the memory is no longer mapped.
+	 */
+	public void close() {
+		if (this.closed) {
+			return;
+		}
+		this.closed = true;
+		try {
+			if (INVOKE_CLEANER != null) {
+				INVOKE_CLEANER.invoke(UNSAFE, this.buffer);
+			} else if (GET_CLEANER != null) {
+				Object cleaner = GET_CLEANER.invoke(this.buffer);
+				if (cleaner != null) {
+					cleaner.getClass().getMethod("clean").invoke(cleaner);
+				}
+			}
+		} catch (Exception e) {
+			// leave the mapping to the garbage collector
+		}
+	}
+
+	/**
+	 * Creates the ring file and maps it (consumer side).
+	 * 
+	 * @param path
+	 * @param capacity the size of the data area, a power of two
+	 * @return
+	 * @throws IOException
+	 */
+	public static MyriadRingBuffer create(File path, int capacity) throws IOException {
+		checkSupported();
+		if (capacity <= 0 || (capacity & (capacity - 1)) != 0) {
+			throw new IllegalArgumentException("Ring capacity must be a power of two");
+		}
+		RandomAccessFile file = new RandomAccessFile(path, "rw");
+		try {
+			file.setLength(HEADER_SIZE + (long) capacity);
+			MyriadRingBuffer ring = new MyriadRingBuffer(file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0,
+				HEADER_SIZE + (long) capacity), capacity);
+			ring.buffer.putInt(VERSION_OFFSET, VERSION);
+			ring.buffer.putLong(CAPACITY_OFFSET, capacity);
+			ring.buffer.putInt(DATA_OFFSET_OFFSET, HEADER_SIZE);
+			ring.putOrderedInt(MAGIC_OFFSET, MAGIC); // written last, the header is complete
+			return ring;
+		} finally {
+			file.close(); // the mapping stays valid
+		}
+	}
+
+	/**
+	 * Maps an existing ring file and attaches to it as the producer.
+	 * 
+	 * @param path
+	 * @return
+	 * @throws IOException if the file is not a ring of a supported version
+	 */
+	public static MyriadRingBuffer attach(File path) throws IOException {
+		checkSupported();
+		RandomAccessFile file = new RandomAccessFile(path, "rw");
+		try {
+			MappedByteBuffer buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, file.length());
+			buffer.order(ByteOrder.LITTLE_ENDIAN);
+			if (buffer.getInt(MAGIC_OFFSET) != MAGIC || buffer.getInt(VERSION_OFFSET) != VERSION
+				|| buffer.getInt(DATA_OFFSET_OFFSET) != HEADER_SIZE) {
+				throw new IOException("Not a ring buffer of version " + VERSION + ": " + path);
+			}
+			MyriadRingBuffer ring = new MyriadRingBuffer(buffer, (int) buffer.getLong(CAPACITY_OFFSET));
+			ring.putOrderedInt(PRODUCER_STATE_OFFSET, PRODUCER_ATTACHED);
+			return ring;
+		} finally {
+			file.close();
+		}
+	}
+
+	/**
+	 * @return the state of the producer (see the header layout)
+	 */
+	public int getProducerState() {
+		return getIntVolatile(PRODUCER_STATE_OFFSET);
+	}
+
+	/**
+	 * Copies the given bytes into the ring, waiting for the consumer to free space as needed (producer side).
+	 * 
+	 * @param bytes
+	 * @param offset
+	 * @param length
+	 * @throws IOException if the consumer closed the ring, the ring is unmapped or the thread was interrupted
+	 */
+	public void write(byte[] bytes, int offset, int length) throws IOException {
+		checkOpen();
+		int idle = 0;
+		while (length > 0) {
+			// the consumer is done with the bytes before its published read position
+			long free = this.capacity - (this.position - getLongVolatile(READ_POSITION_OFFSET));
+			if (free == 0) {
+				if (getIntVolatile(CONSUMER_STATE_OFFSET) != 0) {
+					throw new IOException("Ring buffer closed by the consumer");
+				}
+				backOff(idle++);
+				continue;
+			}
+			idle = 0;
+
+			int index = (int) (this.position & (this.capacity - 1));
+			int n = (int) Math.min(Math.min(length, free), this.capacity - index); // up to the end of the ring
+			this.data.limit(HEADER_SIZE + index + n).position(HEADER_SIZE + index);
+			this.data.put(bytes, offset, n);
+			offset += n;
+			length -= n;
+			this.position += n;
+
+			putOrderedLong(WRITE_POSITION_OFFSET, this.position); // publish after the data
+		}
+	}
+
+	/**
+	 * Marks the end of the stream (producer side).
+	 */
+	public void closeProducer() {
+		if (this.closed) {
+			return; // the mapping is gone
+		}
+		putOrderedInt(PRODUCER_STATE_OFFSET, PRODUCER_CLOSED); // ordered after the last write position
+	}
+
+	/**
+	 * Copies the available bytes into the given buffer, waiting for the producer if the ring is empty (consumer
+	 * side). Busy polls first, then yields and finally parks between polls.
+	 * 
+	 * @param dst
+	 * @param process the producer process, the stream ends if it exits without closing the ring (may be null)
+	 * @return the number of bytes read or -1 at the end of the stream
+	 * @throws IOException if the ring is unmapped or the thread was interrupted
+	 */
+	public int read(ByteBuffer dst, Process process) throws IOException {
+		checkOpen();
+		if (!dst.hasRemaining()) {
+			return 0;
+		}
+		int idle = 0;
+		while (true) {
+			// the state is loaded before the position, a closed producer published its last position before
+			int state = getIntVolatile(PRODUCER_STATE_OFFSET);
+			long available = getLongVolatile(WRITE_POSITION_OFFSET) - this.position;
+			if (available > 0) {
+				int index = (int) (this.position & (this.capacity - 1));
+				int n = (int) Math.min(Math.min(dst.remaining(), available), this.capacity - index);
+				this.data.limit(HEADER_SIZE + index + n).position(HEADER_SIZE + index);
+				dst.put(this.data);
+				this.position += n;
+
+				putOrderedLong(READ_POSITION_OFFSET, this.position); // publish after the data
+				return n;
+			}
+			if (state == PRODUCER_CLOSED) {
+				return -1; // the state was read before the position, no bytes follow
+			}
+			if (idle >= YIELD_LIMIT && idle % EXIT_CHECK_INTERVAL == 0 && process != null
+				&& MyriadTransport.hasExited(process)) {
+				// a crashed producer ends the stream, as a closed socket would
+				if (getLongVolatile(WRITE_POSITION_OFFSET) == this.position) {
+					return -1;
+				}
+				continue;
+			}
+			backOff(idle++);
+		}
+	}
+
+	/**
+	 * Tells the producer that no more bytes will be consumed (consumer side).
+	 */
+	public void closeConsumer() {
+		if (this.closed) {
+			return; // the mapping is gone
+		}
+		putOrderedInt(CONSUMER_STATE_OFFSET, 1);
+	}
+
+	private static void backOff(int idle) throws InterruptedIOException {
+		if (idle < SPIN_LIMIT) {
+			return;
+		} else if (idle < YIELD_LIMIT) {
+			Thread.yield();
+		} else {
+			LockSupport.parkNanos(PARK_NANOS);
+		}
+		if (Thread.interrupted()) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting on the ring buffer");
+		}
+	}
+
+	private static void checkSupported() throws IOException {
+		if (!isSupported()) {
+			throw new IOException("Ring buffers are not supported on this JVM");
+		}
+	}
+
+	private void checkOpen() throws IOException {
+		if (this.closed) {
+			throw new IOException("Ring buffer is unmapped");
+		}
+	}
+
+	private int getIntVolatile(int offset) {
+		return UNSAFE.getIntVolatile(null, this.address + offset);
+	}
+
+	private void putOrderedInt(int offset, int value) {
+		UNSAFE.putOrderedInt(null, this.address + offset, value);
+	}
+
+	private long getLongVolatile(int offset) {
+		return UNSAFE.getLongVolatile(null, this.address + offset);
+	}
+
+	private void putOrderedLong(int offset, long value) {
+		UNSAFE.putOrderedLong(null, this.address + offset, value);
+	}
+}
@@ -0,0 +1,150 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.myriad.driver.reader;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * A shared memory transport. The reader creates a {@link MyriadRingBuffer} file (under <code>/dev/shm</code> if
+ * available, otherwise in the task working directory) and the generator attaches to it (<code>-t ring[path]</code>).
+ * Records are exchanged through the mapping without a system call per buffer.
+ * 
+ * @author Alexander Alexandrov (alexander.alexandrov@tu-berlin.de)
+ */
+public class MyriadRingTransport extends MyriadTransport {
+
+	public static final int DEFAULT_CAPACITY = 16777216; // 16MB
+
+	private final File path;
+
+	private final MyriadRingBuffer ring;
+
+	public MyriadRingTransport(File path, int capacity) throws IOException {
+		this.path = path;
+		try {
+			this.ring = MyriadRingBuffer.create(path, capacity);
+		} catch (IOException e) {
+			path.delete();
+			throw e;
+		}
+	}
+
+	/**
+	 * @return the directory for ring files, <code>/dev/shm</code> if it is writable
+	 */
+	static File getRingDir() {
+		File shm = new File("/dev/shm");
+		return shm.isDirectory() && shm.canWrite() ? shm : new File(System.getProperty("user.dir"));
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see eu.stratosphere.myriad.driver.reader.MyriadTransport#getOutputType()
+	 */
+	@Override
+	public String getOutputType() {
+		return "ring[" + this.path.getAbsolutePath() + "]";
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see eu.stratosphere.myriad.driver.reader.MyriadTransport#connect(java.lang.Process, long)
+	 */
+	@Override
+	public ReadableByteChannel connect(Process process, long timeout) throws IOException {
+		long deadline = timeout > 0 ? System.currentTimeMillis() + timeout : Long.MAX_VALUE;
+		while (this.ring.getProducerState() == MyriadRingBuffer.PRODUCER_WAITING) {
+			if (hasExited(process)) {
+				if (this.ring.getProducerState() != MyriadRingBuffer.PRODUCER_WAITING) {
+					break; // the generator attached right before exiting
+				}
+				throw new IOException(String.format("Generator exited with code %d before attaching to the ring",
+					process.exitValue()));
+			}
+			if (System.currentTimeMillis() >= deadline) {
+				throw new InterruptedIOException(String.format("Generator did not attach to the ring within %d ms",
+					timeout));
+			}
+			try {
+				Thread.sleep(1);
+			} catch (InterruptedException e) {
+				throw new InterruptedIOException("Interrupted while waiting for the generator");
+			}
+		}
+		this.path.delete(); // both sides mapped the file, the name is no longer needed
+		return new RingChannel(this.ring, process);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see eu.stratosphere.myriad.driver.reader.MyriadTransport#close()
+	 */
+	@Override
+	public void close() {
+		this.ring.close(); // the channel is closed before the transport
+		this.path.delete();
+	}
+
+	private static final class RingChannel implements ReadableByteChannel {
+
+		private final MyriadRingBuffer ring;
+
+		private final Process process;
+
+		private boolean open;
+
+		public RingChannel(MyriadRingBuffer ring, Process process) {
+			this.ring = ring;
+			this.process = process;
+			this.open = true;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see java.nio.channels.ReadableByteChannel#read(java.nio.ByteBuffer)
+		 */
+		@Override
+		public int read(ByteBuffer dst) throws IOException {
+			if (!this.open) {
+				throw new ClosedChannelException();
+			}
+			return this.ring.read(dst, this.process);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see java.nio.channels.Channel#isOpen()
+		 */
+		@Override
+		public boolean isOpen() {
+			return this.open;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see java.nio.channels.Channel#close()
+		 */
+		@Override
+		public void close() {
+			this.open = false;
+			this.ring.closeConsumer();
+		}
+	}
+}
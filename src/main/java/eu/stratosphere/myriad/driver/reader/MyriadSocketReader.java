@@ -15,12 +15,12 @@
 package eu.stratosphere.myriad.driver.reader;
 
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.UnsupportedEncodingException;
-import java.net.ServerSocket;
-import java.net.Socket;
+import java.nio.channels.ReadableByteChannel;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 
@@ -39,7 +39,9 @@ import eu.stratosphere.myriad.driver.parameters.SocketReaderParameters;
  */
 public class MyriadSocketReader {
 	
-	private static int BUFFER_SIZE = 4194304; // 4MB buffer
+	private static int BUFFER_SIZE = 1048576; // 1MB buffer
+
+	private static final String TIME_COMMAND = findTimeCommand(); // null if no GNU time is installed
 
 	private final String nodePath;
 
@@ -55,24 +57,50 @@ public class MyriadSocketReader {
 
 	private final int nodeID;
 
-	private final int serverSocketPort;
+	private final MyriadTransport transport;
+
+	private final int connections;
+
+	private final ReadableByteChannel[] channels;
 
-	private final ServerSocket serverSocket;
+	private final MyriadMergedChannel mergedChannel;
 
-	private final Socket clientSocket;
+	private final String heartBeatServerHost;
 
 	private final int heartBeatServerPort;
 
 	private final Server heartBeatServer;
 
-	private final BufferedReader inputReader;
+	private final MyriadHeartBeatServer sharedHeartBeatServer;
+
+	private final MyriadPrefetchChannel prefetchChannel;
+
+	private final MyriadLineReader[] inputReaders; // one per record stream
 
-	private float dgenProgress = 0.0f;
+	private final MyriadRecordFilter[] recordFilters; // one per record stream, null without a reader-side pushdown
+
+	private final String generatorProjection; // pushed down to the generator
+
+	private final String generatorPredicate;
+
+	private final MyriadRecord currentRecord;
+
+	private final MyriadProgressTracker dgenProgress;
 
 	private final Process dgenProcess;
 
 	private final Thread dgenReaderThread;
 
+	private int dgenExitValue; // the exit code of a generator that was not stopped by the reader
+
+	private final File timeOutput; // null if the generator runs without the time wrapper
+
+	private MyriadGeneratorTimes dgenTimes;
+
+	private final MyriadLaunchTimes launchTimes;
+
+	private long acceptedNanos;
+
 	/**
 	 * Initializes MyriadSocketReader.
 	 * 
@@ -87,27 +115,57 @@ public class MyriadSocketReader {
 		this.scalingFactor = parameters.getScalingFactor();
 		this.nodeCount = parameters.getNodeCount();
 		this.nodeID = parameters.getNodeID();
+		this.connections = parameters.getConnections();
+
+		// push the projection and the predicate down to the generator if it supports them, else apply them here
+		MyriadRecordFilter recordFilter = MyriadRecordFilter.create(parameters);
+		if (recordFilter != null && parameters.isGeneratorPushdown()) {
+			this.generatorProjection = recordFilter.getProjectionSpec();
+			this.generatorPredicate = recordFilter.getPredicateSpec();
+			recordFilter = null;
+		} else {
+			this.generatorProjection = null;
+			this.generatorPredicate = null;
+		}
+		this.dgenProgress = new MyriadProgressTracker(String.format("stage `%s` node %d", this.stage, this.nodeID));
+		this.launchTimes = new MyriadLaunchTimes();
 
-		// open SocketReader server at input socket number
+		// open the transport the generator writes into
+		long phaseStart = System.nanoTime();
 		try {
-			this.serverSocket = new ServerSocket(0);
-			this.serverSocketPort = this.serverSocket.getLocalPort();
+			this.transport = MyriadTransport.open(parameters.getTransport(), String.format("myriad-%s-%d-%d",
+				this.stage, this.nodeID, phaseStart), this.connections);
 		} catch (IOException e) {
 			cleanup();
-			throw new RuntimeException("Could not open reader server socket.");
+			throw new RuntimeException("Could not open reader transport: " + e.getMessage());
 		}
+		this.launchTimes.set(MyriadLaunchTimes.Phase.BIND, phaseStart, phaseStart = System.nanoTime());
 
-		// open heartbeat HTTP server
+		// register with the shared heartbeat server (if it can tell the readers apart on this host) or open a heartbeat
+		// HTTP server of our own
 		try {
-			org.mortbay.log.Log.setLog(null); // disable the jetty log
-			this.heartBeatServer = new Server(0);
-			this.heartBeatServer.setHandler(new HeartBeatHandler());
-			this.heartBeatServer.start();
-			this.heartBeatServerPort = this.heartBeatServer.getConnectors()[0].getLocalPort();
+			if (parameters.isSharedHeartBeat() && MyriadHeartBeatServer.isSupported()) {
+				this.sharedHeartBeatServer = MyriadHeartBeatServer.getShared();
+				this.heartBeatServer = null;
+				this.heartBeatServerHost = this.sharedHeartBeatServer.register(this.dgenProgress);
+				this.heartBeatServerPort = this.sharedHeartBeatServer.getPort();
+			} else {
+				org.mortbay.log.Log.setLog(null); // disable the jetty log
+				this.sharedHeartBeatServer = null;
+				this.heartBeatServer = new Server(0);
+				this.heartBeatServer.setHandler(new HeartBeatHandler());
+				this.heartBeatServer.start();
+				this.heartBeatServerHost = "localhost";
+				this.heartBeatServerPort = this.heartBeatServer.getConnectors()[0].getLocalPort();
+			}
 		} catch (Exception e) {
 			cleanup();
 			throw new RuntimeException("Could not open heart beat server socket.");
 		}
+		this.launchTimes.set(MyriadLaunchTimes.Phase.HEARTBEAT, phaseStart, phaseStart = System.nanoTime());
+
+		// record the process times in a file unique to this run, readers of other stages may share the JVM
+		this.timeOutput = createTimeOutput();
 
 		// start data generator process
 		try {
@@ -116,24 +174,59 @@ public class MyriadSocketReader {
 			cleanup();
 			throw new RuntimeException("Failed to start data generator process.");
 		}
+		this.launchTimes.set(MyriadLaunchTimes.Phase.EXEC, phaseStart, phaseStart = System.nanoTime());
 
-		// create client socket from socket server
+		// wait for the generator to connect
 		try {
-			this.clientSocket = this.serverSocket.accept();
+			this.channels = this.transport.connectAll(this.dgenProcess, parameters.getAcceptTimeout());
 		} catch (IOException e) {
+			this.dgenProcess.destroy(); // do not wait for a generator that did not connect
 			cleanup();
-			throw new RuntimeException("Failed to open receiver socket.");
+			throw new RuntimeException("Failed to open receiver socket: " + e.getMessage());
 		}
-
-		// create input reader for client socket
-		try {
-			this.inputReader = new BufferedReader(new InputStreamReader(this.clientSocket.getInputStream()),
+		this.acceptedNanos = System.nanoTime();
+		this.launchTimes.set(MyriadLaunchTimes.Phase.ACCEPT, phaseStart, this.acceptedNanos);
+
+		// create input readers for the transport channels (optionally behind a read-ahead stage)
+		if (this.channels.length > 1 && parameters.getStreamMerge().equals("none")) {
+			this.prefetchChannel = null;
+			this.mergedChannel = null;
+			this.inputReaders = new MyriadLineReader[this.channels.length];
+			for (int i = 0; i < this.channels.length; i++) {
+				this.inputReaders[i] = new MyriadLineReader(this.channels[i], MyriadSocketReader.BUFFER_SIZE);
+			}
+		} else if (this.channels.length > 1) {
+			// the drain threads of the merge already read ahead
+			this.prefetchChannel = null;
+			this.mergedChannel = new MyriadMergedChannel(this.channels, parameters.getStreamMerge().equals(
+				"connection"), MyriadSocketReader.BUFFER_SIZE);
+			this.inputReaders = new MyriadLineReader[] { new MyriadLineReader(this.mergedChannel,
+				MyriadSocketReader.BUFFER_SIZE) };
+		} else if (parameters.getPrefetchBuffers() > 0) {
+			this.prefetchChannel = new MyriadPrefetchChannel(this.channels[0], parameters.getPrefetchBuffers(),
 				MyriadSocketReader.BUFFER_SIZE);
-		} catch (IOException e) {
-			cleanup();
-			throw new RuntimeException("Failed to open input stream.");
+			this.mergedChannel = null;
+			this.inputReaders = new MyriadLineReader[] { new MyriadLineReader(this.prefetchChannel,
+				MyriadSocketReader.BUFFER_SIZE) };
+		} else {
+			this.prefetchChannel = null;
+			this.mergedChannel = null;
+			this.inputReaders = new MyriadLineReader[] { new MyriadLineReader(this.channels[0],
+				MyriadSocketReader.BUFFER_SIZE) };
+		}
+
+		if (recordFilter != null) {
+			this.recordFilters = new MyriadRecordFilter[this.inputReaders.length];
+			this.recordFilters[0] = recordFilter;
+			for (int i = 1; i < this.recordFilters.length; i++) {
+				this.recordFilters[i] = MyriadRecordFilter.create(parameters);
+			}
+		} else {
+			this.recordFilters = null;
 		}
 
+		this.currentRecord = new MyriadRecord();
+
 		// create reader thread for the process (ignores the stdout)
 		this.dgenReaderThread = new Thread(new MyriadDGenRunner());
 		this.dgenReaderThread.start();
@@ -143,69 +236,285 @@ public class MyriadSocketReader {
 	 * @return
 	 */
 	public float getProgress() {
-		synchronized (this.dgenProcess) {
-			return this.dgenProgress;
+		return this.dgenProgress.getProgress();
+	}
+
+	/**
+	 * @return the progress tracker with the derived generation rate and remaining time
+	 */
+	public MyriadProgressTracker getProgressTracker() {
+		return this.dgenProgress;
+	}
+
+	/**
+	 * @return the read-ahead stage or null if read-ahead is disabled
+	 */
+	public MyriadPrefetchChannel getPrefetchChannel() {
+		return this.prefetchChannel;
+	}
+
+	/**
+	 * @return the number of independent record streams (one unless several connections are read unmerged)
+	 */
+	public int getStreamCount() {
+		return this.inputReaders.length;
+	}
+
+	/**
+	 * Points the given record view to the next line. The view is valid until the next call.
+	 * 
+	 * @param record
+	 * @return false if the data generator output has been exhausted
+	 */
+	public boolean next(MyriadRecord record) throws IOException {
+		return next(getInputReader(), 0, record);
+	}
+
+	/**
+	 * Points the given record view to the next line of the given stream. The view is valid until the next call on
+	 * the same stream. Different streams may be read by different threads.
+	 * 
+	 * @param stream
+	 * @param record
+	 * @return false if the stream has been exhausted
+	 */
+	public boolean next(int stream, MyriadRecord record) throws IOException {
+		return next(this.inputReaders[stream], stream, record);
+	}
+
+	/**
+	 * Reads the next line that passes the record filter of the stream.
+	 */
+	private boolean next(MyriadLineReader inputReader, int stream, MyriadRecord record) throws IOException {
+		if (this.recordFilters == null) {
+			return inputReader.readLine(record);
+		}
+		MyriadRecordFilter recordFilter = this.recordFilters[stream];
+		while (inputReader.readLine(record)) {
+			if (recordFilter.apply(record)) {
+				return true;
+			}
 		}
+		return false;
 	}
 
 	/**
-	 * @param key
-	 * @param value
-	 * @return
+	 * Fills the given batch with the next records. The batch is valid until the next call.
+	 * 
+	 * @param batch
+	 * @return false if the data generator output has been exhausted
+	 */
+	public boolean nextBatch(MyriadRecordBatch batch) throws IOException {
+		checkUnfiltered();
+		return getInputReader().readLines(batch);
+	}
+
+	/**
+	 * Points the given view to the next chunk of raw generator output. Chunks do not respect record boundaries. The
+	 * view is valid until the next call.
+	 * 
+	 * @param chunk
+	 * @return false if the data generator output has been exhausted
+	 */
+	public boolean nextChunk(MyriadRecord chunk) throws IOException {
+		checkUnfiltered();
+		return getInputReader().readChunk(chunk);
+	}
+
+	/**
+	 * Points the given view to the next chunk of raw output of the given stream.
+	 * 
+	 * @param stream
+	 * @param chunk
+	 * @return false if the stream has been exhausted
+	 */
+	public boolean nextChunk(int stream, MyriadRecord chunk) throws IOException {
+		checkUnfiltered();
+		return this.inputReaders[stream].readChunk(chunk);
+	}
+
+	/**
+	 * @return the next line as a string or null if the data generator output has been exhausted
 	 */
 	public String next() throws IOException {
-		return this.inputReader.readLine();
+		if (!next(this.currentRecord)) {
+			return null;
+		}
+		return this.currentRecord.toString();
+	}
+
+	/**
+	 * @return the number of bytes received from the data generator
+	 */
+	public long getBytesRead() {
+		long bytesRead = 0;
+		for (MyriadLineReader inputReader : this.inputReaders) {
+			bytesRead += inputReader.getBytesRead();
+		}
+		return bytesRead;
+	}
+
+	/**
+	 * @return the number of records received from the data generator
+	 */
+	public long getRecordsRead() {
+		long recordsRead = 0;
+		for (MyriadLineReader inputReader : this.inputReaders) {
+			recordsRead += inputReader.getRecordsRead();
+		}
+		return recordsRead;
+	}
+
+	/**
+	 * @return the number of received records dropped by the reader-side predicate
+	 */
+	public long getRecordsDropped() {
+		long recordsDropped = 0;
+		if (this.recordFilters != null) {
+			for (MyriadRecordFilter recordFilter : this.recordFilters) {
+				recordsDropped += recordFilter.getDroppedRecords();
+			}
+		}
+		return recordsDropped;
 	}
 
 	/**
+	 * @return the time (in milliseconds) spent waiting for data from the data generator, summed over all streams
+	 */
+	public long getReadWaitTime() {
+		long readWaitNanos = 0;
+		for (MyriadLineReader inputReader : this.inputReaders) {
+			readWaitNanos += inputReader.getReadWaitNanos();
+		}
+		return readWaitNanos / 1000000L;
+	}
+
+	/**
+	 * @return the generator process times (available after {@link #close()})
+	 */
+	public MyriadGeneratorTimes getGeneratorTimes() {
+		return this.dgenTimes != null ? this.dgenTimes : new MyriadGeneratorTimes(0, 0, 0);
+	}
+
+	/**
+	 * @return the durations of the generator run phases (complete after {@link #close()})
+	 */
+	public MyriadLaunchTimes getLaunchTimes() {
+		return this.launchTimes;
+	}
+
+	/**
+	 * Stops the reader and waits for the generator process to exit.
 	 * 
+	 * @throws IOException if the generator exited with an error, its output may be incomplete
 	 */
-	public void close() {
+	public void close() throws IOException {
 		cleanup();
+		if (this.prefetchChannel != null) {
+			System.out.println(String.format(
+				"Read-ahead for stage `%s` node %d: average queue depth %.2f/%d, waited %d ms for the consumer, waited %d ms for the generator",
+				this.stage, this.nodeID, this.prefetchChannel.getAverageQueueDepth(),
+				this.prefetchChannel.getQueueCapacity(), this.prefetchChannel.getProducerStallTime(),
+				this.prefetchChannel.getConsumerStallTime()));
+		}
+		// a crashed generator closes its output like a finished one, only the exit code tells them apart
+		if (this.dgenExitValue != 0) {
+			throw new IOException(String.format("Data generator for stage `%s` node %d exited with code %d",
+				this.stage, this.nodeID, this.dgenExitValue));
+		}
 	}
 
 	/**
 	 * 
 	 */
 	private void cleanup() {
+		// an interrupted reader stops the generator instead of waiting for it
+		boolean interrupted = Thread.interrupted();
+		long cleanupStart = System.nanoTime();
 		try {
+			if (interrupted && this.dgenProcess != null) {
+				this.dgenProcess.destroy();
+			}
 			// wait for reader thread to close
 			if (this.dgenReaderThread != null) {
 				this.dgenReaderThread.join(3000); // give the dgen process three seconds to finish
 			}
 			// close dgen process
 			if (this.dgenProcess != null) {
+				int exitValue;
 				try {
-					this.dgenProcess.exitValue(); // do nothing if already terminated
+					exitValue = this.dgenProcess.exitValue(); // do nothing if already terminated
 				} catch (IllegalThreadStateException e) {
-					this.dgenProcess.waitFor();
+					exitValue = this.dgenProcess.waitFor();
 					// this.dgenProcess.destroy(); // else brute-force terminate
 				}
+				if (!interrupted) {
+					this.dgenExitValue = exitValue; // a generator stopped above exits with an error
+				}
 			}
-			// close input stream
-			if (this.inputReader != null) {
-				this.inputReader.close();
+			if (this.inputReaders != null) {
+				// the transfer spans from the earliest first byte to the latest end of stream
+				long firstByteNanos = 0;
+				long eofNanos = 0;
+				for (MyriadLineReader inputReader : this.inputReaders) {
+					if (firstByteNanos == 0 || inputReader.getFirstByteNanos() != 0
+						&& inputReader.getFirstByteNanos() < firstByteNanos) {
+						firstByteNanos = inputReader.getFirstByteNanos();
+					}
+					eofNanos = Math.max(eofNanos, inputReader.getEofNanos());
+				}
+				this.launchTimes.set(MyriadLaunchTimes.Phase.FIRST_BYTE, this.acceptedNanos, firstByteNanos);
+				this.launchTimes.set(MyriadLaunchTimes.Phase.TRANSFER, firstByteNanos, eofNanos);
+				this.launchTimes.set(MyriadLaunchTimes.Phase.EXIT, eofNanos, System.nanoTime());
 			}
-			// close client socket
-			if (this.clientSocket != null) {
-				this.clientSocket.close();
+			// close input streams
+			if (this.inputReaders != null) {
+				for (MyriadLineReader inputReader : this.inputReaders) {
+					inputReader.close();
+				}
+			}
+			// close the transport channels
+			if (this.mergedChannel != null) {
+				this.mergedChannel.close();
+			}
+			if (this.channels != null) {
+				for (ReadableByteChannel channel : this.channels) {
+					channel.close();
+				}
 			}
 			// close heartbeat server
 			if (this.heartBeatServer != null) {
 				this.heartBeatServer.setGracefulShutdown(1000); // stop after 1 second
 			}
-			// close server socket
-			if (this.serverSocket != null) {
-				this.serverSocket.close();
+			if (this.sharedHeartBeatServer != null && this.heartBeatServerHost != null) {
+				this.sharedHeartBeatServer.unregister(this.heartBeatServerHost);
+			}
+			// close the transport
+			if (this.transport != null) {
+				this.transport.close();
 			}
 			// wait for reader thread to close
 			if (this.dgenReaderThread != null) {
 				this.dgenReaderThread.join();
 			}
+			// collect the process times recorded by the time wrapper
+			if (this.timeOutput != null) {
+				if (this.dgenProcess != null) {
+					this.dgenTimes = MyriadGeneratorTimes.parse(this.timeOutput);
+				}
+				this.timeOutput.delete();
+			}
 		} catch (InterruptedException e) {
 			e.printStackTrace();
 		} catch (IOException e) {
 			e.printStackTrace();
+		} finally {
+			if (this.launchTimes != null) {
+				this.launchTimes.set(MyriadLaunchTimes.Phase.CLEANUP, cleanupStart, System.nanoTime());
+			}
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
 		}
 	}
 
@@ -229,12 +538,29 @@ public class MyriadSocketReader {
 		}
 	}
 
+	/**
+	 * @return a new file where the time wrapper records the generator process times, or null if the generator is
+	 *         started without the time wrapper
+	 */
+	private File createTimeOutput() {
+		if (TIME_COMMAND == null) {
+			return null;
+		}
+		try {
+			return File.createTempFile(String.format("myriad-%s-%d-", this.stage, this.nodeID), ".time");
+		} catch (IOException e) {
+			return null; // run without process times
+		}
+	}
+
 	/**
 	 * @return
 	 */
 	private String getDGenCommand() {
 		StringBuffer sb = new StringBuffer();
-		sb.append("time --output=/tmp/").append(this.datasetID).append(".").append(this.nodeID).append(".txt ");
+		if (this.timeOutput != null) {
+			sb.append(TIME_COMMAND).append(" --output=").append(this.timeOutput.getPath()).append(" ");
+		}
 		sb.append(this.nodePath).append(" ");
 		sb.append(" -s").append(this.scalingFactor);
 		sb.append(" -i").append(this.nodeID);
@@ -242,18 +568,97 @@ public class MyriadSocketReader {
 		sb.append(" -m").append(this.datasetID);
 		sb.append(" -x").append(this.stage);
 		sb.append(" -o").append(this.outputBase);
-		sb.append(" -t").append("socket[" + this.serverSocketPort + "]");
-		sb.append(" -H").append("localhost");
+		sb.append(" -t").append(this.transport.getOutputType());
+		if (this.connections > 1) {
+			sb.append(" -c").append(this.connections);
+		}
+		if (this.generatorProjection != null) {
+			sb.append(" -k").append(this.generatorProjection);
+		}
+		if (this.generatorPredicate != null) {
+			sb.append(" -w").append(this.generatorPredicate);
+		}
+		sb.append(" -H").append(this.heartBeatServerHost);
 		sb.append(" -P").append(this.heartBeatServerPort);
 		return sb.toString();
 	}
 
+	/**
+	 * Batches and raw chunks bypass the record filter, so they cannot be combined with a reader-side pushdown.
+	 */
+	private void checkUnfiltered() {
+		if (this.recordFilters != null) {
+			throw new IllegalStateException("Projections and filters apply only to single records");
+		}
+	}
+
+	/**
+	 * @return the reader of the single record stream
+	 */
+	private MyriadLineReader getInputReader() {
+		if (this.inputReaders.length != 1) {
+			throw new IllegalStateException("Reader has " + this.inputReaders.length + " independent streams");
+		}
+		return this.inputReaders[0];
+	}
+
+	/**
+	 * Looks up the GNU <code>time</code> wrapper that records the generator process times. Other implementations (BSD,
+	 * busybox) reject the <code>--output</code> option, so the executable found on the PATH is probed once with a dry
+	 * run. Without a usable wrapper the generator is started directly and the process times are reported as zero.
+	 * 
+	 * @return the path of the time executable or null if no GNU time is on the PATH
+	 */
+	private static String findTimeCommand() {
+		String time = null;
+		String path = System.getenv("PATH");
+		if (path != null) {
+			for (String dir : path.split(File.pathSeparator)) {
+				File candidate = new File(dir, "time");
+				if (candidate.isFile() && candidate.canExecute()) {
+					time = candidate.getPath();
+					break;
+				}
+			}
+		}
+		if (time == null) {
+			return null;
+		}
+
+		File probeOutput = null;
+		try {
+			probeOutput = File.createTempFile("myriad-probe-", ".time");
+			Process probe = new ProcessBuilder(time, "--output=" + probeOutput.getPath(), "true").redirectErrorStream(
+				true).start();
+			probe.getOutputStream().close();
+			InputStream in = probe.getInputStream();
+			byte[] buffer = new byte[1024];
+			while (in.read(buffer) >= 0) {
+				// discard the usage message of an incompatible time
+			}
+			in.close();
+			return probe.waitFor() == 0 && probeOutput.length() > 0 ? time : null;
+		} catch (IOException e) {
+			return null;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return null;
+		} finally {
+			if (probeOutput != null) {
+				probeOutput.delete();
+			}
+		}
+	}
+
 	private class MyriadDGenRunner implements Runnable {
 
 		@Override
 		public void run() {
 			try {
-				InputStream in = MyriadSocketReader.this.dgenProcess.getInputStream();
+				// drain the diagnostic output, which goes to stderr if the data is read from stdout
+				Process process = MyriadSocketReader.this.dgenProcess;
+				InputStream in = MyriadSocketReader.this.transport.isStdout() ? process.getErrorStream() : process
+					.getInputStream();
 				BufferedReader input = new BufferedReader(new InputStreamReader(in));
 				while (input.readLine() != null) {
 					// ignore the output
@@ -284,10 +689,7 @@ public class MyriadSocketReader {
 				}
 
 				if (progress != -1) {
-					synchronized (MyriadSocketReader.this.dgenProcess) {
-						MyriadSocketReader.this.dgenProgress = progress;
-					}
-					System.out.println("Progress is now " + MyriadSocketReader.this.dgenProgress);
+					MyriadSocketReader.this.dgenProgress.update(progress);
 				}
 
 				// write the response
@@ -0,0 +1,158 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.myriad.driver.reader;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+/**
+ * A loopback TCP transport. The generator connects to a reader server socket bound to an ephemeral port
+ * (<code>-t socket[port]</code>). A generator may open several connections, which are accepted in the order it opened
+ * them.
+ * 
+ * @author Alexander Alexandrov (alexander.alexandrov@tu-berlin.de)
+ */
+public class MyriadSocketTransport extends MyriadTransport {
+
+	private final ServerSocketChannel serverSocket;
+
+	private final int serverSocketPort;
+
+	private final int connections;
+
+	public MyriadSocketTransport() throws IOException {
+		this(1);
+	}
+
+	/**
+	 * Initializes MyriadSocketTransport for a generator that writes over several connections.
+	 * 
+	 * @param connections
+	 * @throws IOException
+	 */
+	public MyriadSocketTransport(int connections) throws IOException {
+		this.connections = connections;
+		this.serverSocket = ServerSocketChannel.open();
+		try {
+			this.serverSocket.socket().bind(new InetSocketAddress(0), Math.max(50, connections));
+		} catch (IOException e) {
+			this.serverSocket.close();
+			throw e;
+		}
+		this.serverSocketPort = this.serverSocket.socket().getLocalPort();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see eu.stratosphere.myriad.driver.reader.MyriadTransport#getOutputType()
+	 */
+	@Override
+	public String getOutputType() {
+		return "socket[" + this.serverSocketPort + "]";
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see eu.stratosphere.myriad.driver.reader.MyriadTransport#connect(java.lang.Process, long)
+	 */
+	@Override
+	public ReadableByteChannel connect(Process process, long timeout) throws IOException {
+		if (this.connections != 1) {
+			throw new IllegalStateException("Transport expects " + this.connections + " connections");
+		}
+		return connectAll(process, timeout)[0];
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see eu.stratosphere.myriad.driver.reader.MyriadTransport#connectAll(java.lang.Process, long)
+	 */
+	@Override
+	public ReadableByteChannel[] connectAll(Process process, long timeout) throws IOException {
+		SocketChannel[] clients = new SocketChannel[this.connections];
+		int accepted = 0;
+		long deadline = timeout > 0 ? System.currentTimeMillis() + timeout : Long.MAX_VALUE;
+		Selector selector = Selector.open();
+		try {
+			this.serverSocket.configureBlocking(false);
+			this.serverSocket.register(selector, SelectionKey.OP_ACCEPT);
+			while (true) {
+				accepted = accept(clients, accepted);
+				if (accepted == clients.length) {
+					return clients;
+				}
+
+				if (hasExited(process)) {
+					// the generator may have connected right before exiting
+					accepted = accept(clients, accepted);
+					if (accepted == clients.length) {
+						return clients;
+					}
+					throw new IOException(String.format(
+						"Generator exited with code %d after opening %d of %d connections", process.exitValue(),
+						accepted, clients.length));
+				}
+
+				long remaining = deadline - System.currentTimeMillis();
+				if (remaining <= 0) {
+					throw new SocketTimeoutException(String.format(
+						"Generator opened %d of %d connections within %d ms", accepted, clients.length, timeout));
+				}
+				// wake up at least once a second to notice a failed generator
+				selector.select(Math.min(remaining, 1000));
+				selector.selectedKeys().clear();
+			}
+		} catch (IOException e) {
+			for (int i = 0; i < accepted; i++) {
+				clients[i].close();
+			}
+			throw e;
+		} finally {
+			selector.close();
+		}
+	}
+
+	/**
+	 * Accepts all pending connections.
+	 * 
+	 * @param clients
+	 * @param accepted the number of connections accepted so far
+	 * @return the number of connections accepted after the call
+	 * @throws IOException
+	 */
+	private int accept(SocketChannel[] clients, int accepted) throws IOException {
+		SocketChannel client;
+		while (accepted < clients.length && (client = this.serverSocket.accept()) != null) {
+			client.configureBlocking(true);
+			clients[accepted++] = client;
+		}
+		return accepted;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see eu.stratosphere.myriad.driver.reader.MyriadTransport#close()
+	 */
+	@Override
+	public void close() throws IOException {
+		this.serverSocket.close();
+	}
+}
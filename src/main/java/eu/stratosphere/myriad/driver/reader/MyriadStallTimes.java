@@ -0,0 +1,110 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.myriad.driver.reader;
+
+import eu.stratosphere.myriad.driver.reader.MyriadLaunchTimes.Phase;
+
+/**
+ * Splits the time spent consuming a generator run into the parts that can stall the pipeline. Waiting on the socket
+ * and for the process exit are attributed to the generator, framing to the reader and the time outside the reader to
+ * the consumer (the mapper and output path). The startup phases before the first read are reported separately by the
+ * {@link MyriadLaunchTimes}.
+ * 
+ * @author Alexander Alexandrov (alexander.alexandrov@tu-berlin.de)
+ */
+public class MyriadStallTimes {
+
+	public enum Part {
+		SOCKET_WAIT, // blocked on the generator output (including the first byte)
+		FRAMING, // inside the reader, splitting the received bytes into records
+		COLLECTOR, // outside the reader, in the mapper and output path
+		EXIT_IDLE // after the end of the stream, waiting for the generator process to exit
+	}
+
+	private final long[] millis;
+
+	public MyriadStallTimes(long socketWait, long framing, long collector, long exitIdle) {
+		this.millis = new long[] { socketWait, framing, collector, exitIdle };
+	}
+
+	/**
+	 * Attributes the consumption times of a closed reader. Framing is the time spent inside the reader that was not
+	 * spent waiting on the socket.
+	 * 
+	 * @param reader the closed socket reader
+	 * @param readerNanos the time (in nanoseconds) spent inside the reader
+	 * @param collectorNanos the time (in nanoseconds) spent outside the reader between two reads
+	 * @return
+	 */
+	public static MyriadStallTimes of(MyriadSocketReader reader, long readerNanos, long collectorNanos) {
+		long socketWait = reader.getReadWaitTime();
+		return new MyriadStallTimes(socketWait, Math.max(0, readerNanos / 1000000L - socketWait),
+			collectorNanos / 1000000L, reader.getLaunchTimes().get(Phase.EXIT));
+	}
+
+	/**
+	 * @param part
+	 * @return the time spent in the given part in milliseconds
+	 */
+	public long get(Part part) {
+		return this.millis[part.ordinal()];
+	}
+
+	/**
+	 * @return the verdict for these times, see {@link #getVerdict(long, long, long, long)}
+	 */
+	public String getVerdict() {
+		return getVerdict(this.millis[0], this.millis[1], this.millis[2], this.millis[3]);
+	}
+
+	/**
+	 * Names the dominating bottleneck and its share of the total time, e.g. <code>generator-bound 78%</code>.
+	 * 
+	 * @param socketWait
+	 * @param framing
+	 * @param collector
+	 * @param exitIdle
+	 * @return
+	 */
+	public static String getVerdict(long socketWait, long framing, long collector, long exitIdle) {
+		long generator = socketWait + exitIdle;
+		long total = generator + framing + collector;
+		if (total <= 0) {
+			return "no data";
+		}
+
+		String bound = "generator-bound";
+		long max = generator;
+		if (framing > max) {
+			bound = "reader-bound";
+			max = framing;
+		}
+		if (collector > max) {
+			bound = "consumer-bound";
+			max = collector;
+		}
+		return String.format("%s %d%%", bound, Math.round(max * 100.0 / total));
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return String.format("socket wait %d ms, framing %d ms, collector %d ms, exit idle %d ms (%s)",
+			this.millis[0], this.millis[1], this.millis[2], this.millis[3], getVerdict());
+	}
+}
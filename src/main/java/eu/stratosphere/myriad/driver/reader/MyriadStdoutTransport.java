@@ -0,0 +1,133 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.myriad.driver.reader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * A transport over the standard output of the generator process (<code>-t stdout</code>). There is no server socket
+ * and no connection handshake, the reader starts reading as soon as the process is started. Diagnostic output of the
+ * generator has to go to stderr.
+ * <p>
+ * As there is no connection to wait for, a generator that fails before writing anything appears as an empty stream
+ * and the accept timeout does not apply.
+ * 
+ * @author Alexander Alexandrov (alexander.alexandrov@tu-berlin.de)
+ */
+public class MyriadStdoutTransport extends MyriadTransport {
+
+	/*
+	 * (non-Javadoc)
+	 * @see eu.stratosphere.myriad.driver.reader.MyriadTransport#getOutputType()
+	 */
+	@Override
+	public String getOutputType() {
+		return "stdout";
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see eu.stratosphere.myriad.driver.reader.MyriadTransport#isStdout()
+	 */
+	@Override
+	public boolean isStdout() {
+		return true;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see eu.stratosphere.myriad.driver.reader.MyriadTransport#connect(java.lang.Process, long)
+	 */
+	@Override
+	public ReadableByteChannel connect(Process process, long timeout) {
+		return new StreamChannel(process.getInputStream());
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see eu.stratosphere.myriad.driver.reader.MyriadTransport#close()
+	 */
+	@Override
+	public void close() {
+		// the process streams are closed with the channel
+	}
+
+	/**
+	 * Adapts the process output stream to a channel. Unlike {@link java.nio.channels.Channels#newChannel(InputStream)}
+	 * it reads straight into the array of heap buffers instead of copying through an 8KB transfer array, so large
+	 * reads bypass the buffer of the process stream.
+	 */
+	private static final class StreamChannel implements ReadableByteChannel {
+
+		private final InputStream in;
+
+		private boolean open;
+
+		public StreamChannel(InputStream in) {
+			this.in = in;
+			this.open = true;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see java.nio.channels.ReadableByteChannel#read(java.nio.ByteBuffer)
+		 */
+		@Override
+		public int read(ByteBuffer dst) throws IOException {
+			if (!this.open) {
+				throw new ClosedChannelException();
+			}
+			if (!dst.hasRemaining()) {
+				return 0;
+			}
+			if (dst.hasArray()) {
+				int n = this.in.read(dst.array(), dst.arrayOffset() + dst.position(), dst.remaining());
+				if (n > 0) {
+					dst.position(dst.position() + n);
+				}
+				return n;
+			}
+			byte[] bytes = new byte[Math.min(dst.remaining(), 65536)];
+			int n = this.in.read(bytes);
+			if (n > 0) {
+				dst.put(bytes, 0, n);
+			}
+			return n;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see java.nio.channels.Channel#isOpen()
+		 */
+		@Override
+		public boolean isOpen() {
+			return this.open;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see java.nio.channels.Channel#close()
+		 */
+		@Override
+		public void close() throws IOException {
+			this.open = false;
+			this.in.close();
+		}
+	}
+}
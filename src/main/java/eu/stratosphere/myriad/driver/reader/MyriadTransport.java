@@ -0,0 +1,132 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.myriad.driver.reader;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * The channel between a data generator process and its {@link MyriadSocketReader}. A transport is opened before the
+ * generator is started, tells the generator where to write (the value of its <code>-t</code> option) and hands out the
+ * reading end once the generator has opened the writing end.
+ * 
+ * @author Alexander Alexandrov (alexander.alexandrov@tu-berlin.de)
+ */
+public abstract class MyriadTransport {
+
+	/**
+	 * Opens the transport of the given type.
+	 * 
+	 * @param type <code>socket</code> for a loopback TCP socket, <code>pipe</code> for a named pipe,
+	 *        <code>stdout</code> for the standard output of the generator or <code>ring</code> for a shared memory
+	 *        ring buffer
+	 * @param name a name identifying the generator run, unique within the JVM
+	 * @return
+	 * @throws IOException
+	 */
+	public static MyriadTransport open(String type, String name) throws IOException {
+		return open(type, name, 1);
+	}
+
+	/**
+	 * Opens the transport of the given type for a generator that writes over several connections. Only the
+	 * <code>socket</code> transport supports more than one connection.
+	 * 
+	 * @param type
+	 * @param name
+	 * @param connections the number of connections opened by the generator
+	 * @return
+	 * @throws IOException
+	 */
+	public static MyriadTransport open(String type, String name, int connections) throws IOException {
+		if (connections < 1 || connections > 1 && !type.equals("socket")) {
+			throw new IllegalArgumentException(String.format("Transport `%s` does not support %d connections", type,
+				connections));
+		}
+		if (type.equals("socket")) {
+			return new MyriadSocketTransport(connections);
+		} else if (type.equals("pipe")) {
+			return new MyriadPipeTransport(new File(System.getProperty("user.dir"), name + ".fifo"));
+		} else if (type.equals("stdout")) {
+			return new MyriadStdoutTransport();
+		} else if (type.equals("ring")) {
+			return new MyriadRingTransport(new File(MyriadRingTransport.getRingDir(), name + ".ring"),
+				MyriadRingTransport.DEFAULT_CAPACITY);
+		} else {
+			throw new IllegalArgumentException("Unsupported transport `" + type + "`");
+		}
+	}
+
+	/**
+	 * @param type
+	 * @return true if {@link #open(String, String)} supports the given transport type
+	 */
+	public static boolean isSupported(String type) {
+		return type.equals("socket") || type.equals("pipe") || type.equals("stdout")
+			|| (type.equals("ring") && MyriadRingBuffer.isSupported());
+	}
+
+	/**
+	 * @return the output type passed to the generator (<code>-t</code> option)
+	 */
+	public abstract String getOutputType();
+
+	/**
+	 * @return true if the generator writes its data to stdout, in which case only stderr is left for diagnostics
+	 */
+	public boolean isStdout() {
+		return false;
+	}
+
+	/**
+	 * Waits for the generator to open the writing end of the transport.
+	 * 
+	 * @param process the generator process
+	 * @param timeout the maximal time to wait in milliseconds (0 waits forever)
+	 * @return the reading end
+	 * @throws IOException if the generator does not connect in time or exits before connecting
+	 */
+	public abstract ReadableByteChannel connect(Process process, long timeout) throws IOException;
+
+	/**
+	 * Waits for the generator to open all connections of the transport.
+	 * 
+	 * @param process the generator process
+	 * @param timeout the maximal time to wait in milliseconds (0 waits forever)
+	 * @return the reading ends in the order in which the generator opened them
+	 * @throws IOException if the generator does not connect in time or exits before connecting
+	 */
+	public ReadableByteChannel[] connectAll(Process process, long timeout) throws IOException {
+		return new ReadableByteChannel[] { connect(process, timeout) };
+	}
+
+	/**
+	 * Releases the resources of the transport. The channels returned by {@link #connect(Process, long)} are closed
+	 * separately.
+	 * 
+	 * @throws IOException
+	 */
+	public abstract void close() throws IOException;
+
+	static boolean hasExited(Process process) {
+		try {
+			process.exitValue();
+			return true;
+		} catch (IllegalThreadStateException e) {
+			return false;
+		}
+	}
+}
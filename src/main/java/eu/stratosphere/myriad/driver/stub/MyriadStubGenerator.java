@@ -0,0 +1,543 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.myriad.driver.stub;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.Socket;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import eu.stratosphere.myriad.driver.reader.MyriadRecordFilter;
+import eu.stratosphere.myriad.driver.reader.MyriadRingBuffer;
+
+/**
+ * A pure-Java stand-in for a Myriad data generator node (<code>&lt;dgen&gt;/bin/&lt;dgen&gt;-node</code>). The stub
+ * accepts the command line emitted by the socket reader and streams deterministic synthetic records of the form
+ * <code>&lt;id&gt;|&lt;payload&gt;</code> to the reader (through a socket, a named pipe, stdout or a shared memory
+ * ring), reporting its progress to the heartbeat server. Together with the install layout under
+ * <code>src/main/stub</code> it allows running the whole driver without a compiled data generator.
+ * <p>
+ * The generated stream is configured per stage in <code>config/&lt;dgen&gt;-node.properties</code>:
+ * <ul>
+ * <li><code>stub.&lt;stage&gt;.records</code> - number of records generated for s=1 (default 100000)</li>
+ * <li><code>stub.&lt;stage&gt;.record-size</code> - mean record size in bytes, without the line feed (default 100)</li>
+ * <li><code>stub.&lt;stage&gt;.record-size-deviation</code> - standard deviation of the normally distributed record
+ * size (default 0, i.e. fixed size records)</li>
+ * <li><code>stub.&lt;stage&gt;.rate</code> - maximal number of records per second and node (default 0, unlimited)</li>
+ * </ul>
+ * Each record is derived from its global ID only, so the union of the node outputs does not depend on the node count.
+ * With <code>-c&lt;K&gt;</code> (socket output only) the node opens K connections in turn and writes a contiguous
+ * range of its records over each of them in parallel. A projection (<code>-k&lt;fields&gt;</code>) and a predicate
+ * (<code>-w&lt;predicate&gt;</code>) passed for stages with <code>generator.&lt;stage&gt;.pushdown = true</code> are
+ * applied to the records before they are written (see {@link MyriadRecordFilter}).
+ * 
+ * @author Alexander Alexandrov (alexander.alexandrov@tu-berlin.de)
+ */
+public class MyriadStubGenerator {
+
+	private static final int BUFFER_SIZE = 1048576; // 1MB buffer
+
+	private static final int MAX_RECORD_SIZE = 65535;
+
+	private static final long HEARTBEAT_INTERVAL = 1000; // report progress every second
+
+	private static final Pattern SOCKET_PATTERN = Pattern.compile("socket\\[(\\d+)\\]");
+
+	private static final Pattern PIPE_PATTERN = Pattern.compile("pipe\\[(.+)\\]");
+
+	private static final Pattern RING_PATTERN = Pattern.compile("ring\\[(.+)\\]");
+
+	private static final byte[] ALPHABET = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789-_".getBytes();
+
+	private final long firstRecord;
+
+	private final long recordCount;
+
+	private final int recordSize;
+
+	private final double recordSizeDeviation;
+
+	private final long rate;
+
+	private final long stageSeed;
+
+	private final Random random;
+
+	private final String fields;
+
+	private String projection;
+
+	private String predicate;
+
+	private MyriadRecordFilter filter;
+
+	private volatile long generatedRecords;
+
+	public MyriadStubGenerator(Properties properties, String stage, double scalingFactor, int nodeCount, int nodeID) {
+		long totalRecords = Math.round(getLong(properties, stage, "records", 100000) * scalingFactor);
+
+		this.firstRecord = totalRecords * nodeID / nodeCount;
+		this.recordCount = totalRecords * (nodeID + 1) / nodeCount - this.firstRecord;
+		this.recordSize = (int) Math.min(MAX_RECORD_SIZE, getLong(properties, stage, "record-size", 100));
+		this.recordSizeDeviation = getDouble(properties, stage, "record-size-deviation", 0);
+		this.rate = getLong(properties, stage, "rate", 0);
+		this.stageSeed = stage.hashCode() * 0x9E3779B97F4A7C15L;
+		this.random = new Random();
+		this.fields = properties.getProperty(String.format("generator.%s.fields", stage));
+	}
+
+	private MyriadStubGenerator(MyriadStubGenerator parent, long firstRecord, long recordCount, long rate) {
+		this.firstRecord = firstRecord;
+		this.recordCount = recordCount;
+		this.recordSize = parent.recordSize;
+		this.recordSizeDeviation = parent.recordSizeDeviation;
+		this.rate = rate;
+		this.stageSeed = parent.stageSeed;
+		this.random = new Random();
+		this.fields = parent.fields;
+	}
+
+	/**
+	 * Splits the records of this node into contiguous ranges that can be generated in parallel. The rate is shared
+	 * among the parts.
+	 * 
+	 * @param parts
+	 * @return the generators of the ranges, in record order
+	 */
+	public MyriadStubGenerator[] split(int parts) {
+		MyriadStubGenerator[] generators = new MyriadStubGenerator[parts];
+		long rate = this.rate > 0 ? Math.max(1, this.rate / parts) : 0;
+		for (int i = 0; i < parts; i++) {
+			long first = this.recordCount * i / parts;
+			long next = this.recordCount * (i + 1) / parts;
+			generators[i] = new MyriadStubGenerator(this, this.firstRecord + first, next - first, rate);
+			if (this.filter != null) {
+				generators[i].setFilter(this.projection, this.predicate);
+			}
+		}
+		return generators;
+	}
+
+	/**
+	 * Drops the fields and records not selected by the given projection and predicate from the output.
+	 * 
+	 * @param projection the fields to keep or null to keep all fields
+	 * @param predicate the predicate on the records to keep or null to keep all records
+	 * @throws IllegalArgumentException if the projection or the predicate is malformed
+	 */
+	public void setFilter(String projection, String predicate) {
+		this.projection = projection;
+		this.predicate = predicate;
+		this.filter = new MyriadRecordFilter(projection, predicate, this.fields, '|');
+	}
+
+	/**
+	 * @return the number of records generated by this node
+	 */
+	public long getRecordCount() {
+		return this.recordCount;
+	}
+
+	/**
+	 * @return the fraction of records generated so far
+	 */
+	public float getProgress() {
+		return getProgress(new MyriadStubGenerator[] { this });
+	}
+
+	/**
+	 * @param parts
+	 * @return the fraction of records generated so far by all given generators
+	 */
+	public static float getProgress(MyriadStubGenerator[] parts) {
+		long generatedRecords = 0;
+		long recordCount = 0;
+		for (MyriadStubGenerator part : parts) {
+			generatedRecords += part.generatedRecords;
+			recordCount += part.recordCount;
+		}
+		return recordCount == 0 ? 1.0f : generatedRecords / (float) recordCount;
+	}
+
+	/**
+	 * Writes the records of this node to the given stream, throttled to the configured rate.
+	 * 
+	 * @param out
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	public void generate(OutputStream out) throws IOException, InterruptedException {
+		byte[] buffer = new byte[MAX_RECORD_SIZE + 1];
+		long startNanos = System.nanoTime();
+
+		for (long i = 0; i < this.recordCount; i++) {
+			int length = formatRecord(this.firstRecord + i, buffer);
+			if (this.filter == null) {
+				out.write(buffer, 0, length);
+			} else {
+				int filtered = this.filter.apply(buffer, 0, length - 1);
+				if (filtered >= 0) {
+					out.write(this.filter.isProjecting() ? this.filter.getBuffer() : buffer, 0, filtered);
+					out.write('\n');
+				}
+			}
+			this.generatedRecords = i + 1;
+
+			// throttle the output (checked every 64 records)
+			if (this.rate > 0 && (i & 63) == 63) {
+				long aheadMillis = ((i + 1) * 1000L / this.rate) - (System.nanoTime() - startNanos) / 1000000L;
+				if (aheadMillis > 0) {
+					out.flush(); // make the generated records visible before pausing
+					Thread.sleep(aheadMillis);
+				}
+			}
+		}
+		out.flush();
+	}
+
+	/**
+	 * Formats the record with the given global ID as a line into the given buffer.
+	 * 
+	 * @param id
+	 * @param buffer
+	 * @return the length of the line, including the line feed
+	 */
+	int formatRecord(long id, byte[] buffer) {
+		this.random.setSeed(this.stageSeed ^ id);
+
+		// write the ID field
+		String key = Long.toString(id);
+		int length = key.length();
+		for (int i = 0; i < length; i++) {
+			buffer[i] = (byte) key.charAt(i);
+		}
+		buffer[length++] = '|';
+
+		// pick the record size
+		int size = this.recordSize;
+		if (this.recordSizeDeviation > 0) {
+			size = (int) Math.round(size + this.random.nextGaussian() * this.recordSizeDeviation);
+		}
+		size = Math.max(length + 1, Math.min(MAX_RECORD_SIZE, size));
+
+		// fill the payload field, six bits of randomness per character
+		int bits = 0;
+		int available = 0;
+		while (length < size) {
+			if (available == 0) {
+				bits = this.random.nextInt();
+				available = 5;
+			}
+			buffer[length++] = ALPHABET[bits & 63];
+			bits >>>= 6;
+			available--;
+		}
+		buffer[length++] = '\n';
+		return length;
+	}
+
+	private static long getLong(Properties properties, String stage, String key, long defaultValue) {
+		String value = properties.getProperty(String.format("stub.%s.%s", stage, key));
+		return value == null ? defaultValue : Long.parseLong(value.trim());
+	}
+
+	private static double getDouble(Properties properties, String stage, String key, double defaultValue) {
+		String value = properties.getProperty(String.format("stub.%s.%s", stage, key));
+		return value == null ? defaultValue : Double.parseDouble(value.trim());
+	}
+
+	/**
+	 * Parses the single character options of the generator command line. Option values may follow the option
+	 * directly (<code>-s1.0</code>) or as the next argument (<code>-s 1.0</code>).
+	 * 
+	 * @param args
+	 * @return
+	 */
+	static Map<Character, String> parseArguments(String[] args) {
+		Map<Character, String> options = new HashMap<Character, String>();
+		for (int i = 0; i < args.length; i++) {
+			String arg = args[i];
+			if (arg.length() < 2 || arg.charAt(0) != '-') {
+				throw new IllegalArgumentException("Unexpected argument `" + arg + "`");
+			}
+			if (arg.length() > 2) {
+				options.put(arg.charAt(1), arg.substring(2));
+			} else if (i + 1 < args.length) {
+				options.put(arg.charAt(1), args[++i]);
+			} else {
+				throw new IllegalArgumentException("Missing value for option `" + arg + "`");
+			}
+		}
+		return options;
+	}
+
+	private static String getOption(Map<Character, String> options, char option) {
+		String value = options.get(option);
+		if (value == null) {
+			throw new IllegalArgumentException("Missing option `-" + option + "`");
+		}
+		return value;
+	}
+
+	private static Properties loadProperties(File home) throws IOException {
+		Properties properties = new Properties();
+		InputStream in = new FileInputStream(new File(home, String.format("config/%s-node.properties", home.getName())));
+		try {
+			properties.load(in);
+		} finally {
+			in.close();
+		}
+		return properties;
+	}
+
+	/**
+	 * Opens the output given by the <code>-t</code> option: <code>socket[port]</code> connects to the reader on the
+	 * local host, <code>pipe[path]</code> opens the named pipe created by the reader, <code>ring[path]</code> attaches
+	 * to the shared memory ring created by the reader and <code>stdout</code> writes to the standard output of the
+	 * process.
+	 * 
+	 * @param outputType
+	 * @return
+	 * @throws IOException
+	 */
+	private static OutputStream openOutput(String outputType) throws IOException {
+		if (outputType.equals("stdout")) {
+			return new FileOutputStream(FileDescriptor.out); // unbuffered, unlike System.out
+		}
+		Matcher m = SOCKET_PATTERN.matcher(outputType);
+		if (m.matches()) {
+			Socket socket = new Socket("localhost", Integer.parseInt(m.group(1)));
+			return socket.getOutputStream(); // closing the stream closes the socket
+		}
+		m = PIPE_PATTERN.matcher(outputType);
+		if (m.matches()) {
+			return new FileOutputStream(m.group(1));
+		}
+		m = RING_PATTERN.matcher(outputType);
+		m.matches();
+		final MyriadRingBuffer ring = MyriadRingBuffer.attach(new File(m.group(1)));
+		return new OutputStream() {
+
+			@Override
+			public void write(int b) throws IOException {
+				write(new byte[] { (byte) b }, 0, 1);
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) throws IOException {
+				ring.write(b, off, len);
+			}
+
+			@Override
+			public void close() {
+				ring.closeProducer();
+				ring.close();
+			}
+		};
+	}
+
+	/**
+	 * Generates the given parts over separate connections in parallel. The connections are opened in part order, so
+	 * the reader accepts them in record order, and each is closed as soon as its part is written, so a reader that
+	 * merges them in connection order can move on to the next one.
+	 * 
+	 * @param parts
+	 * @param outputType
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	private static void generate(final MyriadStubGenerator[] parts, String outputType) throws IOException,
+			InterruptedException {
+		final OutputStream[] outs = new OutputStream[parts.length];
+		final IOException[] errors = new IOException[parts.length];
+		Thread[] threads = new Thread[parts.length];
+		try {
+			for (int i = 0; i < parts.length; i++) {
+				outs[i] = openOutput(outputType);
+			}
+			for (int i = 0; i < parts.length; i++) {
+				final int part = i;
+				threads[i] = new Thread(new Runnable() {
+
+					@Override
+					public void run() {
+						try {
+							parts[part].generate(new BufferedOutputStream(outs[part], BUFFER_SIZE));
+							outs[part].close();
+						} catch (IOException e) {
+							errors[part] = e;
+						} catch (InterruptedException e) {
+							errors[part] = new InterruptedIOException();
+						}
+					}
+				}, "myriad-stub-connection-" + i);
+				threads[i].start();
+			}
+			for (Thread thread : threads) {
+				thread.join();
+			}
+		} finally {
+			for (OutputStream out : outs) {
+				if (out != null) {
+					out.close();
+				}
+			}
+		}
+		for (IOException e : errors) {
+			if (e != null) {
+				throw e;
+			}
+		}
+	}
+
+	public static void main(String[] args) {
+		MyriadStubGenerator generator;
+		int connections;
+		String outputType;
+		String heartBeatHost;
+		int heartBeatPort;
+		try {
+			Map<Character, String> options = parseArguments(args);
+			File home = new File(System.getProperty("myriad.stub.home", ".")).getCanonicalFile();
+
+			String stage = getOption(options, 'x');
+			generator = new MyriadStubGenerator(loadProperties(home), stage, Double.parseDouble(getOption(options,
+				's')), Integer.parseInt(getOption(options, 'N')), Integer.parseInt(getOption(options, 'i')));
+
+			outputType = getOption(options, 't');
+			if (!SOCKET_PATTERN.matcher(outputType).matches() && !PIPE_PATTERN.matcher(outputType).matches()
+				&& !RING_PATTERN.matcher(outputType).matches() && !outputType.equals("stdout")) {
+				throw new IllegalArgumentException("Unsupported output type `" + outputType + "`");
+			}
+			if (options.containsKey('k') || options.containsKey('w')) {
+				generator.setFilter(options.get('k'), options.get('w'));
+			}
+			connections = options.containsKey('c') ? Integer.parseInt(options.get('c')) : 1;
+			if (connections < 1 || connections > 1 && !SOCKET_PATTERN.matcher(outputType).matches()) {
+				throw new IllegalArgumentException("Unsupported connection count " + connections);
+			}
+			heartBeatHost = options.containsKey('H') ? options.get('H') : "localhost";
+			heartBeatPort = options.containsKey('P') ? Integer.parseInt(options.get('P')) : -1;
+		} catch (IllegalArgumentException e) {
+			System.err.println("Bad arguments: " + e.getMessage());
+			System.exit(1);
+			return;
+		} catch (IOException e) {
+			System.err.println("Cannot load generator properties: " + e.getMessage());
+			System.exit(1);
+			return;
+		}
+
+		MyriadStubGenerator[] parts = connections > 1 ? generator.split(connections)
+			: new MyriadStubGenerator[] { generator };
+		Thread heartBeatThread = null;
+		MyriadHeartBeatSender heartBeatSender = null;
+		if (heartBeatPort > 0) {
+			heartBeatSender = new MyriadHeartBeatSender(parts, heartBeatHost, heartBeatPort);
+			heartBeatThread = new Thread(heartBeatSender, "myriad-stub-heartbeat");
+			heartBeatThread.setDaemon(true);
+			heartBeatThread.start();
+		}
+
+		try {
+			if (parts.length > 1) {
+				generate(parts, outputType);
+			} else {
+				OutputStream out = openOutput(outputType);
+				try {
+					generator.generate(new BufferedOutputStream(out, BUFFER_SIZE));
+				} finally {
+					out.close();
+				}
+			}
+			if (heartBeatThread != null) {
+				heartBeatThread.interrupt();
+				heartBeatThread.join();
+				heartBeatSender.send(); // report completion
+			}
+			System.err.println(String.format("Generated %d records", generator.getRecordCount())); // stdout may carry data
+		} catch (IOException e) {
+			System.err.println("Cannot write generator output: " + e.getMessage());
+			System.exit(2);
+		} catch (InterruptedException e) {
+			System.exit(2);
+		}
+	}
+
+	private static class MyriadHeartBeatSender implements Runnable {
+
+		private final MyriadStubGenerator[] parts;
+
+		private final String host;
+
+		private final int port;
+
+		public MyriadHeartBeatSender(MyriadStubGenerator[] parts, String host, int port) {
+			this.parts = parts;
+			this.host = host;
+			this.port = port;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see java.lang.Runnable#run()
+		 */
+		@Override
+		public void run() {
+			try {
+				while (!Thread.currentThread().isInterrupted()) {
+					send();
+					Thread.sleep(HEARTBEAT_INTERVAL);
+				}
+			} catch (InterruptedException e) {
+				// generation finished
+			}
+		}
+
+		/**
+		 * Reports the current progress of the generator. Failures are ignored, as the reader tolerates missing
+		 * heartbeats.
+		 */
+		public void send() {
+			try {
+				URL url = new URL("http", this.host, this.port, "/?progress="
+					+ MyriadStubGenerator.getProgress(this.parts));
+				HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+				try {
+					connection.setRequestMethod("HEAD");
+					connection.getResponseCode();
+				} finally {
+					connection.disconnect();
+				}
+			} catch (IOException e) {
+				// ignore failed heartbeats
+			}
+		}
+	}
+}
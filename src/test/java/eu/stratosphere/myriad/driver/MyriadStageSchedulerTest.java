@@ -0,0 +1,141 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.myriad.driver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import eu.stratosphere.myriad.driver.parameters.DriverJobParameters;
+import eu.stratosphere.myriad.driver.parameters.DriverJobParametersException;
+
+/**
+ * @author Alexander Alexandrov (alexander.alexandrov@tu-berlin.de)
+ */
+public class MyriadStageSchedulerTest {
+
+	private File dgenInstallDir;
+
+	private List<String> finished;
+
+	@Before
+	public void setUp() throws IOException {
+		File parentDir = new File(System.getProperty("java.io.tmpdir"), "myriad-test-" + System.nanoTime());
+		this.dgenInstallDir = new File(parentDir, "test-gen");
+		new File(this.dgenInstallDir, "bin").mkdirs();
+		new File(this.dgenInstallDir, "config").mkdirs();
+		new File(this.dgenInstallDir, "bin/test-gen-node").createNewFile();
+
+		FileWriter writer = new FileWriter(new File(this.dgenInstallDir, "config/test-gen-node.properties"));
+		writer.write("generator.orders.dependencies = customers, parts\n");
+		writer.write("generator.lineitems.dependencies = orders\n");
+		writer.write("generator.a.dependencies = b\n");
+		writer.write("generator.b.dependencies = a\n");
+		writer.close();
+
+		this.finished = Collections.synchronizedList(new ArrayList<String>());
+	}
+
+	@After
+	public void tearDown() {
+		new File(this.dgenInstallDir, "bin/test-gen-node").delete();
+		new File(this.dgenInstallDir, "config/test-gen-node.properties").delete();
+		new File(this.dgenInstallDir, "bin").delete();
+		new File(this.dgenInstallDir, "config").delete();
+		this.dgenInstallDir.delete();
+		this.dgenInstallDir.getParentFile().delete();
+	}
+
+	@Test
+	public void testDependencyOrder() throws IOException {
+		MyriadStageScheduler scheduler = new MyriadStageScheduler(4);
+		for (String stage : new String[] { "lineitems", "orders", "parts", "customers" }) {
+			scheduler.add(parameters(stage), new TestJob(stage, false));
+		}
+		scheduler.run();
+
+		assertEquals(4, this.finished.size());
+		assertTrue(this.finished.indexOf("orders") > this.finished.indexOf("customers"));
+		assertTrue(this.finished.indexOf("orders") > this.finished.indexOf("parts"));
+		assertTrue(this.finished.indexOf("lineitems") > this.finished.indexOf("orders"));
+	}
+
+	@Test
+	public void testFailFast() {
+		MyriadStageScheduler scheduler = new MyriadStageScheduler(1);
+		scheduler.add(parameters("customers"), new TestJob("customers", true));
+		scheduler.add(parameters("orders"), new TestJob("orders", false));
+		scheduler.add(parameters("parts"), new TestJob("parts", false));
+
+		try {
+			scheduler.run();
+			fail("Expected failing schedule");
+		} catch (IOException e) {
+			assertEquals("3 of 3 stages did not complete", e.getMessage());
+		}
+		assertTrue(this.finished.isEmpty());
+	}
+
+	@Test(expected = DriverJobParametersException.class)
+	public void testCyclicDependencies() throws IOException {
+		MyriadStageScheduler scheduler = new MyriadStageScheduler(2);
+		scheduler.add(parameters("a"), new TestJob("a", false));
+		scheduler.add(parameters("b"), new TestJob("b", false));
+		scheduler.run();
+	}
+
+	private DriverJobParameters parameters(String stage) {
+		return new DriverJobParameters(this.dgenInstallDir, new File("/tmp"), "test-dataset", stage, 1.0f, (short) 1);
+	}
+
+	private class TestJob implements MyriadDriverJob {
+
+		private final String stage;
+
+		private final boolean fail;
+
+		public TestJob(String stage, boolean fail) {
+			this.stage = stage;
+			this.fail = fail;
+		}
+
+		@Override
+		public void removeOutputPath() {
+		}
+
+		@Override
+		public void run() throws IOException {
+			if (this.fail) {
+				throw new IOException("Stage " + this.stage + " failed");
+			}
+			MyriadStageSchedulerTest.this.finished.add(this.stage);
+		}
+
+		@Override
+		public void kill() {
+		}
+	}
+}
@@ -0,0 +1,52 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.myriad.driver.hadoop;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.compress.BZip2Codec;
+import org.apache.hadoop.io.compress.DefaultCodec;
+import org.apache.hadoop.io.compress.GzipCodec;
+import org.junit.Test;
+
+/**
+ * @author Alexander Alexandrov (alexander.alexandrov@tu-berlin.de)
+ */
+public class MyriadDriverHadoopJobTest {
+
+	@Test
+	public void testCompressionCodecClass() throws IOException {
+		Configuration conf = new Configuration();
+
+		assertEquals(GzipCodec.class, MyriadDriverHadoopJob.getCompressionCodecClass(conf, "gzip"));
+		assertEquals(BZip2Codec.class, MyriadDriverHadoopJob.getCompressionCodecClass(conf, "bzip2"));
+		assertEquals(DefaultCodec.class, MyriadDriverHadoopJob.getCompressionCodecClass(conf, "deflate"));
+		assertEquals(GzipCodec.class,
+			MyriadDriverHadoopJob.getCompressionCodecClass(conf, "org.apache.hadoop.io.compress.GzipCodec"));
+	}
+
+	@Test(expected = IOException.class)
+	public void testUnknownCompressionCodec() throws IOException {
+		MyriadDriverHadoopJob.getCompressionCodecClass(new Configuration(), "no.such.Codec");
+	}
+
+	@Test(expected = IOException.class)
+	public void testInvalidCompressionCodec() throws IOException {
+		MyriadDriverHadoopJob.getCompressionCodecClass(new Configuration(), "java.lang.String");
+	}
+}
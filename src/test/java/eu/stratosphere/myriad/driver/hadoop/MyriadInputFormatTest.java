@@ -0,0 +1,85 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.myriad.driver.hadoop;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+
+import org.apache.hadoop.mapred.InputSplit;
+import org.apache.hadoop.mapred.JobConf;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Alexander Alexandrov (alexander.alexandrov@tu-berlin.de)
+ */
+@SuppressWarnings("deprecation")
+public class MyriadInputFormatTest {
+
+	private JobConf conf;
+
+	@Before
+	public void setUp() {
+		this.conf = new JobConf(false);
+		MyriadInputFormat.setNodeCount(this.conf, (short) 4);
+	}
+
+	@Test
+	public void testOneSplitPerNode() throws IOException {
+		InputSplit[] splits = new MyriadInputFormat().getSplits(this.conf, 16);
+
+		assertEquals(4, splits.length);
+		for (int i = 0; i < splits.length; i++) {
+			assertEquals(i, ((MyriadInputSplit) splits[i]).getNodeID());
+			assertEquals(4, ((MyriadInputSplit) splits[i]).getNodeCount());
+		}
+	}
+
+	@Test
+	public void testExplicitSplitFactor() throws IOException {
+		MyriadInputFormat.setSplitFactor(this.conf, 3);
+		InputSplit[] splits = new MyriadInputFormat().getSplits(this.conf, 1);
+
+		assertEquals(12, splits.length);
+		for (int i = 0; i < splits.length; i++) {
+			assertEquals(i, ((MyriadInputSplit) splits[i]).getNodeID());
+			assertEquals(12, ((MyriadInputSplit) splits[i]).getNodeCount());
+		}
+	}
+
+	@Test
+	public void testDerivedSplitFactor() throws IOException {
+		MyriadInputFormat.setSplitFactor(this.conf, 0);
+
+		assertEquals(4, new MyriadInputFormat().getSplits(this.conf, 1).length);
+		assertEquals(12, new MyriadInputFormat().getSplits(this.conf, 10).length);
+		assertEquals(16, new MyriadInputFormat().getSplits(this.conf, 16).length);
+	}
+
+	@Test
+	public void testSplitLocations() throws IOException {
+		MyriadInputFormat.setSplitFactor(this.conf, 2);
+		MyriadInputFormat.setPreferredHosts(this.conf, new String[] { "host1", "host2" });
+		InputSplit[] splits = new MyriadInputFormat().getSplits(this.conf, 1);
+
+		assertEquals(8, splits.length);
+		for (InputSplit split : splits) {
+			assertEquals(0, split.getLength());
+			assertArrayEquals(new String[] { "host1", "host2" }, split.getLocations());
+		}
+	}
+}
@@ -0,0 +1,80 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.myriad.driver.hadoop;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.util.ReflectionUtils;
+import org.junit.Test;
+
+/**
+ * @author Alexander Alexandrov (alexander.alexandrov@tu-berlin.de)
+ */
+public class MyriadTupleWritableTest {
+
+	private static final String FIELDS = "o_orderkey:long, o_status:string, o_price:double, o_priority:int";
+
+	@Test
+	public void testParseAndSerialize() throws IOException {
+		MyriadTupleWritable tuple = new MyriadTupleWritable(MyriadTupleWritable.parseTypes(FIELDS));
+		byte[] record = "-9223372036854775808|F|1234.5||".getBytes();
+		tuple.parse(record, 0, record.length, (byte) '|');
+
+		assertEquals(Long.MIN_VALUE, tuple.getLong(0));
+		assertEquals("F", tuple.getString(1).toString());
+		assertEquals(1234.5, tuple.getDouble(2), 0.0);
+		assertTrue(tuple.isNull(3));
+
+		DataOutputBuffer out = new DataOutputBuffer();
+		tuple.write(out);
+
+		Configuration conf = new Configuration();
+		conf.set("mapred.myriad.output.fields", FIELDS);
+		MyriadTupleWritable copy = ReflectionUtils.newInstance(MyriadTupleWritable.class, conf);
+		DataInputBuffer in = new DataInputBuffer();
+		in.reset(out.getData(), out.getLength());
+		copy.readFields(in);
+
+		assertEquals(tuple.toString(), copy.toString());
+		assertFalse(copy.isNull(0));
+		assertTrue(copy.isNull(3));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testMissingFields() {
+		MyriadTupleWritable tuple = new MyriadTupleWritable(MyriadTupleWritable.parseTypes(FIELDS));
+		byte[] record = "1|F".getBytes();
+		tuple.parse(record, 0, record.length, (byte) '|');
+	}
+
+	@Test(expected = NumberFormatException.class)
+	public void testMalformedNumber() {
+		MyriadTupleWritable tuple = new MyriadTupleWritable(MyriadTupleWritable.parseTypes(FIELDS));
+		byte[] record = "1|F|2.0|9999999999".getBytes();
+		tuple.parse(record, 0, record.length, (byte) '|');
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testBadSchema() {
+		MyriadTupleWritable.parseTypes("o_orderkey:decimal");
+	}
+}
@@ -0,0 +1,71 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.myriad.driver.hadoop.mapreduce;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.junit.Before;
+import org.junit.Test;
+
+import eu.stratosphere.myriad.driver.hadoop.MyriadInputFormat;
+
+/**
+ * @author Alexander Alexandrov (alexander.alexandrov@tu-berlin.de)
+ */
+public class MyriadPackedInputFormatTest {
+
+	private Configuration conf;
+
+	@Before
+	public void setUp() {
+		this.conf = new Configuration(false);
+		MyriadInputFormat.setNodeCount(this.conf, (short) 10);
+	}
+
+	@Test
+	public void testPackedSplits() {
+		// a JobContext would initialize the Hadoop security layer, so the splits are built from the configuration
+		MyriadPackedInputFormat.setPartitionsPerSplit(this.conf, 4);
+		List<InputSplit> splits = new MyriadPackedInputFormat().getSplits(this.conf);
+
+		assertEquals(3, splits.size());
+		assertArrayEquals(new int[] { 0, 1, 2, 3 }, ((MyriadPackedInputSplit) splits.get(0)).getNodeIDs());
+		assertArrayEquals(new int[] { 4, 5, 6, 7 }, ((MyriadPackedInputSplit) splits.get(1)).getNodeIDs());
+		assertArrayEquals(new int[] { 8, 9 }, ((MyriadPackedInputSplit) splits.get(2)).getNodeIDs());
+	}
+
+	@Test
+	public void testSplitSerialization() throws IOException, InterruptedException {
+		MyriadPackedInputSplit split = new MyriadPackedInputSplit(new int[] { 3, 7 }, 10, new String[] { });
+		DataOutputBuffer out = new DataOutputBuffer();
+		split.write(out);
+
+		MyriadPackedInputSplit copy = new MyriadPackedInputSplit();
+		DataInputBuffer in = new DataInputBuffer();
+		in.reset(out.getData(), out.getLength());
+		copy.readFields(in);
+
+		assertArrayEquals(split.getNodeIDs(), copy.getNodeIDs());
+		assertEquals(10, copy.getNodeCount());
+	}
+}
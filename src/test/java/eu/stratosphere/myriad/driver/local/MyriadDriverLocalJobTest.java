@@ -0,0 +1,170 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.myriad.driver.local;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import eu.stratosphere.myriad.driver.parameters.DriverJobParameters;
+import eu.stratosphere.myriad.driver.stub.MyriadStubGenerator;
+
+/**
+ * Runs the local engine end to end against the stub data generator.
+ * 
+ * @author Alexander Alexandrov (alexander.alexandrov@tu-berlin.de)
+ */
+public class MyriadDriverLocalJobTest {
+
+	private File parentDir;
+
+	private File dgenInstallDir;
+
+	private Properties properties;
+
+	private String generatorCommand;
+
+	@Before
+	public void setUp() throws Exception {
+		// the generator node is started through a shell script
+		Assume.assumeTrue(File.separatorChar == '/');
+
+		this.parentDir = new File(System.getProperty("java.io.tmpdir"), "myriad-test-" + System.nanoTime());
+		this.dgenInstallDir = new File(this.parentDir, "stub-gen");
+		new File(this.dgenInstallDir, "bin").mkdirs();
+		new File(this.dgenInstallDir, "config").mkdirs();
+
+		this.properties = new Properties();
+		this.properties.setProperty("stub.orders.records", "2000");
+		this.properties.setProperty("stub.orders.record-size", "60");
+		this.properties.setProperty("stub.orders.record-size-deviation", "20");
+		OutputStream out = new FileOutputStream(new File(this.dgenInstallDir, "config/stub-gen-node.properties"));
+		try {
+			this.properties.store(out, null);
+		} finally {
+			out.close();
+		}
+
+		File java = new File(System.getProperty("java.home"), "bin/java");
+		File classes = new File(MyriadStubGenerator.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+		this.generatorCommand = String.format("'%s' -cp '%s' -Dmyriad.stub.home='%s' %s \"$@\"", java, classes,
+			this.dgenInstallDir, MyriadStubGenerator.class.getName());
+		writeScript("exec " + this.generatorCommand);
+	}
+
+	@After
+	public void tearDown() {
+		if (this.parentDir != null) {
+			delete(this.parentDir);
+		}
+	}
+
+	@Test
+	public void testPartFiles() throws Exception {
+		DriverJobParameters parameters = parameters((short) 3);
+		new MyriadDriverLocalJob(parameters, 2).run();
+
+		for (int i = 0; i < 3; i++) {
+			ByteArrayOutputStream expected = new ByteArrayOutputStream();
+			new MyriadStubGenerator(this.properties, "orders", 1.0, 3, i).generate(expected);
+			File part = new File(parameters.getJobOutputPath(), String.format("part-%05d", i));
+			assertArrayEquals(part.getName(), expected.toByteArray(), read(part));
+		}
+	}
+
+	@Test
+	public void testKilledBeforeRun() throws IOException {
+		DriverJobParameters parameters = parameters((short) 2);
+		MyriadDriverLocalJob job = new MyriadDriverLocalJob(parameters, 2);
+		job.kill();
+
+		try {
+			job.run();
+			fail("Expected killed stage");
+		} catch (IOException e) {
+			assertEquals("Stage orders was killed", e.getMessage());
+		}
+		assertFalse(new File(parameters.getJobOutputPath()).exists());
+	}
+
+	@Test
+	public void testFailedGenerator() throws Exception {
+		// the generator delivers its complete output, but exits with an error
+		writeScript(this.generatorCommand + "\nexit 3");
+		DriverJobParameters parameters = parameters((short) 1);
+
+		try {
+			new MyriadDriverLocalJob(parameters, 1).run();
+			fail("Expected failed partition");
+		} catch (IOException e) {
+			assertEquals("Partition of stage orders failed: "
+				+ "Data generator for stage `orders` node 0 exited with code 3", e.getMessage());
+		}
+	}
+
+	private void writeScript(String command) throws IOException {
+		File script = new File(this.dgenInstallDir, "bin/stub-gen-node");
+		FileWriter writer = new FileWriter(script);
+		writer.write("#!/bin/sh\n");
+		writer.write(command + "\n");
+		writer.close();
+		script.setExecutable(true);
+	}
+
+	private DriverJobParameters parameters(short nodeCount) {
+		return new DriverJobParameters(this.dgenInstallDir, new File(this.parentDir, "out"), "test-dataset", "orders",
+			1.0f, nodeCount);
+	}
+
+	private static byte[] read(File file) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		InputStream in = new FileInputStream(file);
+		try {
+			byte[] buffer = new byte[8192];
+			for (int n = in.read(buffer); n >= 0; n = in.read(buffer)) {
+				out.write(buffer, 0, n);
+			}
+		} finally {
+			in.close();
+		}
+		return out.toByteArray();
+	}
+
+	private static void delete(File file) {
+		File[] children = file.listFiles();
+		if (children != null) {
+			for (File child : children) {
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+}
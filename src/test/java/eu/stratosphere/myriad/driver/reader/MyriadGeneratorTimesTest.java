@@ -0,0 +1,53 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.myriad.driver.reader;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+
+import org.junit.Test;
+
+/**
+ * @author Alexander Alexandrov (alexander.alexandrov@tu-berlin.de)
+ */
+public class MyriadGeneratorTimesTest {
+
+	@Test
+	public void testParseTimeOutput() throws IOException {
+		File timeOutput = File.createTempFile("myriad-time", ".txt");
+		timeOutput.deleteOnExit();
+
+		FileWriter writer = new FileWriter(timeOutput);
+		writer.write("12.34user 0.56system 1:02:03.50elapsed 99%CPU (0avgtext+0avgdata 4000maxresident)k\n");
+		writer.write("0inputs+0outputs (0major+200minor)pagefaults 0swaps\n");
+		writer.close();
+
+		MyriadGeneratorTimes times = MyriadGeneratorTimes.parse(timeOutput);
+		assertEquals(3723500, times.getWallTime());
+		assertEquals(12340, times.getUserTime());
+		assertEquals(560, times.getSystemTime());
+	}
+
+	@Test
+	public void testParseMissingOutput() {
+		MyriadGeneratorTimes times = MyriadGeneratorTimes.parse(new File("/non/existing/time/output.txt"));
+		assertEquals(0, times.getWallTime());
+		assertEquals(0, times.getUserTime());
+		assertEquals(0, times.getSystemTime());
+	}
+}
@@ -0,0 +1,64 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.myriad.driver.reader;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+/**
+ * @author Alexander Alexandrov (alexander.alexandrov@tu-berlin.de)
+ */
+public class MyriadHeartBeatServerTest {
+
+	@Test
+	public void testRoutesByAddress() throws IOException {
+		Assume.assumeTrue(MyriadHeartBeatServer.isSupported());
+		MyriadHeartBeatServer server = MyriadHeartBeatServer.getShared();
+		MyriadProgressTracker first = new MyriadProgressTracker("first");
+		MyriadProgressTracker second = new MyriadProgressTracker("second");
+		String firstHost = server.register(first);
+		String secondHost = server.register(second);
+
+		try {
+			assertEquals(HttpURLConnection.HTTP_OK, sendHeartBeat(firstHost, server.getPort(), "0.25"));
+			assertEquals(HttpURLConnection.HTTP_OK, sendHeartBeat(secondHost, server.getPort(), "0.75"));
+			assertEquals(0.25f, first.getProgress(), 0.0f);
+			assertEquals(0.75f, second.getProgress(), 0.0f);
+		} finally {
+			server.unregister(firstHost);
+			server.unregister(secondHost);
+		}
+
+		assertEquals(HttpURLConnection.HTTP_NOT_FOUND, sendHeartBeat(firstHost, server.getPort(), "0.5"));
+		assertEquals(0.25f, first.getProgress(), 0.0f);
+	}
+
+	private static int sendHeartBeat(String host, int port, String progress) throws IOException {
+		HttpURLConnection connection = (HttpURLConnection) new URL("http://" + host + ":" + port + "/?progress="
+			+ progress).openConnection();
+		try {
+			connection.setRequestMethod("HEAD");
+			return connection.getResponseCode();
+		} finally {
+			connection.disconnect();
+		}
+	}
+}
@@ -0,0 +1,53 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.myriad.driver.reader;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import eu.stratosphere.myriad.driver.reader.MyriadLaunchTimes.Phase;
+
+/**
+ * @author Alexander Alexandrov (alexander.alexandrov@tu-berlin.de)
+ */
+public class MyriadLaunchTimesTest {
+
+	private static final long MS = 1000000L;
+
+	@Test
+	public void testStartupTime() {
+		MyriadLaunchTimes times = new MyriadLaunchTimes();
+		times.set(Phase.BIND, 1 * MS, 2 * MS);
+		times.set(Phase.HEARTBEAT, 2 * MS, 12 * MS);
+		times.set(Phase.EXEC, 12 * MS, 42 * MS);
+		times.set(Phase.ACCEPT, 42 * MS, 542 * MS);
+		times.set(Phase.FIRST_BYTE, 542 * MS, 0); // no bytes received
+		times.set(Phase.TRANSFER, 600 * MS, 9000 * MS);
+
+		assertEquals(500, times.get(Phase.ACCEPT));
+		assertEquals(0, times.get(Phase.FIRST_BYTE));
+		assertEquals(541, times.getStartupTime());
+		assertEquals("< 1 s", MyriadLaunchTimes.getStartupBucketLabel(times.getStartupBucket()));
+	}
+
+	@Test
+	public void testStartupBuckets() {
+		MyriadLaunchTimes times = new MyriadLaunchTimes();
+		assertEquals(0, times.getStartupBucket());
+		times.set(Phase.ACCEPT, 1, 20000 * MS);
+		assertEquals(MyriadLaunchTimes.getStartupBucketCount() - 1, times.getStartupBucket());
+	}
+}
@@ -0,0 +1,119 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.myriad.driver.reader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+
+import org.junit.Test;
+
+/**
+ * @author Alexander Alexandrov (alexander.alexandrov@tu-berlin.de)
+ */
+public class MyriadLineReaderTest {
+
+	@Test
+	public void testReadLines() throws IOException {
+		MyriadLineReader reader = createReader("first\nsecond\r\n\nlast", 4);
+		MyriadRecord record = new MyriadRecord();
+
+		assertTrue(reader.readLine(record));
+		assertEquals("first", record.toString());
+		assertTrue(reader.readLine(record));
+		assertEquals("second", record.toString());
+		assertTrue(reader.readLine(record));
+		assertEquals("", record.toString());
+		assertTrue(reader.readLine(record));
+		assertEquals("last", record.toString());
+		assertFalse(reader.readLine(record));
+	}
+
+	@Test
+	public void testReadLinesLargeBuffer() throws IOException {
+		StringBuilder input = new StringBuilder();
+		for (int i = 0; i < 1000; i++) {
+			input.append("record-").append(i).append('|').append(i * 31).append('\n');
+		}
+
+		MyriadLineReader reader = createReader(input.toString(), 64);
+		MyriadRecord record = new MyriadRecord();
+
+		int i = 0;
+		while (reader.readLine(record)) {
+			assertEquals("record-" + i + "|" + (i * 31), record.toString());
+			i++;
+		}
+		assertEquals(1000, i);
+	}
+
+	@Test
+	public void testReadBatches() throws IOException {
+		StringBuilder input = new StringBuilder();
+		for (int i = 0; i < 100; i++) {
+			input.append("line-").append(i).append('\n');
+		}
+
+		MyriadLineReader reader = createReader(input.toString(), 32);
+		MyriadRecordBatch batch = new MyriadRecordBatch(8, 1024);
+		MyriadRecord record = new MyriadRecord();
+
+		StringBuilder output = new StringBuilder();
+		int i = 0;
+		while (reader.readLines(batch)) {
+			assertTrue(batch.size() > 0 && batch.size() <= 8);
+			for (int j = 0; j < batch.size(); j++, i++) {
+				batch.getRecord(j, record);
+				assertEquals("line-" + i, record.toString());
+			}
+			output.append(new String(batch.getBytes(), batch.getDataOffset(), batch.getDataLength())).append('\n');
+		}
+		assertEquals(100, i);
+		assertEquals(input.toString(), output.toString());
+	}
+
+	@Test
+	public void testReadChunks() throws IOException {
+		StringBuilder input = new StringBuilder();
+		for (int i = 0; i < 100; i++) {
+			input.append("line-").append(i).append('\n');
+		}
+
+		MyriadLineReader reader = createReader(input.toString(), 32);
+		MyriadRecord chunk = new MyriadRecord();
+
+		StringBuilder output = new StringBuilder();
+		while (reader.readChunk(chunk)) {
+			assertTrue(chunk.getLength() > 0);
+			output.append(chunk.toString());
+		}
+		assertEquals(input.toString(), output.toString());
+		assertEquals(input.length(), reader.getBytesRead());
+	}
+
+	@Test
+	public void testReadEmptyInput() throws IOException {
+		MyriadLineReader reader = createReader("", 16);
+		assertFalse(reader.readLine(new MyriadRecord()));
+	}
+
+	private static MyriadLineReader createReader(String input, int bufferSize) {
+		return new MyriadLineReader(Channels.newChannel(new ByteArrayInputStream(input.getBytes())), bufferSize);
+	}
+}
@@ -0,0 +1,108 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.myriad.driver.reader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * @author Alexander Alexandrov (alexander.alexandrov@tu-berlin.de)
+ */
+public class MyriadMergedChannelTest {
+
+	@Test
+	public void testConnectionOrder() throws IOException {
+		MyriadLineReader reader = new MyriadLineReader(new MyriadMergedChannel(createSources(4, 2500), true, 100), 64);
+		MyriadRecord record = new MyriadRecord();
+
+		int i = 0;
+		while (reader.readLine(record)) {
+			assertEquals(String.format("record-%d-%s", i, padding(i)), record.toString());
+			i++;
+		}
+		reader.close();
+
+		assertEquals(10000, i);
+	}
+
+	@Test
+	public void testArrivalOrder() throws IOException {
+		MyriadLineReader reader = new MyriadLineReader(new MyriadMergedChannel(createSources(4, 2500), false, 100), 64);
+		MyriadRecord record = new MyriadRecord();
+
+		// records of different connections must not be interleaved
+		Set<String> records = new HashSet<String>();
+		while (reader.readLine(record)) {
+			String line = record.toString();
+			int i = Integer.parseInt(line.substring(7, line.indexOf('-', 7)));
+			assertEquals(String.format("record-%d-%s", i, padding(i)), line);
+			assertTrue(records.add(line));
+		}
+		reader.close();
+
+		assertEquals(10000, records.size());
+	}
+
+	@Test
+	public void testUnterminatedLastRecords() throws IOException {
+		ReadableByteChannel[] sources = new ReadableByteChannel[] {
+			Channels.newChannel(new ByteArrayInputStream("a1\na2".getBytes())),
+			Channels.newChannel(new ByteArrayInputStream("b1\nb2".getBytes())) };
+		MyriadLineReader reader = new MyriadLineReader(new MyriadMergedChannel(sources, false, 100), 64);
+		MyriadRecord record = new MyriadRecord();
+
+		// the last records of both sources stay separate records
+		Set<String> records = new HashSet<String>();
+		while (reader.readLine(record)) {
+			assertTrue(records.add(record.toString()));
+		}
+		reader.close();
+
+		assertEquals(new HashSet<String>(Arrays.asList("a1", "a2", "b1", "b2")), records);
+	}
+
+	/**
+	 * Creates sources with consecutive records. Every 1000th record is longer than the merge buffers.
+	 */
+	private static ReadableByteChannel[] createSources(int count, int records) {
+		ReadableByteChannel[] sources = new ReadableByteChannel[count];
+		for (int s = 0; s < count; s++) {
+			StringBuilder input = new StringBuilder();
+			for (int i = s * records; i < (s + 1) * records; i++) {
+				input.append("record-").append(i).append('-').append(padding(i)).append('\n');
+			}
+			sources[s] = Channels.newChannel(new ByteArrayInputStream(input.toString().getBytes()));
+		}
+		return sources;
+	}
+
+	private static String padding(int i) {
+		StringBuilder padding = new StringBuilder();
+		for (int j = i % 1000 == 0 ? 250 : 0; j > 0; j--) {
+			padding.append('x');
+		}
+		return padding.toString();
+	}
+}
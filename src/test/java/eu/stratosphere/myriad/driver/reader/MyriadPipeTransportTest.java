@@ -0,0 +1,75 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.myriad.driver.reader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Alexander Alexandrov (alexander.alexandrov@tu-berlin.de)
+ */
+public class MyriadPipeTransportTest {
+
+	private File path;
+
+	@Before
+	public void setUp() {
+		Assume.assumeTrue(new File("/bin/sh").canExecute());
+		this.path = new File(System.getProperty("java.io.tmpdir"), "myriad-test-" + System.nanoTime() + ".fifo");
+	}
+
+	@Test
+	public void testConnect() throws Exception {
+		MyriadTransport transport = new MyriadPipeTransport(this.path);
+		assertEquals("pipe[" + this.path.getAbsolutePath() + "]", transport.getOutputType());
+
+		Process process = new ProcessBuilder("/bin/sh", "-c", "printf 'a|b\\n' > " + this.path).start();
+		ReadableByteChannel channel = transport.connect(process, 10000);
+		assertFalse(this.path.exists());
+
+		ByteBuffer buffer = ByteBuffer.allocate(16);
+		while (channel.read(buffer) >= 0) {
+		}
+		channel.close();
+		transport.close();
+		assertEquals("a|b\n", new String(buffer.array(), 0, buffer.position(), "US-ASCII"));
+	}
+
+	@Test
+	public void testGeneratorExitsBeforeConnecting() throws Exception {
+		MyriadTransport transport = new MyriadPipeTransport(this.path);
+		Process process = new ProcessBuilder("/bin/sh", "-c", "exit 3").start();
+		try {
+			transport.connect(process, 10000);
+			fail("Expected the connect to fail");
+		} catch (IOException e) {
+			assertTrue(e.getMessage().contains("code 3"));
+		} finally {
+			transport.close();
+		}
+		assertFalse(this.path.exists());
+	}
+}
@@ -0,0 +1,52 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.myriad.driver.reader;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+
+import org.junit.Test;
+
+/**
+ * @author Alexander Alexandrov (alexander.alexandrov@tu-berlin.de)
+ */
+public class MyriadPrefetchChannelTest {
+
+	@Test
+	public void testPrefetchedLines() throws IOException {
+		StringBuilder input = new StringBuilder();
+		for (int i = 0; i < 10000; i++) {
+			input.append("record-").append(i).append('\n');
+		}
+
+		MyriadPrefetchChannel channel = new MyriadPrefetchChannel(Channels.newChannel(new ByteArrayInputStream(input
+			.toString().getBytes())), 4, 100);
+		MyriadLineReader reader = new MyriadLineReader(channel, 64);
+		MyriadRecord record = new MyriadRecord();
+
+		int i = 0;
+		while (reader.readLine(record)) {
+			assertEquals("record-" + i, record.toString());
+			i++;
+		}
+		reader.close();
+
+		assertEquals(10000, i);
+		assertEquals(0, channel.getQueueDepth());
+	}
+}
@@ -0,0 +1,61 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.myriad.driver.reader;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * @author Alexander Alexandrov (alexander.alexandrov@tu-berlin.de)
+ */
+public class MyriadProgressTrackerTest {
+
+	private static final double DELTA = 1e-6;
+
+	@Test
+	public void testRate() {
+		MyriadProgressTracker tracker = new MyriadProgressTracker("test", 60000);
+		assertEquals(-1, tracker.getRemainingTime());
+
+		// the first report has no predecessor to derive a rate from
+		tracker.update(0.0f, 1000);
+		assertEquals(0.0, tracker.getRate(), DELTA);
+		assertEquals(-1, tracker.getRemainingTime());
+
+		// the first sample is taken as is
+		tracker.update(0.1f, 2000);
+		assertEquals(0.1, tracker.getRate(), DELTA);
+		assertEquals(9000, tracker.getRemainingTime(), 1);
+
+		// later samples are smoothed
+		tracker.update(0.3f, 3000);
+		assertEquals(0.13, tracker.getRate(), DELTA);
+
+		// a report that does not advance the clock keeps the rate
+		tracker.update(0.4f, 3000);
+		assertEquals(0.13, tracker.getRate(), DELTA);
+		assertEquals(0.4f, tracker.getProgress(), DELTA);
+	}
+
+	@Test
+	public void testCompletion() {
+		MyriadProgressTracker tracker = new MyriadProgressTracker("test", 60000);
+		tracker.update(0.5f, 0);
+		tracker.update(1.0f, 500);
+		assertEquals(1.0, tracker.getRate(), DELTA);
+		assertEquals(0, tracker.getRemainingTime());
+	}
+}
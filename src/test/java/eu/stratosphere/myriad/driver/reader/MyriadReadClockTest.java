@@ -0,0 +1,71 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.myriad.driver.reader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * @author Alexander Alexandrov (alexander.alexandrov@tu-berlin.de)
+ */
+public class MyriadReadClockTest {
+
+	@Test
+	public void testSampledConsumer() throws InterruptedException {
+		MyriadReadClock clock = new MyriadReadClock(8);
+		// a cheap reader and a slow consumer
+		for (int i = 0; i < 64; i++) {
+			clock.enter();
+			clock.leave();
+			Thread.sleep(1);
+		}
+		clock.enter();
+		clock.stop();
+
+		long readerNanos = clock.getReaderNanos();
+		long consumerNanos = clock.getConsumerNanos();
+		assertTrue(consumerNanos >= 32 * 1000000L);
+		assertTrue(consumerNanos > 4 * readerNanos);
+	}
+
+	@Test
+	public void testSlowReader() throws InterruptedException {
+		MyriadReadClock clock = new MyriadReadClock(1);
+		// a slow reader and a cheap consumer
+		for (int i = 0; i < 16; i++) {
+			clock.enter();
+			Thread.sleep(2);
+			clock.leave();
+		}
+		clock.enter();
+		clock.stop();
+
+		assertTrue(clock.getReaderNanos() >= 16 * 2000000L);
+		assertTrue(clock.getReaderNanos() > 4 * clock.getConsumerNanos());
+	}
+
+	@Test
+	public void testReset() {
+		MyriadReadClock clock = new MyriadReadClock();
+		clock.enter();
+		clock.leave();
+		clock.stop();
+		clock.reset();
+		assertEquals(0, clock.getReaderNanos());
+		assertEquals(0, clock.getConsumerNanos());
+	}
+}
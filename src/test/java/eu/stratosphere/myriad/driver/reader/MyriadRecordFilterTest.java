@@ -0,0 +1,82 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.myriad.driver.reader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * @author Alexander Alexandrov (alexander.alexandrov@tu-berlin.de)
+ */
+public class MyriadRecordFilterTest {
+
+	private static final String FIELDS = "id:long, name:string, price:double";
+
+	@Test
+	public void testProjection() {
+		MyriadRecordFilter filter = new MyriadRecordFilter("price, id", null, FIELDS, '|');
+
+		assertEquals("9.5|42", apply(filter, "42|foo|9.5"));
+		assertEquals("|7", apply(filter, "7|bar")); // missing fields are empty
+		assertEquals("price,id", filter.getProjectionSpec());
+	}
+
+	@Test
+	public void testPredicate() {
+		MyriadRecordFilter filter = new MyriadRecordFilter(null, "id < 100", FIELDS, '|');
+
+		assertEquals("42|foo|9.5", apply(filter, "42|foo|9.5"));
+		assertEquals(null, apply(filter, "100|foo|9.5"));
+		assertEquals("-3|foo|9.5", apply(filter, "-3|foo|9.5"));
+		assertEquals(null, apply(filter, "x|foo|9.5")); // not numeric
+		assertEquals(2, filter.getDroppedRecords());
+		assertEquals("id<100", filter.getPredicateSpec());
+
+		filter = new MyriadRecordFilter("1", "2>=9.5", null, '|');
+		assertEquals("foo", apply(filter, "42|foo|9.5"));
+		assertEquals(null, apply(filter, "42|foo|9.25"));
+
+		filter = new MyriadRecordFilter(null, "name!=foo", FIELDS, '|');
+		assertEquals(null, apply(filter, "42|foo|9.5"));
+		assertEquals("42|fo|9.5", apply(filter, "42|fo|9.5"));
+	}
+
+	@Test
+	public void testMalformedSpecs() {
+		assertTrue(isMalformed("unknown", null));
+		assertTrue(isMalformed(null, "id"));
+		assertTrue(isMalformed(null, "id=a b"));
+		assertFalse(isMalformed("id,name", "price<=10"));
+	}
+
+	private static String apply(MyriadRecordFilter filter, String line) {
+		MyriadRecord record = new MyriadRecord();
+		byte[] bytes = ("#" + line).getBytes();
+		record.set(bytes, 1, bytes.length - 1);
+		return filter.apply(record) ? record.toString() : null;
+	}
+
+	private static boolean isMalformed(String projection, String predicate) {
+		try {
+			new MyriadRecordFilter(projection, predicate, FIELDS, '|');
+			return false;
+		} catch (IllegalArgumentException e) {
+			return true;
+		}
+	}
+}
@@ -0,0 +1,103 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.myriad.driver.reader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Alexander Alexandrov (alexander.alexandrov@tu-berlin.de)
+ */
+public class MyriadRingBufferTest {
+
+	private File path;
+
+	@Before
+	public void setUp() {
+		Assume.assumeTrue(MyriadRingBuffer.isSupported());
+		this.path = new File(System.getProperty("java.io.tmpdir"), "myriad-test-" + System.nanoTime() + ".ring");
+	}
+
+	@After
+	public void tearDown() {
+		if (this.path != null) {
+			this.path.delete();
+		}
+	}
+
+	@Test
+	public void testTransferWrapsAround() throws Exception {
+		final int length = 1000000;
+		MyriadRingBuffer consumer = MyriadRingBuffer.create(this.path, 4096);
+		final MyriadRingBuffer producer = MyriadRingBuffer.attach(this.path);
+		assertEquals(MyriadRingBuffer.PRODUCER_ATTACHED, consumer.getProducerState());
+
+		final IOException[] failure = new IOException[1];
+		Thread writer = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				try {
+					byte[] bytes = new byte[1777]; // not aligned with the ring capacity
+					for (int written = 0; written < length; written += bytes.length) {
+						int n = Math.min(bytes.length, length - written);
+						for (int i = 0; i < n; i++) {
+							bytes[i] = (byte) (written + i);
+						}
+						producer.write(bytes, 0, n);
+					}
+					producer.closeProducer();
+				} catch (IOException e) {
+					failure[0] = e;
+				}
+			}
+		});
+		writer.start();
+
+		ByteBuffer buffer = ByteBuffer.allocate(3000);
+		int read = 0;
+		int n;
+		while ((n = consumer.read(buffer, null)) >= 0) {
+			buffer.flip();
+			for (int i = 0; i < n; i++) {
+				assertEquals((byte) (read + i), buffer.get(i));
+			}
+			read += n;
+			buffer.clear();
+		}
+		writer.join();
+
+		assertEquals(null, failure[0]);
+		assertEquals(length, read);
+		assertEquals(MyriadRingBuffer.PRODUCER_CLOSED, consumer.getProducerState());
+		producer.close();
+		consumer.close();
+		try {
+			consumer.read(buffer, null);
+			fail("Expected unmapped ring");
+		} catch (IOException e) {
+			assertEquals("Ring buffer is unmapped", e.getMessage());
+		}
+	}
+}
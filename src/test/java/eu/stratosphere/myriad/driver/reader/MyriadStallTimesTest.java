@@ -0,0 +1,44 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.myriad.driver.reader;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import eu.stratosphere.myriad.driver.reader.MyriadStallTimes.Part;
+
+/**
+ * @author Alexander Alexandrov (alexander.alexandrov@tu-berlin.de)
+ */
+public class MyriadStallTimesTest {
+
+	@Test
+	public void testVerdict() {
+		assertEquals("generator-bound 78%", MyriadStallTimes.getVerdict(700, 100, 120, 80));
+		assertEquals("reader-bound 50%", MyriadStallTimes.getVerdict(100, 500, 300, 100));
+		assertEquals("consumer-bound 60%", MyriadStallTimes.getVerdict(200, 200, 600, 0));
+		assertEquals("no data", MyriadStallTimes.getVerdict(0, 0, 0, 0));
+	}
+
+	@Test
+	public void testParts() {
+		MyriadStallTimes times = new MyriadStallTimes(1, 2, 3, 4);
+		assertEquals(1, times.get(Part.SOCKET_WAIT));
+		assertEquals(2, times.get(Part.FRAMING));
+		assertEquals(3, times.get(Part.COLLECTOR));
+		assertEquals(4, times.get(Part.EXIT_IDLE));
+	}
+}
@@ -0,0 +1,47 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.myriad.driver.reader;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+/**
+ * @author Alexander Alexandrov (alexander.alexandrov@tu-berlin.de)
+ */
+public class MyriadStdoutTransportTest {
+
+	@Test
+	public void testReadStdout() throws Exception {
+		Assume.assumeTrue(new File("/bin/sh").canExecute());
+
+		MyriadTransport transport = new MyriadStdoutTransport();
+		Process process = new ProcessBuilder("/bin/sh", "-c", "printf 'a|b\\nc|d\\n'; echo diagnostics >&2").start();
+		MyriadLineReader reader = new MyriadLineReader(transport.connect(process, 0), 1024);
+
+		MyriadRecord record = new MyriadRecord();
+		StringBuilder lines = new StringBuilder();
+		while (reader.readLine(record)) {
+			lines.append(new String(record.getBytes(), record.getOffset(), record.getLength(), "US-ASCII")).append(';');
+		}
+		reader.close();
+		transport.close();
+		assertEquals("a|b;c|d;", lines.toString());
+		assertEquals(0, process.waitFor());
+	}
+}
@@ -0,0 +1,70 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.myriad.driver.stub;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Map;
+import java.util.Properties;
+
+import org.junit.Test;
+
+/**
+ * @author Alexander Alexandrov (alexander.alexandrov@tu-berlin.de)
+ */
+public class MyriadStubGeneratorTest {
+
+	@Test
+	public void testOutputIndependentOfNodeCount() throws Exception {
+		Properties properties = new Properties();
+		properties.setProperty("stub.orders.records", "1000");
+		properties.setProperty("stub.orders.record-size", "50");
+		properties.setProperty("stub.orders.record-size-deviation", "20");
+
+		ByteArrayOutputStream single = new ByteArrayOutputStream();
+		new MyriadStubGenerator(properties, "orders", 1.0, 1, 0).generate(single);
+
+		ByteArrayOutputStream partitioned = new ByteArrayOutputStream();
+		long records = 0;
+		for (int i = 0; i < 3; i++) {
+			MyriadStubGenerator generator = new MyriadStubGenerator(properties, "orders", 1.0, 3, i);
+			generator.generate(partitioned);
+			records += generator.getRecordCount();
+		}
+
+		assertEquals(1000, records);
+		assertArrayEquals(single.toByteArray(), partitioned.toByteArray());
+
+		String[] lines = single.toString("US-ASCII").split("\n");
+		assertEquals(1000, lines.length);
+		for (int i = 0; i < lines.length; i++) {
+			assertTrue(lines[i].startsWith(i + "|"));
+			assertTrue(lines[i].length() > (i + "|").length());
+		}
+	}
+
+	@Test
+	public void testParseArguments() {
+		Map<Character, String> options = MyriadStubGenerator.parseArguments(new String[] { "-s1.5", "-i", "2",
+			"-N4", "-t", "socket[4242]" });
+		assertEquals("1.5", options.get('s'));
+		assertEquals("2", options.get('i'));
+		assertEquals("4", options.get('N'));
+		assertEquals("socket[4242]", options.get('t'));
+	}
+}